@@ -0,0 +1,76 @@
+package io.github.richardstartin.multimatcher.benchmarks;
+
+import io.github.richardstartin.multimatcher.core.Classifier;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.github.richardstartin.multimatcher.benchmarks.OverlappingRulesBenchmark.*;
+
+/**
+ * Compares per record throughput of batch classification against classifying
+ * the same records one at a time, with the rules from {@link OverlappingRulesBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class BatchClassificationBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"32", "63", "1500", "15000", "20000"})
+    int count;
+
+    private Classifier<TestDomainObject, String> classifier;
+    private TestDomainObject[] batch;
+    private String[] classifications;
+    private int[] counts;
+
+    @Setup(Level.Trial)
+    public void init() {
+        List<TestDomainObject> inputs = new ArrayList<>(count);
+        int[] factors = new int[] { count, count / 2, count / 4, count / 8, count / 16};
+        var constraints = expand(prototype(), x -> nextOverlapping(x, factors), inputs, count);
+        classifier = Classifier.<Integer, TestDomainObject, String>builder(schema())
+                .useDirectBuffers(true)
+                .withOptimisedStorageSpace(100 << 20)
+                .build(constraints);
+        batch = new TestDomainObject[BATCH_SIZE];
+        for (int i = 0; i < batch.length; ++i) {
+            batch[i] = inputs.get(ThreadLocalRandom.current().nextInt(inputs.size()));
+        }
+        classifications = new String[BATCH_SIZE];
+        counts = new int[BATCH_SIZE];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void classifyEach(Blackhole bh) {
+        for (TestDomainObject input : batch) {
+            bh.consume(classifier.classificationOrNull(input));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public String[] classifyAll() {
+        classifier.classifyAll(batch, classifications);
+        return classifications;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void matchCountEach(Blackhole bh) {
+        for (TestDomainObject input : batch) {
+            bh.consume(classifier.matchCount(input));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] matchCounts() {
+        classifier.matchCounts(batch, counts);
+        return counts;
+    }
+}
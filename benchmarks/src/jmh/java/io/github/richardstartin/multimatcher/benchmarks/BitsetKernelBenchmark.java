@@ -0,0 +1,98 @@
+package io.github.richardstartin.multimatcher.benchmarks;
+
+import io.github.richardstartin.multimatcher.core.masks.BitsetMask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the scalar bitset loops with the vector API kernels which replace
+ * them on Java 17, which are only used in the forks of {@link Vectorised}.
+ * Running this on Java 11 requires excluding <code>Vectorised</code>.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class BitsetKernelBenchmark {
+
+    @Param({"1024", "4096", "16384"})
+    int bits;
+
+    private MaskStore<BitsetMask> store;
+    private BitsetMask target;
+    private BitsetMask temp;
+    private BitsetMask source;
+    private int sourceId;
+    private int[] ids;
+    private int[] ends;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new SplittableRandom(0);
+        store = BitsetMask.store(bits);
+        target = store.newMask();
+        temp = store.newMask();
+        source = store.newMask();
+        for (int i = 0; i < bits; ++i) {
+            if (random.nextInt(4) != 0) {
+                target.add(i);
+            }
+            if (random.nextInt(4) != 0) {
+                source.add(i);
+            }
+        }
+        sourceId = store.storeMask(source.clone());
+        ids = new int[8];
+        ends = new int[4];
+        for (int i = 0; i < ids.length; ++i) {
+            var mask = store.newMask();
+            for (int j = 0; j < bits; ++j) {
+                if (random.nextInt(2) == 0) {
+                    mask.add(j);
+                }
+            }
+            ids[i] = store.storeMask(mask);
+        }
+        for (int g = 0; g < ends.length; ++g) {
+            ends[g] = 2 * (g + 1);
+        }
+    }
+
+    @Benchmark
+    public BitsetMask inPlaceAnd() {
+        return target.inPlaceAnd(source);
+    }
+
+    @Benchmark
+    public BitsetMask inPlaceOr() {
+        return target.inPlaceOr(source);
+    }
+
+    @Benchmark
+    public BitsetMask inPlaceAndNot() {
+        return target.inPlaceAndNot(source);
+    }
+
+    @Benchmark
+    public BitsetMask andInto() {
+        store.andInto(target, sourceId);
+        return target;
+    }
+
+    @Benchmark
+    public BitsetMask orInto() {
+        store.orInto(target, sourceId);
+        return target;
+    }
+
+    @Benchmark
+    public BitsetMask intersect() {
+        store.copyInto(target, sourceId);
+        store.intersect(target, temp, ids, ends, ends.length, false);
+        return target;
+    }
+
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public static class Vectorised extends BitsetKernelBenchmark {
+    }
+}
@@ -3,6 +3,7 @@ package io.github.richardstartin.multimatcher.benchmarks;
 import io.github.richardstartin.multimatcher.core.Classifier;
 import io.github.richardstartin.multimatcher.core.Schema;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -13,6 +14,9 @@ import static io.github.richardstartin.multimatcher.benchmarks.FieldsEnum.*;
 public class EnumSchemaMatcherState {
 
 
+    @Param({"false", "true"})
+    boolean specialise;
+
     Schema<FieldsEnum, DomainObject> schema;
     Classifier<DomainObject, String> classifier;
     DomainObject matching;
@@ -22,6 +26,7 @@ public class EnumSchemaMatcherState {
     public void init() {
         schema = enumSchema();
         classifier = Classifier.<FieldsEnum, DomainObject, String>builder(schema)
+                .specialise(specialise)
                 .build(SmallBenchmarkRules.ENUM_RULES);
         this.matching = SmallBenchmarkRules.matching();
         this.nonMatching = SmallBenchmarkRules.nonMatching();
@@ -0,0 +1,83 @@
+package io.github.richardstartin.multimatcher.benchmarks;
+
+import io.github.richardstartin.multimatcher.core.matchers.nodes.EqualityLayout;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.IntEqualityIndex;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.Search;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the ways an equality relation on ints can be indexed, for
+ * thresholds spaced evenly at different densities. Half the queries
+ * hit a threshold. The table is only built when it would fit in 64MB.
+ */
+@State(Scope.Benchmark)
+public class EqualityIndexBenchmark {
+
+    @Param({"4", "16", "64", "256", "4096", "65536"})
+    int count;
+
+    @Param({"1", "4", "1024"})
+    int spacing;
+
+    private int[] sorted;
+    private int[] ids;
+    private int[] eytzinger;
+    private int[] ranks;
+    private IntEqualityIndex table;
+    private IntEqualityIndex hash;
+    private int[] queries;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new SplittableRandom(0);
+        sorted = new int[count];
+        ids = new int[count];
+        for (int i = 0; i < count; ++i) {
+            sorted[i] = i * spacing;
+            ids[i] = i + 1;
+        }
+        eytzinger = Search.eytzinger(sorted, count);
+        ranks = Search.ranks(count);
+        if ((long) count * spacing <= 1 << 24) {
+            table = IntEqualityIndex.of(sorted, ids, count, EqualityLayout.TABLE);
+        }
+        hash = IntEqualityIndex.of(sorted, ids, count, EqualityLayout.HASH);
+        queries = new int[1 << 16];
+        for (int i = 0; i < queries.length; ++i) {
+            queries[i] = random.nextBoolean()
+                    ? sorted[random.nextInt(count)]
+                    : random.nextInt(count * spacing);
+        }
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        int position = Arrays.binarySearch(sorted, next());
+        return position >= 0 ? ids[position] : 0;
+    }
+
+    @Benchmark
+    public int eytzinger() {
+        int value = next();
+        int position = Search.lowerBound(eytzinger, ranks, value);
+        return position < count && sorted[position] == value ? ids[position] : 0;
+    }
+
+    @Benchmark
+    public int table() {
+        return null == table ? -1 : table.get(next());
+    }
+
+    @Benchmark
+    public int hash() {
+        return hash.get(next());
+    }
+
+    private int next() {
+        return queries[query++ & (queries.length - 1)];
+    }
+}
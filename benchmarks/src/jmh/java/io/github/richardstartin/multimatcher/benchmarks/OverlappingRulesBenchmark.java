@@ -1,6 +1,7 @@
 package io.github.richardstartin.multimatcher.benchmarks;
 
 import io.github.richardstartin.multimatcher.core.Classifier;
+import io.github.richardstartin.multimatcher.core.MatchContext;
 import io.github.richardstartin.multimatcher.core.MatchingConstraint;
 import io.github.richardstartin.multimatcher.core.Schema;
 import org.openjdk.jmh.annotations.*;
@@ -22,7 +23,7 @@ public class OverlappingRulesBenchmark {
                 0D, 0, 0, RED);
     }
 
-    private static Schema<Integer, TestDomainObject> schema() {
+    static Schema<Integer, TestDomainObject> schema() {
         return Schema.<Integer, TestDomainObject>create()
                 .withAttribute(0, TestDomainObject::getField1)
                 .withAttribute(1, TestDomainObject::getField2)
@@ -36,11 +37,18 @@ public class OverlappingRulesBenchmark {
     }
 
 
-    @Param({"32", "63", "1500", "15000", "20000"})
+    @Param({"32", "63", "100", "250", "500", "1500", "15000", "20000"})
     int count;
 
+    @Param({"false", "true"})
+    boolean fused;
+
+    @Param({"0", "67108864"})
+    long intervalIndexBudget;
+
     private List<TestDomainObject> inputs;
     private Classifier<TestDomainObject, String> classifier;
+    private MatchContext context;
 
 
     int index;
@@ -54,7 +62,10 @@ public class OverlappingRulesBenchmark {
         classifier = Classifier.<Integer, TestDomainObject, String>builder(schema())
                 .useDirectBuffers(true)
                 .withOptimisedStorageSpace(100 << 20)
+                .useFusedEvaluation(fused)
+                .withIntervalIndexBudget(intervalIndexBudget)
                 .build(constraints);
+        context = classifier.newMatchContext();
 
         indices = new int[Integer.lowestOneBit(inputs.size())];
         for (int i = 0; i < inputs.size(); ++i) {
@@ -79,8 +90,13 @@ public class OverlappingRulesBenchmark {
         return classifier.classificationOrNull(next());
     }
 
+    @Benchmark
+    public String classifyWithContext() {
+        return classifier.classificationOrNull(next(), context);
+    }
+
 
-    private static List<MatchingConstraint<Integer, String>> expand(TestDomainObject prototype,
+    static List<MatchingConstraint<Integer, String>> expand(TestDomainObject prototype,
                                                                      Function<TestDomainObject, TestDomainObject> next,
                                                                      List<TestDomainObject> inputs,
                                                                      int count) {
@@ -107,7 +123,7 @@ public class OverlappingRulesBenchmark {
         return constraints;
     }
 
-    private static TestDomainObject nextOverlapping(TestDomainObject prototype, int[] counts) {
+    static TestDomainObject nextOverlapping(TestDomainObject prototype, int[] counts) {
         return prototype.clone()
                 .setField1(next(prototype.getField1(), counts[0]))
                 .setField2(next(prototype.getField2(), counts[1]))
@@ -23,4 +23,10 @@ public class SmallRuleSetBenchmark {
     public String nonMatchingString(StringSchemaMatcherState state) {
         return state.classifier.classification(state.nonMatching).orElse("NA");
     }
+
+    @Benchmark
+    public String matchingMixedSchemas(EnumSchemaMatcherState enumState, StringSchemaMatcherState stringState) {
+        return enumState.classifier.classification(enumState.matching).orElse("NA")
+                + stringState.classifier.classification(stringState.nonMatching).orElse("NA");
+    }
 }
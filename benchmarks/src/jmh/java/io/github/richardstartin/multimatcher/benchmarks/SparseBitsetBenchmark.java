@@ -0,0 +1,79 @@
+package io.github.richardstartin.multimatcher.benchmarks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.BitsetMask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.SparseBitsetMask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares bitsets with and without a summary of their non-empty words
+ * when intersecting masks with a few surviving candidates.
+ */
+@State(Scope.Benchmark)
+public class SparseBitsetBenchmark {
+
+    @Param({"4096", "16383"})
+    int bits;
+
+    @Param({"16", "256", "4096"})
+    int survivors;
+
+    private Masks<BitsetMask> dense;
+    private Masks<SparseBitsetMask> sparse;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dense = new Masks<>(BitsetMask.store(bits), bits, survivors);
+        sparse = new Masks<>(SparseBitsetMask.store(bits), bits, survivors);
+    }
+
+    @Benchmark
+    public int intersectDense() {
+        return dense.intersect();
+    }
+
+    @Benchmark
+    public int intersectSparse() {
+        return sparse.intersect();
+    }
+
+    @Benchmark
+    public int cardinalityDense() {
+        return dense.candidates.cardinality();
+    }
+
+    @Benchmark
+    public int cardinalitySparse() {
+        return sparse.candidates.cardinality();
+    }
+
+    private static final class Masks<MaskType extends Mask<MaskType>> {
+        private final MaskType candidates;
+        private final MaskType attribute;
+        private final MaskType result;
+
+        Masks(MaskStore<MaskType> store, int bits, int survivors) {
+            var random = new SplittableRandom(0);
+            candidates = store.newMask();
+            attribute = store.newMask();
+            result = store.newMask();
+            for (int i = 0; i < survivors; ++i) {
+                candidates.add(random.nextInt(bits));
+            }
+            for (int i = 0; i < bits; ++i) {
+                if (random.nextBoolean()) {
+                    attribute.add(i);
+                }
+            }
+            candidates.optimise();
+            attribute.optimise();
+        }
+
+        int intersect() {
+            return result.resetTo(candidates).inPlaceAnd(attribute).first();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.richardstartin.multimatcher.benchmarks;
+
+import io.github.richardstartin.multimatcher.core.matchers.nodes.Search;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the threshold search layouts used by the numeric nodes
+ * on random queries, from cache resident to much larger than L2.
+ */
+@State(Scope.Benchmark)
+public class ThresholdSearchBenchmark {
+
+    @Param({"16", "256", "4096", "65536", "1048576"})
+    int count;
+
+    private int[] sorted;
+    private int[] eytzinger;
+    private int[] ranks;
+    private int[] queries;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new SplittableRandom(0);
+        sorted = random.ints(count).sorted().distinct().toArray();
+        eytzinger = Search.eytzinger(sorted, sorted.length);
+        ranks = Search.ranks(sorted.length);
+        queries = random.ints(1 << 16).toArray();
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        int position = Arrays.binarySearch(sorted, next());
+        return position >= 0 ? position : -(position + 1);
+    }
+
+    @Benchmark
+    public int branchless() {
+        return Search.lowerBound(sorted, sorted.length, next());
+    }
+
+    @Benchmark
+    public int eytzinger() {
+        return Search.lowerBound(eytzinger, ranks, next());
+    }
+
+    private int next() {
+        return queries[query++ & (queries.length - 1)];
+    }
+}
@@ -52,7 +52,7 @@ subprojects {
     }
 }
 
-subprojects.filter { listOf("multi-matcher-core").contains(it.name) }.forEach { project ->
+subprojects.filter { listOf("multi-matcher-core", "multi-matcher-processor").contains(it.name) }.forEach { project ->
     project.run {
         apply(plugin = "maven-publish")
         apply(plugin = "com.jfrog.bintray")
@@ -20,4 +20,40 @@ dependencies {
 tasks.test {
     useJUnitPlatform()
     failFast = true
+}
+
+// classes which replace their Java 11 versions (or are only used) on Java 17 from a multi-release jar, compiled
+// by the JDK at -Pjava17Home since the build itself runs on Java 11, and skipped without it
+val java17Home = findProperty("java17Home")?.toString()
+
+val java17 by sourceSets.creating {
+    java.setSrcDirs(listOf("src/main/java17"))
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>("compileJava17Java") {
+    onlyIf { java17Home != null }
+    options.isFork = true
+    options.forkOptions.javaHome = java17Home?.let { file(it) }
+    options.compilerArgs = listOf("--release", "17", "--add-modules", "jdk.incubator.vector")
+}
+
+tasks.jar {
+    manifest {
+        attributes(Pair("Multi-Release", "true"))
+    }
+    into("META-INF/versions/17") {
+        from(java17.output)
+    }
+}
+
+tasks.register<Test>("vectorTest") {
+    description = "Runs the tests on Java 17, with the vector API and specialised classifiers."
+    onlyIf { java17Home != null }
+    executable = "$java17Home/bin/java"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = java17.output + sourceSets.test.get().runtimeClasspath
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+    useJUnitPlatform()
+    failFast = true
 }
\ No newline at end of file
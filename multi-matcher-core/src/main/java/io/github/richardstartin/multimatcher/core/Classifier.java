@@ -1,9 +1,13 @@
 package io.github.richardstartin.multimatcher.core;
 
 
+import io.github.richardstartin.multimatcher.core.masks.Bits128Mask;
+import io.github.richardstartin.multimatcher.core.masks.Bits256Mask;
+import io.github.richardstartin.multimatcher.core.masks.Bits512Mask;
 import io.github.richardstartin.multimatcher.core.masks.BitsetMask;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
 import io.github.richardstartin.multimatcher.core.masks.RoaringMask;
+import io.github.richardstartin.multimatcher.core.masks.SparseBitsetMask;
 import io.github.richardstartin.multimatcher.core.masks.WordMask;
 
 import java.util.*;
@@ -67,6 +71,91 @@ public interface Classifier<T, C> {
      */
     C classificationOrNull(T value);
 
+    /**
+     * Gets the highest priority classification of each value in a batch. The
+     * classification of <code>inputs[i]</code>, or null if no constraints are
+     * satisfied, is written to <code>out[i]</code>.
+     *
+     * @param inputs the values to classify
+     * @param out    receives the best classification of each value
+     * @throws IllegalArgumentException if <code>out</code> is shorter than <code>inputs</code>
+     */
+    void classifyAll(T[] inputs, C[] out);
+
+    /**
+     * Counts how many rules match each value in a batch. The number of rules
+     * matching <code>inputs[i]</code> is written to <code>out[i]</code>.
+     *
+     * @param inputs the values to match
+     * @param out    receives the number of matching rules for each value
+     * @throws IllegalArgumentException if <code>out</code> is shorter than <code>inputs</code>
+     */
+    void matchCounts(T[] inputs, int[] out);
+
+    /**
+     * Creates a new context which can be passed to the classification methods
+     * which accept one. The context can be reused, but not shared between threads.
+     *
+     * @return a new match context
+     */
+    MatchContext newMatchContext();
+
+    /**
+     * Visits all classifications matching the value
+     *
+     * @param value    the value to match
+     * @param context  the match context, created by this classifier
+     * @param consumer the classification consumer
+     */
+    void forEachClassification(T value, MatchContext context, Consumer<C> consumer);
+
+    /**
+     * Counts how many rules match the value
+     *
+     * @param value   the value to match
+     * @param context the match context, created by this classifier
+     * @return the number of matching rules
+     */
+    int matchCount(T value, MatchContext context);
+
+    /**
+     * Gets the highest priority classification, or none if no constraints are satisfied.
+     *
+     * @param value   the value to classifications.
+     * @param context the match context, created by this classifier
+     * @return the best classification, or empty if no constraints are satisfied
+     */
+    Optional<C> classification(T value, MatchContext context);
+
+    /**
+     * Gets the highest priority classification, or none if no constraints are satisfied.
+     *
+     * @param value   the value to classifications.
+     * @param context the match context, created by this classifier
+     * @return the best classification, or null if no constraints are satisfied
+     */
+    C classificationOrNull(T value, MatchContext context);
+
+    /**
+     * Gets the highest priority classification of each value in a batch.
+     *
+     * @param inputs  the values to classify
+     * @param out     receives the best classification of each value
+     * @param context the match context, created by this classifier
+     * @throws IllegalArgumentException if <code>out</code> is shorter than <code>inputs</code>
+     */
+    void classifyAll(T[] inputs, C[] out, MatchContext context);
+
+    /**
+     * Counts how many rules match each value in a batch.
+     *
+     * @param inputs  the values to match
+     * @param out     receives the number of matching rules for each value
+     * @param context the match context, created by this classifier
+     * @throws IllegalArgumentException if <code>out</code> is shorter than <code>inputs</code>
+     */
+    void matchCounts(T[] inputs, int[] out, MatchContext context);
+
     @SuppressWarnings("unchecked")
     class ClassifierBuilder<Key, Input, Classification> {
 
@@ -75,6 +164,10 @@ public interface Classifier<T, C> {
         private Classification[] classifications;
         private boolean useDirectBuffers = false;
         private int optimisedStorageSpace = 0;
+        private boolean fusedEvaluation = false;
+        private boolean sparseBitsets = false;
+        private boolean specialise = false;
+        private MatcherOptions matcherOptions = MatcherOptions.DEFAULT;
 
         public ClassifierBuilder(Schema<Key, Input> schema) {
             this.schema = schema;
@@ -95,6 +188,110 @@ public interface Classifier<T, C> {
             return this;
         }
 
+        /**
+         * Resolves the masks of all attributes before intersecting them a block
+         * at a time, rather than intersecting each attribute's masks with all the
+         * constraints in turn. Finding the best classification can then stop at
+         * the first block with a match.
+         *
+         * @param fusedEvaluation whether to intersect the masks of all attributes in one pass
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> useFusedEvaluation(boolean fusedEvaluation) {
+            this.fusedEvaluation = fusedEvaluation;
+            return this;
+        }
+
+        /**
+         * Uses bitsets with a summary of their non-empty words for rule sets
+         * too large for a single word, so operations skip the empty words.
+         * This suits large rule sets where few rules survive each attribute,
+         * but costs an extra branch per word when the masks are dense.
+         *
+         * @param sparseBitsets whether to use summarised bitsets
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> useSparseBitsets(boolean sparseBitsets) {
+            this.sparseBitsets = sparseBitsets;
+            return this;
+        }
+
+        /**
+         * Allows each numeric attribute to merge the thresholds of all its
+         * constraints into a single sorted array, with a precomputed mask for
+         * each elementary interval, so matching the attribute takes one search
+         * and one intersection. An attribute only does this if the extra masks
+         * fit within the budget.
+         *
+         * @param bytes the maximum size of the extra masks for each attribute, zero to disable
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> withIntervalIndexBudget(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Negative interval index budget " + bytes);
+            }
+            this.matcherOptions = matcherOptions.withIntervalIndexBudget(bytes);
+            return this;
+        }
+
+        /**
+         * Stores the cumulative mask of range constraints on numeric and comparable
+         * attributes at only every <code>interval</code>-th threshold, and the masks
+         * of just the rules of each threshold in between. The cumulative masks of
+         * many thresholds over many rules take most of the space of a classifier,
+         * and this divides their size by the interval, at the cost of the masks of
+         * each threshold's own rules, but each range constraint may then need to
+         * union up to <code>interval</code> masks when matching.
+         * <p>
+         * This only applies when masks are compressed, which is when there are at
+         * least {@link BitsetMask#MAX_CAPACITY} rules. Otherwise every mask takes the
+         * same space, so the masks of each threshold's own rules would take as much
+         * space as the cumulative masks they replace, and the setting is ignored.
+         *
+         * @param interval the number of thresholds between cumulative masks, one to store them all
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> withRangeCheckpointInterval(int interval) {
+            if (interval < 1) {
+                throw new IllegalArgumentException("Range checkpoint interval " + interval + " must be positive");
+            }
+            this.matcherOptions = matcherOptions.withRangeCheckpointInterval(interval);
+            return this;
+        }
+
+        /**
+         * Indexes the literal values of generic and string attributes with at least
+         * <code>literals</code> distinct values by a minimal perfect hash once the
+         * rules are frozen, instead of an open addressing hash map. Every lookup
+         * then takes one probe and one <code>equals</code>, and the index takes less
+         * space, at the cost of building the hash, which suits attributes with
+         * hundreds of thousands of literal values.
+         *
+         * @param literals the number of distinct values from which to use a perfect hash, zero to disable
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> withPerfectHashThreshold(int literals) {
+            if (literals < 0) {
+                throw new IllegalArgumentException("Negative perfect hash threshold " + literals);
+            }
+            this.matcherOptions = matcherOptions.withPerfectHashThreshold(literals);
+            return this;
+        }
+
+        /**
+         * Defines a class for each classifier of fewer than 64 constraints which
+         * calls its matchers from call sites of their own, with the matchers as
+         * constants, so the JIT compiler sees one monomorphic method per
+         * classifier. This needs hidden classes, so has no effect before Java 17.
+         *
+         * @param specialise whether to define a class for each small classifier
+         * @return this builder
+         */
+        public ClassifierBuilder<Key, Input, Classification> specialise(boolean specialise) {
+            this.specialise = specialise;
+            return this;
+        }
+
         /**
          * Build a classifier from some matchers
          *
@@ -104,7 +301,19 @@ public interface Classifier<T, C> {
         public Classifier<Input, Classification> build(List<MatchingConstraint<Key, Classification>> constraints) {
             int maxPriority = constraints.size();
             if (maxPriority < WordMask.MAX_CAPACITY) {
-                return build(constraints, WordMask.store(maxPriority), maxPriority);
+                return buildWords(constraints, WordMask.store(maxPriority), maxPriority);
+            }
+            if (maxPriority < Bits128Mask.MAX_CAPACITY) {
+                return build(constraints, Bits128Mask.store(), maxPriority);
+            }
+            if (maxPriority < Bits256Mask.MAX_CAPACITY) {
+                return build(constraints, Bits256Mask.store(), maxPriority);
+            }
+            if (maxPriority < Bits512Mask.MAX_CAPACITY) {
+                return build(constraints, Bits512Mask.store(), maxPriority);
+            }
+            if (sparseBitsets && maxPriority < SparseBitsetMask.MAX_CAPACITY) {
+                return build(constraints, SparseBitsetMask.store(maxPriority), maxPriority);
             }
             if (maxPriority < BitsetMask.MAX_CAPACITY) {
                 return build(constraints, BitsetMask.store(maxPriority), maxPriority);
@@ -112,17 +321,35 @@ public interface Classifier<T, C> {
             return build(constraints, RoaringMask.store(optimisedStorageSpace, useDirectBuffers), maxPriority);
         }
 
+        private Classifier<Input, Classification> buildWords(List<MatchingConstraint<Key, Classification>> specs,
+                                                             WordMask.WordStore maskStore,
+                                                             int max) {
+            addMatchingConstraints(specs, maskStore, max);
+            Matcher<Input, WordMask>[] matchers = freezeMatchers();
+            var classifier = new WordClassifier<>(classifications, matchers, maskStore,
+                    maskStore.word(maskStore.newContiguousMaskId(max)));
+            return specialise ? Specialisation.specialise(classifier) : classifier;
+        }
+
         private <MaskType extends Mask<MaskType>>
         MaskedClassifier<MaskType, Input, Classification> build(List<MatchingConstraint<Key, Classification>> specs,
                                                                 MaskStore<MaskType> maskStore,
                                                                 int max) {
+            addMatchingConstraints(specs, maskStore, max);
+            return new MaskedClassifier<>(classifications, freezeMatchers(), maskStore.contiguous(max),
+                    maskStore, fusedEvaluation);
+        }
+
+        private <MaskType extends Mask<MaskType>>
+        void addMatchingConstraints(List<MatchingConstraint<Key, Classification>> specs,
+                                    MaskStore<MaskType> maskStore,
+                                    int max) {
             classifications = (Classification[]) new Object[max];
             int sequence = 0;
             specs.sort(comparingInt(rd -> order(rd.getPriority())));
             for (var spec : specs) {
                 addMatchingConstraint(spec, sequence++, maskStore, max);
             }
-            return new MaskedClassifier<>(classifications, freezeMatchers(), maskStore.contiguous(max));
         }
 
         private <MaskType extends Mask<MaskType>>
@@ -154,7 +381,7 @@ public interface Classifier<T, C> {
             var matchers = new Matcher[accumulators.size()];
             int i = 0;
             for (var accumulator : accumulators.values()) {
-                matchers[i++] = accumulator.toMatcher();
+                matchers[i++] = accumulator.toMatcher(matcherOptions);
             }
             Arrays.sort(matchers, comparingInt(x -> (int) (x.averageSelectivity() * 1000)));
             return (Matcher<Input, MaskType>[]) matchers;
@@ -1,5 +1,7 @@
 package io.github.richardstartin.multimatcher.core;
 
+import java.util.Collection;
+
 public class Constraint {
 
     private Operation operation;
@@ -36,6 +38,34 @@ public class Constraint {
         return condition(Operation.STARTS_WITH, prefix);
     }
 
+    public static Constraint endsWith(String suffix) {
+        return condition(Operation.ENDS_WITH, suffix);
+    }
+
+    public static Constraint contains(String substring) {
+        return condition(Operation.CONTAINS, substring);
+    }
+
+    public static Constraint in(Collection<?> values) {
+        return condition(Operation.IN, values);
+    }
+
+    public static Constraint notIn(Collection<?> values) {
+        return condition(Operation.NOT_IN, values);
+    }
+
+    /**
+     * Constrains values to a half open range
+     *
+     * @param from the lower bound, inclusive
+     * @param to   the upper bound, exclusive
+     * @param <T>  the type of the bounds
+     * @return a constraint
+     */
+    public static <T extends Comparable<? super T>> Constraint between(T from, T to) {
+        return condition(Operation.BETWEEN, new Range<>(from, to));
+    }
+
     private static Constraint condition(Operation op, Object value) {
         Constraint rc = new Constraint();
         rc.operation = op;
@@ -20,4 +20,14 @@ public interface ConstraintAccumulator<T, MaskType> {
      */
     Matcher<T, MaskType> toMatcher();
 
+    /**
+     * Freezes the column. DO NOT remove constraints after calling this method.
+     *
+     * @param options settings which may change the representation of the matcher
+     * @return the matcher
+     */
+    default Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        return toMatcher();
+    }
+
 }
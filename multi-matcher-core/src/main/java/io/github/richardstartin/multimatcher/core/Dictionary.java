@@ -0,0 +1,38 @@
+package io.github.richardstartin.multimatcher.core;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.List;
+
+/**
+ * Translates the string values of a dictionary-encoded attribute to the
+ * integer codes the classified objects carry instead of the strings.
+ * Strings with the same code, such as the spellings of a case-insensitive
+ * value, are treated as the same value when matching.
+ */
+@FunctionalInterface
+public interface Dictionary {
+
+    /**
+     * @param value a string value
+     * @return the code of the value, or a negative number if it isn't in the dictionary
+     */
+    int encode(String value);
+
+    /**
+     * Creates a dictionary which encodes each value as its position in a list.
+     *
+     * @param values the distinct values
+     * @return the dictionary
+     */
+    static Dictionary of(List<String> values) {
+        var codes = new Object2IntOpenHashMap<String>(values.size());
+        codes.defaultReturnValue(-1);
+        for (int code = 0; code < values.size(); ++code) {
+            if (codes.put(values.get(code), code) != -1) {
+                throw new IllegalArgumentException("Duplicate dictionary value " + values.get(code));
+            }
+        }
+        return codes::getInt;
+    }
+}
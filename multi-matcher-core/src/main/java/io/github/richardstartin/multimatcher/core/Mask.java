@@ -47,6 +47,8 @@ public interface Mask<T extends Mask<T>> {
 
     int cardinality();
 
+    long sizeInBytes();
+
     default T and(T other) {
         return clone().inPlaceAnd(other);
     }
@@ -1,57 +1,262 @@
 package io.github.richardstartin.multimatcher.core;
 
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+
 import java.util.Optional;
 import java.util.function.Consumer;
 
 public class MaskedClassifier<MaskType extends Mask<MaskType>, Input, Classification>
         implements Classifier<Input, Classification> {
 
+    private static final int BATCH_SIZE = 32;
+
     private final Classification[] classifications;
     private final Matcher<Input, MaskType>[] matchers;
     private final Mask<MaskType> mask;
-    private final ThreadLocal<MaskType> context;
+    private final MaskStore<MaskType> store;
+    // the total number of ids the matchers can resolve, zero unless evaluation is fused
+    private final int resolvedIds;
+    // only used by the overloads which don't accept a context
+    private final ThreadLocal<MatchContext> context;
 
     public MaskedClassifier(Classification[] classifications,
                             Matcher<Input, MaskType>[] matchers,
                             Mask<MaskType> mask) {
+        this(classifications, matchers, mask, null, false);
+    }
+
+    /**
+     * Creates a classifier which can resolve a mask id from each matcher, and
+     * then intersect all the masks a block at a time, instead of intersecting
+     * each matcher's masks with the full width of the context in turn.
+     *
+     * @param classifications the classifications, indexed by identity
+     * @param matchers        the matchers
+     * @param mask            the identities of all constraints
+     * @param store           the store the matchers' masks are stored in
+     * @param fused           whether to fuse the evaluation of the matchers,
+     *                        which is only done if every matcher can resolve mask ids
+     */
+    public MaskedClassifier(Classification[] classifications,
+                            Matcher<Input, MaskType>[] matchers,
+                            Mask<MaskType> mask,
+                            MaskStore<MaskType> store,
+                            boolean fused) {
         this.classifications = classifications;
         this.matchers = matchers;
         this.mask = mask;
-        this.context = ThreadLocal.withInitial(mask::clone);
+        this.store = store;
+        this.resolvedIds = fused ? resolvedIds(matchers) : 0;
+        this.context = ThreadLocal.withInitial(this::newMatchContext);
         mask.optimise();
     }
 
+    @Override
+    public MatchContext newMatchContext() {
+        var temp = mask.clone();
+        temp.clear();
+        var context = new MatchContext(this, mask.clone(), temp);
+        if (resolvedIds > 0) {
+            context.ids = new int[resolvedIds];
+            context.ends = new int[matchers.length];
+        }
+        return context;
+    }
+
     @Override
     public void forEachClassification(Input value, Consumer<Classification> consumer) {
-        match(value).forEach(i -> consumer.accept(classifications[i]));
+        forEachClassification(value, context.get(), consumer);
     }
 
     @Override
     public int matchCount(Input value) {
-        return match(value).cardinality();
+        return matchCount(value, context.get());
     }
 
     @Override
     public Optional<Classification> classification(Input value) {
-        return Optional.ofNullable(classificationOrNull(value));
+        return classification(value, context.get());
     }
 
     @Override
     public Classification classificationOrNull(Input value) {
-        var matches = match(value);
+        return classificationOrNull(value, context.get());
+    }
+
+    @Override
+    public void classifyAll(Input[] inputs, Classification[] out) {
+        classifyAll(inputs, out, context.get());
+    }
+
+    @Override
+    public void matchCounts(Input[] inputs, int[] out) {
+        matchCounts(inputs, out, context.get());
+    }
+
+    @Override
+    public void forEachClassification(Input value, MatchContext context, Consumer<Classification> consumer) {
+        match(value, checkOwner(context), false).forEach(i -> consumer.accept(classifications[i]));
+    }
+
+    @Override
+    public int matchCount(Input value, MatchContext context) {
+        return match(value, checkOwner(context), false).cardinality();
+    }
+
+    @Override
+    public Optional<Classification> classification(Input value, MatchContext context) {
+        return Optional.ofNullable(classificationOrNull(value, context));
+    }
+
+    @Override
+    public Classification classificationOrNull(Input value, MatchContext context) {
+        return classificationOrNull(match(value, checkOwner(context), true));
+    }
+
+    @Override
+    public void classifyAll(Input[] inputs, Classification[] out, MatchContext context) {
+        checkBatch(inputs.length, out.length);
+        checkOwner(context);
+        if (resolvedIds > 0) {
+            for (int i = 0; i < inputs.length; ++i) {
+                out[i] = classificationOrNull(matchFused(inputs[i], context, true));
+            }
+            return;
+        }
+        var batch = batch(context);
+        var temp = temp(context);
+        for (int offset = 0; offset < inputs.length; offset += batch.length) {
+            int size = match(inputs, offset, batch, temp);
+            for (int i = 0; i < size; ++i) {
+                out[offset + i] = classificationOrNull(batch[i]);
+            }
+        }
+    }
+
+    @Override
+    public void matchCounts(Input[] inputs, int[] out, MatchContext context) {
+        checkBatch(inputs.length, out.length);
+        checkOwner(context);
+        if (resolvedIds > 0) {
+            for (int i = 0; i < inputs.length; ++i) {
+                out[i] = matchFused(inputs[i], context, false).cardinality();
+            }
+            return;
+        }
+        var batch = batch(context);
+        var temp = temp(context);
+        for (int offset = 0; offset < inputs.length; offset += batch.length) {
+            int size = match(inputs, offset, batch, temp);
+            for (int i = 0; i < size; ++i) {
+                out[offset + i] = batch[i].cardinality();
+            }
+        }
+    }
+
+    private Classification classificationOrNull(MaskType matches) {
         return matches.isEmpty()
                 ? null
                 : classifications[matches.first()];
     }
 
-    private MaskType match(Input value) {
-        var ctx = context.get().resetTo(mask);
+    private MaskType match(Input value, MatchContext context, boolean firstOnly) {
+        return resolvedIds > 0
+                ? matchFused(value, context, firstOnly)
+                : matchEach(value, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MaskType matchEach(Input value, MatchContext context) {
+        var ctx = ((MaskType) context.mask).resetTo(mask);
+        var temp = temp(context);
         for (var matcher : matchers) {
-            matcher.match(value, ctx);
+            matcher.match(value, ctx, temp);
             if (ctx.isEmpty()) {
                 break;
             }
         }
         return ctx;
     }
+
+    /*
+     * Resolves the masks of every matcher before touching the context, so the
+     * store can intersect them all in one pass over the context.
+     */
+    @SuppressWarnings("unchecked")
+    private MaskType matchFused(Input value, MatchContext context, boolean firstOnly) {
+        var ctx = ((MaskType) context.mask).resetTo(mask);
+        int[] ids = context.ids;
+        int[] ends = context.ends;
+        int offset = 0;
+        for (int i = 0; i < matchers.length; ++i) {
+            offset += matchers[i].resolve(value, ids, offset);
+            ends[i] = offset;
+        }
+        store.intersect(ctx, temp(context), ids, ends, matchers.length, firstOnly);
+        return ctx;
+    }
+
+    /*
+     * Matches a slice of the inputs attribute by attribute rather than input by input,
+     * so each matcher's accessor and lookup structures stay hot for the whole slice.
+     */
+    private int match(Input[] inputs, int offset, MaskType[] batch, MaskType temp) {
+        int size = Math.min(batch.length, inputs.length - offset);
+        for (int i = 0; i < size; ++i) {
+            batch[i].resetTo(mask);
+        }
+        int remaining = size;
+        for (int m = 0; m < matchers.length && remaining > 0; ++m) {
+            var matcher = matchers[m];
+            remaining = 0;
+            for (int i = 0; i < size; ++i) {
+                var ctx = batch[i];
+                if (!ctx.isEmpty()) {
+                    matcher.match(inputs[offset + i], ctx, temp);
+                    if (!ctx.isEmpty()) {
+                        ++remaining;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MaskType temp(MatchContext context) {
+        return (MaskType) context.temp;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MaskType[] batch(MatchContext context) {
+        if (null == context.batch) {
+            var batch = new Mask[BATCH_SIZE];
+            for (int i = 0; i < batch.length; ++i) {
+                batch[i] = mask.clone();
+            }
+            context.batch = batch;
+        }
+        return (MaskType[]) context.batch;
+    }
+
+    private MatchContext checkOwner(MatchContext context) {
+        if (context.owner != this) {
+            throw new IllegalArgumentException("The context was not created by this classifier");
+        }
+        return context;
+    }
+
+    private static int resolvedIds(Matcher<?, ?>[] matchers) {
+        int resolvedIds = 0;
+        for (var matcher : matchers) {
+            resolvedIds += matcher.maxResolvedIds();
+        }
+        return resolvedIds;
+    }
+
+    private static void checkBatch(int inputs, int outputs) {
+        if (outputs < inputs) {
+            throw new IllegalArgumentException("Output length " + outputs + " is less than input length " + inputs);
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package io.github.richardstartin.multimatcher.core;
+
+/**
+ * Holds the working state needed to classify values. A context is created
+ * by {@link Classifier#newMatchContext()}, and can then be reused (or pooled)
+ * for any number of classifications by the same classifier, which is
+ * allocation free and independent of the threading model. A context must
+ * not be used by more than one thread at a time.
+ */
+public final class MatchContext {
+
+    final Object owner;
+    final Mask<?> mask;
+    final Mask<?> temp;
+    Mask<?>[] batch;
+    // mask ids resolved by each matcher, when evaluation is fused
+    int[] ids;
+    int[] ends;
+
+    MatchContext(Object owner, Mask<?> mask, Mask<?> temp) {
+        this.owner = owner;
+        this.mask = mask;
+        this.temp = temp;
+    }
+}
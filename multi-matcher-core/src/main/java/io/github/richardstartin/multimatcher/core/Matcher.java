@@ -1,5 +1,7 @@
 package io.github.richardstartin.multimatcher.core;
 
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
 public interface Matcher<T, MaskType> {
     /**
      * Returns the identities named all named the constraints which are satisfied bt the value,
@@ -7,8 +9,38 @@ public interface Matcher<T, MaskType> {
      *
      * @param value   the value to match
      * @param context the identities named constraints satisfied prior to the match
+     * @param temp    scratch space owned by the {@link MatchContext}, the contents are undefined
+     */
+    void match(T value, MaskType context, MaskType temp);
+
+    /**
+     * Writes the ids of the stored masks whose union contains the identities
+     * of the constraints satisfied by the value, instead of combining the masks.
+     * This allows the masks of all attributes to be intersected in a single pass.
+     *
+     * @param value  the value to match
+     * @param ids    receives the ids of the masks
+     * @param offset the position in <code>ids</code> to write the first id to
+     * @return the number of ids written, at most {@link #maxResolvedIds()}
+     */
+    int resolve(T value, int[] ids, int offset);
+
+    /**
+     * @return the maximum number of ids written by {@link #resolve(Object, int[], int)},
+     * which is at least one.
+     */
+    int maxResolvedIds();
+
+    /**
+     * Combines the words of the stored masks whose union contains the identities
+     * of the constraints satisfied by the value, for classifiers of at most 64
+     * constraints, which are the words of the ids {@link #resolve(Object, int[], int)} writes.
+     *
+     * @param value the value to match
+     * @param words the store this matcher's masks are stored in
+     * @return the identities of the constraints satisfied by the value
      */
-    void match(T value, MaskType context);
+    long matchWord(T value, WordMask.WordStore words);
 
     default float averageSelectivity() {
         return 1;
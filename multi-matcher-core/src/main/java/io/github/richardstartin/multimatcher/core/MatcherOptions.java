@@ -0,0 +1,58 @@
+package io.github.richardstartin.multimatcher.core;
+
+/**
+ * Settings which control how the constraints on each attribute are
+ * frozen into a {@link Matcher}.
+ */
+public final class MatcherOptions {
+
+    public static final MatcherOptions DEFAULT = new MatcherOptions(0L, 1, 0);
+
+    private final long intervalIndexBudget;
+    private final int rangeCheckpointInterval;
+    private final int perfectHashThreshold;
+
+    private MatcherOptions(long intervalIndexBudget, int rangeCheckpointInterval, int perfectHashThreshold) {
+        this.intervalIndexBudget = intervalIndexBudget;
+        this.rangeCheckpointInterval = rangeCheckpointInterval;
+        this.perfectHashThreshold = perfectHashThreshold;
+    }
+
+    /**
+     * @return the number of bytes of extra masks each numeric attribute may use
+     * to index its elementary intervals, zero if interval indexes are disabled.
+     */
+    public long intervalIndexBudget() {
+        return intervalIndexBudget;
+    }
+
+    /**
+     * @return the number of thresholds of a range constraint between each one
+     * which stores the cumulative mask of the rules it matches, one if every
+     * threshold stores its cumulative mask.
+     */
+    public int rangeCheckpointInterval() {
+        return rangeCheckpointInterval;
+    }
+
+    /**
+     * @return the number of distinct literal values from which the equality
+     * constraints on generic and string attributes are indexed by a minimal
+     * perfect hash, zero if perfect hashing is disabled.
+     */
+    public int perfectHashThreshold() {
+        return perfectHashThreshold;
+    }
+
+    public MatcherOptions withIntervalIndexBudget(long intervalIndexBudget) {
+        return new MatcherOptions(intervalIndexBudget, rangeCheckpointInterval, perfectHashThreshold);
+    }
+
+    public MatcherOptions withRangeCheckpointInterval(int rangeCheckpointInterval) {
+        return new MatcherOptions(intervalIndexBudget, rangeCheckpointInterval, perfectHashThreshold);
+    }
+
+    public MatcherOptions withPerfectHashThreshold(int perfectHashThreshold) {
+        return new MatcherOptions(intervalIndexBudget, rangeCheckpointInterval, perfectHashThreshold);
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.richardstartin.multimatcher.core;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -96,6 +97,14 @@ public class MatchingConstraint<Key, Classification> {
             return constraint(key, Constraint.notEqualTo(value));
         }
 
+        public Builder<K, C> in(K key, Collection<?> values) {
+            return constraint(key, Constraint.in(values));
+        }
+
+        public Builder<K, C> notIn(K key, Collection<?> values) {
+            return constraint(key, Constraint.notIn(values));
+        }
+
         public Builder<K, C> lt(K key, Comparable<?> value) {
             return constraint(key, Constraint.lessThan(value));
         }
@@ -112,10 +121,22 @@ public class MatchingConstraint<Key, Classification> {
             return constraint(key, Constraint.greaterThanOrEqualTo(value));
         }
 
+        public <T extends Comparable<? super T>> Builder<K, C> between(K key, T from, T to) {
+            return constraint(key, Constraint.between(from, to));
+        }
+
         public Builder<K, C> startsWith(K key, String prefix) {
             return constraint(key, Constraint.startsWith(prefix));
         }
 
+        public Builder<K, C> endsWith(K key, String suffix) {
+            return constraint(key, Constraint.endsWith(suffix));
+        }
+
+        public Builder<K, C> contains(K key, String substring) {
+            return constraint(key, Constraint.contains(substring));
+        }
+
         public Builder<K, C> priority(int value) {
             this.priority = value;
             return this;
@@ -7,7 +7,12 @@ public enum Operation {
     GE("≥"),
     EQ("="),
     NE("≠"),
-    STARTS_WITH("starts_with");
+    STARTS_WITH("starts_with"),
+    ENDS_WITH("ends_with"),
+    CONTAINS("contains"),
+    IN("∈"),
+    NOT_IN("∉"),
+    BETWEEN("between");
 
     public static int SIZE = values().length;
 
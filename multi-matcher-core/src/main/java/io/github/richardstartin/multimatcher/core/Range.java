@@ -0,0 +1,53 @@
+package io.github.richardstartin.multimatcher.core;
+
+import java.util.Objects;
+
+/**
+ * The half open range of values from a lower bound, inclusive, up to an
+ * upper bound, exclusive, constrained by {@link Operation#BETWEEN}.
+ *
+ * @param <T> the type of the bounds
+ */
+public final class Range<T extends Comparable<? super T>> {
+
+    private final T from;
+    private final T to;
+
+    public Range(T from, T to) {
+        this.from = Objects.requireNonNull(from);
+        this.to = Objects.requireNonNull(to);
+        if (from.compareTo(to) > 0) {
+            throw new IllegalArgumentException("Lower bound " + from + " exceeds upper bound " + to);
+        }
+    }
+
+    public T getFrom() {
+        return from;
+    }
+
+    public T getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Range<?> range = (Range<?>) o;
+        return from.equals(range.from) && to.equals(range.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
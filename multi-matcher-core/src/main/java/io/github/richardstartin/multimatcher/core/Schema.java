@@ -1,7 +1,13 @@
 package io.github.richardstartin.multimatcher.core;
 
+import io.github.richardstartin.multimatcher.core.matchers.nodes.CharSequenceLiteralIndex;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.Utf8LiteralIndex;
 import io.github.richardstartin.multimatcher.core.schema.*;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -70,7 +76,7 @@ public class Schema<Key, Input> {
     }
 
     /**
-     * Registers a string attribute builder equality semantics only
+     * Registers a string attribute supporting equality, prefix, suffix and substring constraints
      *
      * @param key      the key named the attribute (rules refer to this)
      * @param accessor extracts a value named type Input from the classified object
@@ -81,6 +87,49 @@ public class Schema<Key, Input> {
         return this;
     }
 
+    /**
+     * Registers a string attribute with equality semantics only, whose values are
+     * the UTF-8 bytes between the position and limit of a buffer. The buffer is
+     * neither decoded nor modified, so a byte array can be matched by wrapping it
+     * in a buffer which is reused between inputs.
+     *
+     * @param key      the key named the attribute (rules refer to this)
+     * @param accessor extracts a value named type Input from the classified object
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withUtf8Attribute(Key key, Function<Input, ByteBuffer> accessor) {
+        attributes.put(key, new SliceAttribute<>(accessor, Utf8LiteralIndex::build));
+        return this;
+    }
+
+    /**
+     * Registers a string attribute with equality semantics only, whose values
+     * are character sequences which needn't be converted to strings.
+     *
+     * @param key      the key named the attribute (rules refer to this)
+     * @param accessor extracts a value named type Input from the classified object
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withCharSequenceAttribute(Key key, Function<Input, CharSequence> accessor) {
+        attributes.put(key, new SliceAttribute<>(accessor, CharSequenceLiteralIndex::build));
+        return this;
+    }
+
+    /**
+     * Registers a string attribute with equality semantics only, whose values are
+     * the codes of a dictionary. Rules still refer to the strings, which are
+     * encoded when the classifier is built.
+     *
+     * @param key        the key named the attribute (rules refer to this)
+     * @param accessor   extracts the code of the value from the classified object
+     * @param dictionary encodes the strings rules refer to
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withDictionaryAttribute(Key key, ToIntFunction<Input> accessor, Dictionary dictionary) {
+        attributes.put(key, new DictionaryAttribute<>(accessor, dictionary));
+        return this;
+    }
+
     /**
      * Registers an enum attribute with equality semantics only
      *
@@ -143,6 +192,49 @@ public class Schema<Key, Input> {
         return this;
     }
 
+    /**
+     * Registers an instant attribute with equality and order semantics, matched
+     * as nanoseconds since the epoch. This range only covers the years 1677 to 2262,
+     * so if any rule refers to an instant outside it, such as {@link Instant#MAX},
+     * the attribute is matched with the natural order of instants instead.
+     *
+     * @param key      the key named the attribute (rules refer to this)
+     * @param accessor extracts a value named type Input from the classified object
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withInstantAttribute(Key key, Function<Input, Instant> accessor) {
+        attributes.put(key, new TemporalAttribute<>(accessor, TemporalAttribute::epochNanos));
+        return this;
+    }
+
+    /**
+     * Registers a date attribute with equality and order semantics, matched
+     * as days since the epoch
+     *
+     * @param key      the key named the attribute (rules refer to this)
+     * @param accessor extracts a value named type Input from the classified object
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withLocalDateAttribute(Key key, Function<Input, LocalDate> accessor) {
+        attributes.put(key, new TemporalAttribute<>(accessor, LocalDate::toEpochDay));
+        return this;
+    }
+
+    /**
+     * Registers a duration attribute with equality and order semantics, matched
+     * as nanoseconds. This range only covers about 292 years either side of zero,
+     * so if any rule refers to a longer duration the attribute is matched with
+     * the natural order of durations instead.
+     *
+     * @param key      the key named the attribute (rules refer to this)
+     * @param accessor extracts a value named type Input from the classified object
+     * @return an attribute registry containing the attribute
+     */
+    public Schema<Key, Input> withDurationAttribute(Key key, Function<Input, Duration> accessor) {
+        attributes.put(key, new TemporalAttribute<>(accessor, TemporalAttribute::nanos));
+        return this;
+    }
+
     /**
      * Get the attribute builder the supplied key if it exists
      *
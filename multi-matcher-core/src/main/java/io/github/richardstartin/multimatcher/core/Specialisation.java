@@ -0,0 +1,27 @@
+package io.github.richardstartin.multimatcher.core;
+
+/**
+ * Specialises classifiers by defining a class for each, so the JIT compiler
+ * profiles and inlines each classifier's matchers separately.
+ * <p>
+ * This implementation returns classifiers as they are, because it needs
+ * hidden classes. A version which defines them replaces it on Java 17 and
+ * later, from a multi-release jar.
+ */
+final class Specialisation {
+
+    private Specialisation() {
+    }
+
+    static <Input, Classification> WordClassifier<Input, Classification>
+    specialise(WordClassifier<Input, Classification> classifier) {
+        return classifier;
+    }
+
+    /**
+     * @return whether classifiers are specialised
+     */
+    static boolean isSupported() {
+        return false;
+    }
+}
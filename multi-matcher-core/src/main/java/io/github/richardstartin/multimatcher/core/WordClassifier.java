@@ -0,0 +1,143 @@
+package io.github.richardstartin.multimatcher.core;
+
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Classifies against at most 64 constraints, whose masks fit in a single
+ * word. Each matcher combines the words of its masks and the classifier
+ * intersects them in a local variable, so classification never touches a
+ * mask object and needs no working state: the match context is only checked
+ * for ownership, and the overloads without one don't need a thread local.
+ * <p>
+ * {@link Specialisation} may replace the loop over the matchers with one
+ * which calls each matcher from a call site of its own.
+ */
+public class WordClassifier<Input, Classification> implements Classifier<Input, Classification> {
+
+    final Classification[] classifications;
+    final Matcher<Input, WordMask>[] matchers;
+    final WordMask.WordStore store;
+    final long mask;
+
+    /**
+     * @param classifications the classifications, indexed by identity
+     * @param matchers        the matchers
+     * @param store           the store the matchers' masks are stored in
+     * @param mask            the identities of all constraints
+     */
+    public WordClassifier(Classification[] classifications,
+                          Matcher<Input, WordMask>[] matchers,
+                          WordMask.WordStore store,
+                          long mask) {
+        this.classifications = classifications;
+        this.matchers = matchers;
+        this.store = store;
+        this.mask = mask;
+    }
+
+    @Override
+    public MatchContext newMatchContext() {
+        return new MatchContext(this, null, null);
+    }
+
+    @Override
+    public void forEachClassification(Input value, Consumer<Classification> consumer) {
+        for (long word = match(value); word != 0; word &= (word - 1)) {
+            consumer.accept(classifications[Long.numberOfTrailingZeros(word)]);
+        }
+    }
+
+    @Override
+    public int matchCount(Input value) {
+        return Long.bitCount(match(value));
+    }
+
+    @Override
+    public Optional<Classification> classification(Input value) {
+        return Optional.ofNullable(classificationOrNull(value));
+    }
+
+    @Override
+    public Classification classificationOrNull(Input value) {
+        long word = match(value);
+        return word == 0L ? null : classifications[Long.numberOfTrailingZeros(word)];
+    }
+
+    @Override
+    public void classifyAll(Input[] inputs, Classification[] out) {
+        checkBatch(inputs.length, out.length);
+        for (int i = 0; i < inputs.length; ++i) {
+            out[i] = classificationOrNull(inputs[i]);
+        }
+    }
+
+    @Override
+    public void matchCounts(Input[] inputs, int[] out) {
+        checkBatch(inputs.length, out.length);
+        for (int i = 0; i < inputs.length; ++i) {
+            out[i] = matchCount(inputs[i]);
+        }
+    }
+
+    @Override
+    public void forEachClassification(Input value, MatchContext context, Consumer<Classification> consumer) {
+        checkOwner(context);
+        forEachClassification(value, consumer);
+    }
+
+    @Override
+    public int matchCount(Input value, MatchContext context) {
+        checkOwner(context);
+        return matchCount(value);
+    }
+
+    @Override
+    public Optional<Classification> classification(Input value, MatchContext context) {
+        checkOwner(context);
+        return classification(value);
+    }
+
+    @Override
+    public Classification classificationOrNull(Input value, MatchContext context) {
+        checkOwner(context);
+        return classificationOrNull(value);
+    }
+
+    @Override
+    public void classifyAll(Input[] inputs, Classification[] out, MatchContext context) {
+        checkOwner(context);
+        classifyAll(inputs, out);
+    }
+
+    @Override
+    public void matchCounts(Input[] inputs, int[] out, MatchContext context) {
+        checkOwner(context);
+        matchCounts(inputs, out);
+    }
+
+    long match(Input value) {
+        long word = mask;
+        for (var matcher : matchers) {
+            word &= matcher.matchWord(value, store);
+            if (word == 0L) {
+                break;
+            }
+        }
+        return word;
+    }
+
+    private void checkOwner(MatchContext context) {
+        if (context.owner != this) {
+            throw new IllegalArgumentException("The context was not created by this classifier");
+        }
+    }
+
+    private static void checkBatch(int inputs, int outputs) {
+        if (outputs < inputs) {
+            throw new IllegalArgumentException("Output length " + outputs + " is less than input length " + inputs);
+        }
+    }
+}
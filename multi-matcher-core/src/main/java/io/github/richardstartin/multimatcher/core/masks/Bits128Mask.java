@@ -0,0 +1,320 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A mask of up to 128 bits held in 2 fields rather than an array, so
+ * every operation is a fixed sequence of word operations without loops or
+ * bounds checks. Its store keeps the words of every mask in one flat array.
+ */
+public class Bits128Mask implements Mask<Bits128Mask> {
+
+    public static final int MAX_CAPACITY = 128;
+    private static final int WORDS = 2;
+
+    private long w0;
+    private long w1;
+
+    Bits128Mask() {
+    }
+
+    private Bits128Mask(long w0, long w1) {
+        this.w0 = w0;
+        this.w1 = w1;
+    }
+
+    public static MaskStore<Bits128Mask> store() {
+        return new Store();
+    }
+
+    @Override
+    public void add(int id) {
+        long bit = 1L << id;
+        switch (id >>> 6) {
+            case 0:
+                w0 |= bit;
+                break;
+            case 1:
+                w1 |= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long bit = ~(1L << id);
+        switch (id >>> 6) {
+            case 0:
+                w0 &= bit;
+                break;
+            case 1:
+                w1 &= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public Bits128Mask inPlaceAndNot(Bits128Mask other) {
+        w0 &= ~other.w0;
+        w1 &= ~other.w1;
+        return this;
+    }
+
+    @Override
+    public Bits128Mask inPlaceAnd(Bits128Mask other) {
+        w0 &= other.w0;
+        w1 &= other.w1;
+        return this;
+    }
+
+    @Override
+    public Bits128Mask inPlaceOr(Bits128Mask other) {
+        w0 |= other.w0;
+        w1 |= other.w1;
+        return this;
+    }
+
+    @Override
+    public Bits128Mask inPlaceNot(int max) {
+        w0 = ~w0 & FixedWidthMasks.prefix(max, 0);
+        w1 = ~w1 & FixedWidthMasks.prefix(max, 1);
+        return this;
+    }
+
+    @Override
+    public Bits128Mask resetTo(Mask<Bits128Mask> other) {
+        var that = other.unwrap();
+        w0 = that.w0;
+        w1 = that.w1;
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        w0 = 0L;
+        w1 = 0L;
+    }
+
+    @Override
+    public Bits128Mask unwrap() {
+        return this;
+    }
+
+    @Override
+    public IntStream stream() {
+        var builder = IntStream.builder();
+        forEach(builder);
+        return builder.build();
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        FixedWidthMasks.forEach(w0, 0, consumer);
+        FixedWidthMasks.forEach(w1, 1, consumer);
+    }
+
+    @Override
+    public int first() {
+        if (w0 != 0L) {
+            return 0 + Long.numberOfTrailingZeros(w0);
+        }
+        if (w1 != 0L) {
+            return 64 + Long.numberOfTrailingZeros(w1);
+        }
+        return -1;
+    }
+
+    @Override
+    public Bits128Mask clone() {
+        return new Bits128Mask(w0, w1);
+    }
+
+    @Override
+    public void optimise() {
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (w0 | w1) == 0L;
+    }
+
+    @Override
+    public int cardinality() {
+        return Long.bitCount(w0) + Long.bitCount(w1);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return WORDS * Long.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Bits128Mask that = (Bits128Mask) o;
+        return w0 == that.w0 && w1 == that.w1;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new long[]{w0, w1});
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(stream().toArray());
+    }
+
+    public static final class Store implements MaskStore<Bits128Mask> {
+
+        private long[] words = new long[4 * WORDS];
+        private int maskId = 0;
+
+        private Store() {
+        }
+
+        @Override
+        public Bits128Mask newMask() {
+            return new Bits128Mask();
+        }
+
+        @Override
+        public int newMaskId() {
+            ensureCapacity(++maskId);
+            return maskId;
+        }
+
+        @Override
+        public int storeMask(Bits128Mask mask) {
+            ensureCapacity(++maskId);
+            int offset = maskId * WORDS;
+            words[offset + 0] = mask.w0;
+            words[offset + 1] = mask.w1;
+            return maskId;
+        }
+
+        @Override
+        public Bits128Mask getMask(int id) {
+            int offset = id * WORDS;
+            return new Bits128Mask(words[offset + 0], words[offset + 1]);
+        }
+
+        @Override
+        public void add(int id, int bit) {
+            words[id * WORDS + (bit >>> 6)] |= (1L << bit);
+        }
+
+        @Override
+        public void remove(int id, int bit) {
+            if (id != 0) {
+                words[id * WORDS + (bit >>> 6)] &= ~(1L << bit);
+            }
+        }
+
+        @Override
+        public void or(int from, int into) {
+            int source = from * WORDS;
+            int target = into * WORDS;
+            words[target + 0] |= words[source + 0];
+            words[target + 1] |= words[source + 1];
+        }
+
+        @Override
+        public void copyInto(Bits128Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 = words[offset + 0];
+            mask.w1 = words[offset + 1];
+        }
+
+        @Override
+        public void orInto(Bits128Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 |= words[offset + 0];
+            mask.w1 |= words[offset + 1];
+        }
+
+        @Override
+        public void andInto(Bits128Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 &= words[offset + 0];
+            mask.w1 &= words[offset + 1];
+        }
+
+        @Override
+        public void intersect(Bits128Mask mask, Bits128Mask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long w0 = mask.w0;
+            long w1 = mask.w1;
+            int start = 0;
+            for (int g = 0; g < groups && (w0 | w1) != 0L; ++g) {
+                long u0 = 0L;
+                long u1 = 0L;
+                for (int i = start; i < ends[g]; ++i) {
+                    int offset = ids[i] * WORDS;
+                    u0 |= words[offset + 0];
+                    u1 |= words[offset + 1];
+                }
+                w0 &= u0;
+                w1 &= u1;
+                start = ends[g];
+            }
+            mask.w0 = w0;
+            mask.w1 = w1;
+        }
+
+        @Override
+        public Bits128Mask contiguous(int max) {
+            if (max > MAX_CAPACITY) {
+                throw new IllegalArgumentException();
+            }
+            return new Bits128Mask(FixedWidthMasks.prefix(max, 0), FixedWidthMasks.prefix(max, 1));
+        }
+
+        @Override
+        public int newContiguousMaskId(int max) {
+            return storeMask(contiguous(max));
+        }
+
+        @Override
+        public boolean isEmpty(int id) {
+            int offset = id * WORDS;
+            return (words[offset + 0] | words[offset + 1]) == 0L;
+        }
+
+        @Override
+        public Bits128Mask of(int... values) {
+            var mask = new Bits128Mask();
+            for (int value : values) {
+                mask.add(value);
+            }
+            return mask;
+        }
+
+        @Override
+        public double averageSelectivity(int[] ids, int min, int max) {
+            double selectivity = 0f;
+            for (int i = min; i < max; ++i) {
+                int offset = ids[i] * WORDS;
+                for (int j = 0; j < WORDS; ++j) {
+                    selectivity += Long.bitCount(words[offset + j]);
+                }
+            }
+            return selectivity / ids.length;
+        }
+
+        private void ensureCapacity(int maskId) {
+            if (maskId * WORDS >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A mask of up to 256 bits held in 4 fields rather than an array, so
+ * every operation is a fixed sequence of word operations without loops or
+ * bounds checks. Its store keeps the words of every mask in one flat array.
+ */
+public class Bits256Mask implements Mask<Bits256Mask> {
+
+    public static final int MAX_CAPACITY = 256;
+    private static final int WORDS = 4;
+
+    private long w0;
+    private long w1;
+    private long w2;
+    private long w3;
+
+    Bits256Mask() {
+    }
+
+    private Bits256Mask(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    public static MaskStore<Bits256Mask> store() {
+        return new Store();
+    }
+
+    @Override
+    public void add(int id) {
+        long bit = 1L << id;
+        switch (id >>> 6) {
+            case 0:
+                w0 |= bit;
+                break;
+            case 1:
+                w1 |= bit;
+                break;
+            case 2:
+                w2 |= bit;
+                break;
+            case 3:
+                w3 |= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long bit = ~(1L << id);
+        switch (id >>> 6) {
+            case 0:
+                w0 &= bit;
+                break;
+            case 1:
+                w1 &= bit;
+                break;
+            case 2:
+                w2 &= bit;
+                break;
+            case 3:
+                w3 &= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public Bits256Mask inPlaceAndNot(Bits256Mask other) {
+        w0 &= ~other.w0;
+        w1 &= ~other.w1;
+        w2 &= ~other.w2;
+        w3 &= ~other.w3;
+        return this;
+    }
+
+    @Override
+    public Bits256Mask inPlaceAnd(Bits256Mask other) {
+        w0 &= other.w0;
+        w1 &= other.w1;
+        w2 &= other.w2;
+        w3 &= other.w3;
+        return this;
+    }
+
+    @Override
+    public Bits256Mask inPlaceOr(Bits256Mask other) {
+        w0 |= other.w0;
+        w1 |= other.w1;
+        w2 |= other.w2;
+        w3 |= other.w3;
+        return this;
+    }
+
+    @Override
+    public Bits256Mask inPlaceNot(int max) {
+        w0 = ~w0 & FixedWidthMasks.prefix(max, 0);
+        w1 = ~w1 & FixedWidthMasks.prefix(max, 1);
+        w2 = ~w2 & FixedWidthMasks.prefix(max, 2);
+        w3 = ~w3 & FixedWidthMasks.prefix(max, 3);
+        return this;
+    }
+
+    @Override
+    public Bits256Mask resetTo(Mask<Bits256Mask> other) {
+        var that = other.unwrap();
+        w0 = that.w0;
+        w1 = that.w1;
+        w2 = that.w2;
+        w3 = that.w3;
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        w0 = 0L;
+        w1 = 0L;
+        w2 = 0L;
+        w3 = 0L;
+    }
+
+    @Override
+    public Bits256Mask unwrap() {
+        return this;
+    }
+
+    @Override
+    public IntStream stream() {
+        var builder = IntStream.builder();
+        forEach(builder);
+        return builder.build();
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        FixedWidthMasks.forEach(w0, 0, consumer);
+        FixedWidthMasks.forEach(w1, 1, consumer);
+        FixedWidthMasks.forEach(w2, 2, consumer);
+        FixedWidthMasks.forEach(w3, 3, consumer);
+    }
+
+    @Override
+    public int first() {
+        if (w0 != 0L) {
+            return 0 + Long.numberOfTrailingZeros(w0);
+        }
+        if (w1 != 0L) {
+            return 64 + Long.numberOfTrailingZeros(w1);
+        }
+        if (w2 != 0L) {
+            return 128 + Long.numberOfTrailingZeros(w2);
+        }
+        if (w3 != 0L) {
+            return 192 + Long.numberOfTrailingZeros(w3);
+        }
+        return -1;
+    }
+
+    @Override
+    public Bits256Mask clone() {
+        return new Bits256Mask(w0, w1, w2, w3);
+    }
+
+    @Override
+    public void optimise() {
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (w0 | w1 | w2 | w3) == 0L;
+    }
+
+    @Override
+    public int cardinality() {
+        return Long.bitCount(w0) + Long.bitCount(w1) + Long.bitCount(w2) + Long.bitCount(w3);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return WORDS * Long.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Bits256Mask that = (Bits256Mask) o;
+        return w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new long[]{w0, w1, w2, w3});
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(stream().toArray());
+    }
+
+    public static final class Store implements MaskStore<Bits256Mask> {
+
+        private long[] words = new long[4 * WORDS];
+        private int maskId = 0;
+
+        private Store() {
+        }
+
+        @Override
+        public Bits256Mask newMask() {
+            return new Bits256Mask();
+        }
+
+        @Override
+        public int newMaskId() {
+            ensureCapacity(++maskId);
+            return maskId;
+        }
+
+        @Override
+        public int storeMask(Bits256Mask mask) {
+            ensureCapacity(++maskId);
+            int offset = maskId * WORDS;
+            words[offset + 0] = mask.w0;
+            words[offset + 1] = mask.w1;
+            words[offset + 2] = mask.w2;
+            words[offset + 3] = mask.w3;
+            return maskId;
+        }
+
+        @Override
+        public Bits256Mask getMask(int id) {
+            int offset = id * WORDS;
+            return new Bits256Mask(words[offset + 0], words[offset + 1], words[offset + 2], words[offset + 3]);
+        }
+
+        @Override
+        public void add(int id, int bit) {
+            words[id * WORDS + (bit >>> 6)] |= (1L << bit);
+        }
+
+        @Override
+        public void remove(int id, int bit) {
+            if (id != 0) {
+                words[id * WORDS + (bit >>> 6)] &= ~(1L << bit);
+            }
+        }
+
+        @Override
+        public void or(int from, int into) {
+            int source = from * WORDS;
+            int target = into * WORDS;
+            words[target + 0] |= words[source + 0];
+            words[target + 1] |= words[source + 1];
+            words[target + 2] |= words[source + 2];
+            words[target + 3] |= words[source + 3];
+        }
+
+        @Override
+        public void copyInto(Bits256Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 = words[offset + 0];
+            mask.w1 = words[offset + 1];
+            mask.w2 = words[offset + 2];
+            mask.w3 = words[offset + 3];
+        }
+
+        @Override
+        public void orInto(Bits256Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 |= words[offset + 0];
+            mask.w1 |= words[offset + 1];
+            mask.w2 |= words[offset + 2];
+            mask.w3 |= words[offset + 3];
+        }
+
+        @Override
+        public void andInto(Bits256Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 &= words[offset + 0];
+            mask.w1 &= words[offset + 1];
+            mask.w2 &= words[offset + 2];
+            mask.w3 &= words[offset + 3];
+        }
+
+        @Override
+        public void intersect(Bits256Mask mask, Bits256Mask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long w0 = mask.w0;
+            long w1 = mask.w1;
+            long w2 = mask.w2;
+            long w3 = mask.w3;
+            int start = 0;
+            for (int g = 0; g < groups && (w0 | w1 | w2 | w3) != 0L; ++g) {
+                long u0 = 0L;
+                long u1 = 0L;
+                long u2 = 0L;
+                long u3 = 0L;
+                for (int i = start; i < ends[g]; ++i) {
+                    int offset = ids[i] * WORDS;
+                    u0 |= words[offset + 0];
+                    u1 |= words[offset + 1];
+                    u2 |= words[offset + 2];
+                    u3 |= words[offset + 3];
+                }
+                w0 &= u0;
+                w1 &= u1;
+                w2 &= u2;
+                w3 &= u3;
+                start = ends[g];
+            }
+            mask.w0 = w0;
+            mask.w1 = w1;
+            mask.w2 = w2;
+            mask.w3 = w3;
+        }
+
+        @Override
+        public Bits256Mask contiguous(int max) {
+            if (max > MAX_CAPACITY) {
+                throw new IllegalArgumentException();
+            }
+            return new Bits256Mask(FixedWidthMasks.prefix(max, 0), FixedWidthMasks.prefix(max, 1), FixedWidthMasks.prefix(max, 2), FixedWidthMasks.prefix(max, 3));
+        }
+
+        @Override
+        public int newContiguousMaskId(int max) {
+            return storeMask(contiguous(max));
+        }
+
+        @Override
+        public boolean isEmpty(int id) {
+            int offset = id * WORDS;
+            return (words[offset + 0] | words[offset + 1] | words[offset + 2] | words[offset + 3]) == 0L;
+        }
+
+        @Override
+        public Bits256Mask of(int... values) {
+            var mask = new Bits256Mask();
+            for (int value : values) {
+                mask.add(value);
+            }
+            return mask;
+        }
+
+        @Override
+        public double averageSelectivity(int[] ids, int min, int max) {
+            double selectivity = 0f;
+            for (int i = min; i < max; ++i) {
+                int offset = ids[i] * WORDS;
+                for (int j = 0; j < WORDS; ++j) {
+                    selectivity += Long.bitCount(words[offset + j]);
+                }
+            }
+            return selectivity / ids.length;
+        }
+
+        private void ensureCapacity(int maskId) {
+            if (maskId * WORDS >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A mask of up to 512 bits held in 8 fields rather than an array, so
+ * every operation is a fixed sequence of word operations without loops or
+ * bounds checks. Its store keeps the words of every mask in one flat array.
+ */
+public class Bits512Mask implements Mask<Bits512Mask> {
+
+    public static final int MAX_CAPACITY = 512;
+    private static final int WORDS = 8;
+
+    private long w0;
+    private long w1;
+    private long w2;
+    private long w3;
+    private long w4;
+    private long w5;
+    private long w6;
+    private long w7;
+
+    Bits512Mask() {
+    }
+
+    private Bits512Mask(long w0, long w1, long w2, long w3, long w4, long w5, long w6, long w7) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        this.w4 = w4;
+        this.w5 = w5;
+        this.w6 = w6;
+        this.w7 = w7;
+    }
+
+    public static MaskStore<Bits512Mask> store() {
+        return new Store();
+    }
+
+    @Override
+    public void add(int id) {
+        long bit = 1L << id;
+        switch (id >>> 6) {
+            case 0:
+                w0 |= bit;
+                break;
+            case 1:
+                w1 |= bit;
+                break;
+            case 2:
+                w2 |= bit;
+                break;
+            case 3:
+                w3 |= bit;
+                break;
+            case 4:
+                w4 |= bit;
+                break;
+            case 5:
+                w5 |= bit;
+                break;
+            case 6:
+                w6 |= bit;
+                break;
+            case 7:
+                w7 |= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long bit = ~(1L << id);
+        switch (id >>> 6) {
+            case 0:
+                w0 &= bit;
+                break;
+            case 1:
+                w1 &= bit;
+                break;
+            case 2:
+                w2 &= bit;
+                break;
+            case 3:
+                w3 &= bit;
+                break;
+            case 4:
+                w4 &= bit;
+                break;
+            case 5:
+                w5 &= bit;
+                break;
+            case 6:
+                w6 &= bit;
+                break;
+            case 7:
+                w7 &= bit;
+                break;
+            default:
+                throw new IndexOutOfBoundsException(id);
+        }
+    }
+
+    @Override
+    public Bits512Mask inPlaceAndNot(Bits512Mask other) {
+        w0 &= ~other.w0;
+        w1 &= ~other.w1;
+        w2 &= ~other.w2;
+        w3 &= ~other.w3;
+        w4 &= ~other.w4;
+        w5 &= ~other.w5;
+        w6 &= ~other.w6;
+        w7 &= ~other.w7;
+        return this;
+    }
+
+    @Override
+    public Bits512Mask inPlaceAnd(Bits512Mask other) {
+        w0 &= other.w0;
+        w1 &= other.w1;
+        w2 &= other.w2;
+        w3 &= other.w3;
+        w4 &= other.w4;
+        w5 &= other.w5;
+        w6 &= other.w6;
+        w7 &= other.w7;
+        return this;
+    }
+
+    @Override
+    public Bits512Mask inPlaceOr(Bits512Mask other) {
+        w0 |= other.w0;
+        w1 |= other.w1;
+        w2 |= other.w2;
+        w3 |= other.w3;
+        w4 |= other.w4;
+        w5 |= other.w5;
+        w6 |= other.w6;
+        w7 |= other.w7;
+        return this;
+    }
+
+    @Override
+    public Bits512Mask inPlaceNot(int max) {
+        w0 = ~w0 & FixedWidthMasks.prefix(max, 0);
+        w1 = ~w1 & FixedWidthMasks.prefix(max, 1);
+        w2 = ~w2 & FixedWidthMasks.prefix(max, 2);
+        w3 = ~w3 & FixedWidthMasks.prefix(max, 3);
+        w4 = ~w4 & FixedWidthMasks.prefix(max, 4);
+        w5 = ~w5 & FixedWidthMasks.prefix(max, 5);
+        w6 = ~w6 & FixedWidthMasks.prefix(max, 6);
+        w7 = ~w7 & FixedWidthMasks.prefix(max, 7);
+        return this;
+    }
+
+    @Override
+    public Bits512Mask resetTo(Mask<Bits512Mask> other) {
+        var that = other.unwrap();
+        w0 = that.w0;
+        w1 = that.w1;
+        w2 = that.w2;
+        w3 = that.w3;
+        w4 = that.w4;
+        w5 = that.w5;
+        w6 = that.w6;
+        w7 = that.w7;
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        w0 = 0L;
+        w1 = 0L;
+        w2 = 0L;
+        w3 = 0L;
+        w4 = 0L;
+        w5 = 0L;
+        w6 = 0L;
+        w7 = 0L;
+    }
+
+    @Override
+    public Bits512Mask unwrap() {
+        return this;
+    }
+
+    @Override
+    public IntStream stream() {
+        var builder = IntStream.builder();
+        forEach(builder);
+        return builder.build();
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        FixedWidthMasks.forEach(w0, 0, consumer);
+        FixedWidthMasks.forEach(w1, 1, consumer);
+        FixedWidthMasks.forEach(w2, 2, consumer);
+        FixedWidthMasks.forEach(w3, 3, consumer);
+        FixedWidthMasks.forEach(w4, 4, consumer);
+        FixedWidthMasks.forEach(w5, 5, consumer);
+        FixedWidthMasks.forEach(w6, 6, consumer);
+        FixedWidthMasks.forEach(w7, 7, consumer);
+    }
+
+    @Override
+    public int first() {
+        if (w0 != 0L) {
+            return 0 + Long.numberOfTrailingZeros(w0);
+        }
+        if (w1 != 0L) {
+            return 64 + Long.numberOfTrailingZeros(w1);
+        }
+        if (w2 != 0L) {
+            return 128 + Long.numberOfTrailingZeros(w2);
+        }
+        if (w3 != 0L) {
+            return 192 + Long.numberOfTrailingZeros(w3);
+        }
+        if (w4 != 0L) {
+            return 256 + Long.numberOfTrailingZeros(w4);
+        }
+        if (w5 != 0L) {
+            return 320 + Long.numberOfTrailingZeros(w5);
+        }
+        if (w6 != 0L) {
+            return 384 + Long.numberOfTrailingZeros(w6);
+        }
+        if (w7 != 0L) {
+            return 448 + Long.numberOfTrailingZeros(w7);
+        }
+        return -1;
+    }
+
+    @Override
+    public Bits512Mask clone() {
+        return new Bits512Mask(w0, w1, w2, w3, w4, w5, w6, w7);
+    }
+
+    @Override
+    public void optimise() {
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (w0 | w1 | w2 | w3 | w4 | w5 | w6 | w7) == 0L;
+    }
+
+    @Override
+    public int cardinality() {
+        return Long.bitCount(w0) + Long.bitCount(w1) + Long.bitCount(w2) + Long.bitCount(w3) + Long.bitCount(w4) + Long.bitCount(w5) + Long.bitCount(w6) + Long.bitCount(w7);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return WORDS * Long.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Bits512Mask that = (Bits512Mask) o;
+        return w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3 && w4 == that.w4 && w5 == that.w5 && w6 == that.w6 && w7 == that.w7;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new long[]{w0, w1, w2, w3, w4, w5, w6, w7});
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(stream().toArray());
+    }
+
+    public static final class Store implements MaskStore<Bits512Mask> {
+
+        private long[] words = new long[4 * WORDS];
+        private int maskId = 0;
+
+        private Store() {
+        }
+
+        @Override
+        public Bits512Mask newMask() {
+            return new Bits512Mask();
+        }
+
+        @Override
+        public int newMaskId() {
+            ensureCapacity(++maskId);
+            return maskId;
+        }
+
+        @Override
+        public int storeMask(Bits512Mask mask) {
+            ensureCapacity(++maskId);
+            int offset = maskId * WORDS;
+            words[offset + 0] = mask.w0;
+            words[offset + 1] = mask.w1;
+            words[offset + 2] = mask.w2;
+            words[offset + 3] = mask.w3;
+            words[offset + 4] = mask.w4;
+            words[offset + 5] = mask.w5;
+            words[offset + 6] = mask.w6;
+            words[offset + 7] = mask.w7;
+            return maskId;
+        }
+
+        @Override
+        public Bits512Mask getMask(int id) {
+            int offset = id * WORDS;
+            return new Bits512Mask(words[offset + 0], words[offset + 1], words[offset + 2], words[offset + 3], words[offset + 4], words[offset + 5], words[offset + 6], words[offset + 7]);
+        }
+
+        @Override
+        public void add(int id, int bit) {
+            words[id * WORDS + (bit >>> 6)] |= (1L << bit);
+        }
+
+        @Override
+        public void remove(int id, int bit) {
+            if (id != 0) {
+                words[id * WORDS + (bit >>> 6)] &= ~(1L << bit);
+            }
+        }
+
+        @Override
+        public void or(int from, int into) {
+            int source = from * WORDS;
+            int target = into * WORDS;
+            words[target + 0] |= words[source + 0];
+            words[target + 1] |= words[source + 1];
+            words[target + 2] |= words[source + 2];
+            words[target + 3] |= words[source + 3];
+            words[target + 4] |= words[source + 4];
+            words[target + 5] |= words[source + 5];
+            words[target + 6] |= words[source + 6];
+            words[target + 7] |= words[source + 7];
+        }
+
+        @Override
+        public void copyInto(Bits512Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 = words[offset + 0];
+            mask.w1 = words[offset + 1];
+            mask.w2 = words[offset + 2];
+            mask.w3 = words[offset + 3];
+            mask.w4 = words[offset + 4];
+            mask.w5 = words[offset + 5];
+            mask.w6 = words[offset + 6];
+            mask.w7 = words[offset + 7];
+        }
+
+        @Override
+        public void orInto(Bits512Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 |= words[offset + 0];
+            mask.w1 |= words[offset + 1];
+            mask.w2 |= words[offset + 2];
+            mask.w3 |= words[offset + 3];
+            mask.w4 |= words[offset + 4];
+            mask.w5 |= words[offset + 5];
+            mask.w6 |= words[offset + 6];
+            mask.w7 |= words[offset + 7];
+        }
+
+        @Override
+        public void andInto(Bits512Mask mask, int id) {
+            int offset = id * WORDS;
+            mask.w0 &= words[offset + 0];
+            mask.w1 &= words[offset + 1];
+            mask.w2 &= words[offset + 2];
+            mask.w3 &= words[offset + 3];
+            mask.w4 &= words[offset + 4];
+            mask.w5 &= words[offset + 5];
+            mask.w6 &= words[offset + 6];
+            mask.w7 &= words[offset + 7];
+        }
+
+        @Override
+        public void intersect(Bits512Mask mask, Bits512Mask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long w0 = mask.w0;
+            long w1 = mask.w1;
+            long w2 = mask.w2;
+            long w3 = mask.w3;
+            long w4 = mask.w4;
+            long w5 = mask.w5;
+            long w6 = mask.w6;
+            long w7 = mask.w7;
+            int start = 0;
+            for (int g = 0; g < groups && (w0 | w1 | w2 | w3 | w4 | w5 | w6 | w7) != 0L; ++g) {
+                long u0 = 0L;
+                long u1 = 0L;
+                long u2 = 0L;
+                long u3 = 0L;
+                long u4 = 0L;
+                long u5 = 0L;
+                long u6 = 0L;
+                long u7 = 0L;
+                for (int i = start; i < ends[g]; ++i) {
+                    int offset = ids[i] * WORDS;
+                    u0 |= words[offset + 0];
+                    u1 |= words[offset + 1];
+                    u2 |= words[offset + 2];
+                    u3 |= words[offset + 3];
+                    u4 |= words[offset + 4];
+                    u5 |= words[offset + 5];
+                    u6 |= words[offset + 6];
+                    u7 |= words[offset + 7];
+                }
+                w0 &= u0;
+                w1 &= u1;
+                w2 &= u2;
+                w3 &= u3;
+                w4 &= u4;
+                w5 &= u5;
+                w6 &= u6;
+                w7 &= u7;
+                start = ends[g];
+            }
+            mask.w0 = w0;
+            mask.w1 = w1;
+            mask.w2 = w2;
+            mask.w3 = w3;
+            mask.w4 = w4;
+            mask.w5 = w5;
+            mask.w6 = w6;
+            mask.w7 = w7;
+        }
+
+        @Override
+        public Bits512Mask contiguous(int max) {
+            if (max > MAX_CAPACITY) {
+                throw new IllegalArgumentException();
+            }
+            return new Bits512Mask(FixedWidthMasks.prefix(max, 0), FixedWidthMasks.prefix(max, 1), FixedWidthMasks.prefix(max, 2), FixedWidthMasks.prefix(max, 3), FixedWidthMasks.prefix(max, 4), FixedWidthMasks.prefix(max, 5), FixedWidthMasks.prefix(max, 6), FixedWidthMasks.prefix(max, 7));
+        }
+
+        @Override
+        public int newContiguousMaskId(int max) {
+            return storeMask(contiguous(max));
+        }
+
+        @Override
+        public boolean isEmpty(int id) {
+            int offset = id * WORDS;
+            return (words[offset + 0] | words[offset + 1] | words[offset + 2] | words[offset + 3] | words[offset + 4] | words[offset + 5] | words[offset + 6] | words[offset + 7]) == 0L;
+        }
+
+        @Override
+        public Bits512Mask of(int... values) {
+            var mask = new Bits512Mask();
+            for (int value : values) {
+                mask.add(value);
+            }
+            return mask;
+        }
+
+        @Override
+        public double averageSelectivity(int[] ids, int min, int max) {
+            double selectivity = 0f;
+            for (int i = min; i < max; ++i) {
+                int offset = ids[i] * WORDS;
+                for (int j = 0; j < WORDS; ++j) {
+                    selectivity += Long.bitCount(words[offset + j]);
+                }
+            }
+            return selectivity / ids.length;
+        }
+
+        private void ensureCapacity(int maskId) {
+            if (maskId * WORDS >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+/**
+ * The loops over words which {@link BitsetMask} and its store spend most of
+ * their time in. Each combines <code>length</code> words of a target array,
+ * from an offset, with as many words of a source array, from another offset.
+ * <p>
+ * This implementation relies on the JIT compiler to vectorise the loops. A
+ * version which uses the vector API explicitly replaces it on Java 17 and
+ * later, from a multi-release jar.
+ */
+final class BitsetKernels {
+
+    private BitsetKernels() {
+    }
+
+    static void and(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            target[targetOffset + i] &= source[sourceOffset + i];
+        }
+    }
+
+    static void or(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            target[targetOffset + i] |= source[sourceOffset + i];
+        }
+    }
+
+    static void andNot(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            target[targetOffset + i] &= ~source[sourceOffset + i];
+        }
+    }
+
+    /**
+     * Intersects the target with the source, and tests whether the result is empty.
+     *
+     * @return true if no words of the target are left with any bits
+     */
+    static boolean andIsEmpty(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        long any = 0L;
+        for (int i = 0; i < length; ++i) {
+            any |= (target[targetOffset + i] &= source[sourceOffset + i]);
+        }
+        return any == 0L;
+    }
+
+    /**
+     * @return whether the implementation uses the vector API
+     */
+    static boolean isVectorised() {
+        return false;
+    }
+}
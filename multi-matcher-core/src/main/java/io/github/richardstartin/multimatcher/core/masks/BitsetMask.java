@@ -10,6 +10,7 @@ import java.util.stream.IntStream;
 public class BitsetMask implements Mask<BitsetMask> {
 
     public static final int MAX_CAPACITY = 256 * 64;
+    private static final int BLOCK_WORDS = 8;
     private static final int UNKNOWN_EMPTY = -2;
     private static final int KNOWN_EMPTY = -1;
     private static final long[] EMPTY = new long[256];
@@ -56,9 +57,7 @@ public class BitsetMask implements Mask<BitsetMask> {
             this.firstNonEmptyWord = UNKNOWN_EMPTY;
             int start = Math.max(0, other.firstNonEmptyWord - 1);
             Arrays.fill(bitset, 0, start, 0L);
-            for (int i = start; i < bitset.length; ++i) {
-                bitset[i] &= other.bitset[i];
-            }
+            BitsetKernels.and(bitset, start, other.bitset, start, bitset.length - start);
         } else {
             Arrays.fill(bitset, 0);
             this.firstNonEmptyWord = KNOWN_EMPTY;
@@ -71,9 +70,7 @@ public class BitsetMask implements Mask<BitsetMask> {
         if (!other.isEmpty()) {
             int start = Math.max(0, firstNonEmptyWord - 1);
             Arrays.fill(bitset, 0, start, 0L);
-            for (int i = 0; i < bitset.length; ++i) {
-                bitset[i] &= ~other.bitset[i];
-            }
+            BitsetKernels.andNot(bitset, 0, other.bitset, 0, bitset.length);
             this.firstNonEmptyWord = UNKNOWN_EMPTY;
         }
         return this;
@@ -83,9 +80,7 @@ public class BitsetMask implements Mask<BitsetMask> {
     public BitsetMask inPlaceOr(BitsetMask other) {
         if (!other.isEmpty()) {
             int start = Math.max(0, other.firstNonEmptyWord - 1);
-            for (int i = start; i < bitset.length; ++i) {
-                bitset[i] |= other.bitset[i];
-            }
+            BitsetKernels.or(bitset, start, other.bitset, start, bitset.length - start);
             this.firstNonEmptyWord = firstNonEmptyWord == KNOWN_EMPTY
                 ? other.firstNonEmptyWord
                 : Math.min(firstNonEmptyWord, other.firstNonEmptyWord);
@@ -189,6 +184,11 @@ public class BitsetMask implements Mask<BitsetMask> {
         return computeCardinality();
     }
 
+    @Override
+    public long sizeInBytes() {
+        return null == bitset ? 0L : (long) bitset.length * Long.BYTES;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -228,20 +228,27 @@ public class BitsetMask implements Mask<BitsetMask> {
         return cardinality;
     }
 
+    /**
+     * Stores every mask in one contiguous arena, at an offset of its id times
+     * the number of words in a mask, rather than as an object per mask. The
+     * masks of each attribute are adjacent in memory, and the garbage collector
+     * has one array without references to trace rather than one per mask.
+     */
     public static final class Store implements MaskStore<BitsetMask> {
 
-        private static final BitsetMask EMPTY = new BitsetMask(null, KNOWN_EMPTY);
-
         private final int max;
-        private final ThreadLocal<BitsetMask> temp;
+        private final int stride;
 
-        private BitsetMask[] bitsets = new BitsetMask[4];
+        private long[] arena;
+        private int[] firstNonEmptyWords;
         private int maskId = 0;
 
         private Store(int max) {
             this.max = max;
-            this.temp = ThreadLocal.withInitial(this::newMask);
-            bitsets[0] = EMPTY;
+            this.stride = (max + 63) >>> 6;
+            this.arena = new long[4 * stride];
+            this.firstNonEmptyWords = new int[4];
+            firstNonEmptyWords[0] = KNOWN_EMPTY;
         }
 
         @Override
@@ -252,57 +259,145 @@ public class BitsetMask implements Mask<BitsetMask> {
         @Override
         public int newMaskId() {
             ensureCapacity(++maskId);
-            bitsets[maskId] = newMask();
+            firstNonEmptyWords[maskId] = KNOWN_EMPTY;
             return maskId;
         }
 
         @Override
         public int storeMask(BitsetMask mask) {
             ensureCapacity(++maskId);
-            bitsets[maskId] = mask;
+            System.arraycopy(mask.bitset, 0, arena, maskId * stride, stride);
+            firstNonEmptyWords[maskId] = UNKNOWN_EMPTY;
             return maskId;
         }
 
         @Override
         public BitsetMask getMask(int id) {
-            return bitsets[id & (bitsets.length - 1)];
+            int offset = id * stride;
+            return new BitsetMask(Arrays.copyOfRange(arena, offset, offset + stride), firstNonEmptyWords[id]);
         }
 
         @Override
         public void add(int id, int bit) {
-            bitsets[id & (bitsets.length - 1)].add(bit);
+            arena[id * stride + (bit >>> 6)] |= (1L << bit);
+            firstNonEmptyWords[id] = UNKNOWN_EMPTY;
         }
 
         @Override
         public void remove(int id, int bit) {
             if (id != 0) {
-                bitsets[id & (bitsets.length - 1)].remove(bit);
+                arena[id * stride + (bit >>> 6)] &= ~(1L << bit);
+                firstNonEmptyWords[id] = UNKNOWN_EMPTY;
             }
         }
 
         @Override
         public void or(int from, int into) {
-            bitsets[into & (bitsets.length - 1)].inPlaceOr(bitsets[from & (bitsets.length - 1)]);
+            int first = firstNonEmptyWord(from);
+            if (first != KNOWN_EMPTY) {
+                BitsetKernels.or(arena, into * stride + first, arena, from * stride + first, stride - first);
+                int existing = firstNonEmptyWords[into];
+                firstNonEmptyWords[into] = existing == UNKNOWN_EMPTY ? UNKNOWN_EMPTY
+                        : existing == KNOWN_EMPTY ? first : Math.min(existing, first);
+            }
         }
 
         @Override
         public void optimise(int id) {
-            bitsets[id & (bitsets.length - 1)].optimise();
+            firstNonEmptyWords[id] = UNKNOWN_EMPTY;
+            firstNonEmptyWord(id);
         }
 
         @Override
-        public BitsetMask getTemp(int copyAddress) {
-            return temp.get().resetTo(bitsets[copyAddress & (bitsets.length - 1)]);
+        public void copyInto(BitsetMask mask, int id) {
+            System.arraycopy(arena, id * stride, mask.bitset, 0, stride);
+            mask.firstNonEmptyWord = firstNonEmptyWords[id];
         }
 
         @Override
         public void orInto(BitsetMask mask, int id) {
-            mask.inPlaceOr(bitsets[id & (bitsets.length - 1)]);
+            int first = firstNonEmptyWord(id);
+            if (first != KNOWN_EMPTY) {
+                BitsetKernels.or(mask.bitset, first, arena, id * stride + first, stride - first);
+                mask.firstNonEmptyWord = mask.firstNonEmptyWord == KNOWN_EMPTY
+                        ? first
+                        : Math.min(mask.firstNonEmptyWord, first);
+            }
         }
 
         @Override
         public void andInto(BitsetMask mask, int id) {
-            mask.inPlaceAnd(bitsets[id & (bitsets.length - 1)]);
+            int first = firstNonEmptyWord(id);
+            long[] words = mask.bitset;
+            if (first != KNOWN_EMPTY) {
+                Arrays.fill(words, 0, first, 0L);
+                BitsetKernels.and(words, first, arena, id * stride + first, stride - first);
+                mask.firstNonEmptyWord = UNKNOWN_EMPTY;
+            } else {
+                Arrays.fill(words, 0L);
+                mask.firstNonEmptyWord = KNOWN_EMPTY;
+            }
+        }
+
+        @Override
+        public void intersect(BitsetMask mask, BitsetMask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long[] words = mask.bitset;
+            int firstNonEmptyWord = KNOWN_EMPTY;
+            for (int from = 0; from < words.length; from += BLOCK_WORDS) {
+                int to = Math.min(from + BLOCK_WORDS, words.length);
+                if (intersect(words, temp.bitset, ids, ends, groups, from, to)
+                        && firstNonEmptyWord == KNOWN_EMPTY) {
+                    firstNonEmptyWord = from + Arrays.mismatch(words, from, to, BitsetMask.EMPTY, from, to);
+                    if (firstOnly) {
+                        Arrays.fill(words, to, words.length, 0L);
+                        break;
+                    }
+                }
+            }
+            mask.firstNonEmptyWord = firstNonEmptyWord;
+        }
+
+        /*
+         * Intersects a block of words with every group, so the block stays in cache
+         * and the remaining groups are skipped as soon as the block is empty.
+         */
+        private boolean intersect(long[] words, long[] union, int[] ids, int[] ends, int groups, int from, int to) {
+            if (isEmpty(words, from, to)) {
+                return false;
+            }
+            int length = to - from;
+            int start = 0;
+            for (int g = 0; g < groups; ++g) {
+                int end = ends[g];
+                boolean empty;
+                if (end - start == 1) {
+                    int id = ids[start];
+                    if (0 == id) {
+                        Arrays.fill(words, from, to, 0L);
+                        return false;
+                    }
+                    empty = BitsetKernels.andIsEmpty(words, from, arena, id * stride + from, length);
+                } else {
+                    Arrays.fill(union, from, to, 0L);
+                    for (int j = start; j < end; ++j) {
+                        BitsetKernels.or(union, from, arena, ids[j] * stride + from, length);
+                    }
+                    empty = BitsetKernels.andIsEmpty(words, from, union, from, length);
+                }
+                if (empty) {
+                    return false;
+                }
+                start = end;
+            }
+            return true;
+        }
+
+        private static boolean isEmpty(long[] words, int from, int to) {
+            long any = 0L;
+            for (int i = from; i < to; ++i) {
+                any |= words[i];
+            }
+            return any == 0L;
         }
 
         @Override
@@ -315,14 +410,12 @@ public class BitsetMask implements Mask<BitsetMask> {
 
         @Override
         public int newContiguousMaskId(int max) {
-            ensureCapacity(++maskId);
-            bitsets[maskId] = contiguous(max);
-            return maskId;
+            return storeMask(contiguous(max));
         }
 
         @Override
         public boolean isEmpty(int id) {
-            return bitsets[id & (bitsets.length - 1)].isEmpty();
+            return firstNonEmptyWord(id) == KNOWN_EMPTY;
         }
 
         @Override
@@ -338,14 +431,29 @@ public class BitsetMask implements Mask<BitsetMask> {
         public double averageSelectivity(int[] ids, int min, int max) {
             double selectivity = 0f;
             for (int i = min; i < max; ++i) {
-                selectivity += bitsets[ids[i]].cardinality();
+                int offset = ids[i] * stride;
+                for (int j = 0; j < stride; ++j) {
+                    selectivity += Long.bitCount(arena[offset + j]);
+                }
             }
             return selectivity / ids.length;
         }
 
+        private int firstNonEmptyWord(int id) {
+            int first = firstNonEmptyWords[id];
+            if (first == UNKNOWN_EMPTY) {
+                int offset = id * stride;
+                first = firstNonEmptyWords[id] = Arrays.mismatch(arena, offset, offset + stride,
+                        BitsetMask.EMPTY, 0, stride);
+            }
+            return first;
+        }
+
         private void ensureCapacity(int maskId) {
-            if (maskId >= bitsets.length) {
-                bitsets = Arrays.copyOf(bitsets, bitsets.length * 2);
+            if (maskId >= firstNonEmptyWords.length) {
+                int capacity = firstNonEmptyWords.length * 2;
+                arena = Arrays.copyOf(arena, Math.multiplyExact(capacity, stride));
+                firstNonEmptyWords = Arrays.copyOf(firstNonEmptyWords, capacity);
             }
         }
     }
@@ -0,0 +1,291 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringArray;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Uncompressed working space for a {@link RoaringMask}. Stored bitmaps are
+ * combined into a reusable array of words: consolidated bitmaps are read
+ * straight from their serialized form, and mutable bitmaps by visiting
+ * their containers, so neither allocates.
+ */
+final class DenseBuffer implements IntConsumer {
+
+    private static final int SERIAL_COOKIE_NO_RUNCONTAINER = 12346;
+    private static final int SERIAL_COOKIE = 12347;
+    private static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+    private static final int WORDS_PER_CONTAINER = 1 << 10;
+
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int AND_NOT = 2;
+
+    long[] words;
+    private long[] chunk;
+    private long[] target;
+    private int base;
+
+    DenseBuffer(int wordCount) {
+        this.words = new long[wordCount];
+    }
+
+    DenseBuffer(long[] words) {
+        this.words = words;
+    }
+
+    void ensureCapacity(int wordCount) {
+        if (wordCount > words.length) {
+            words = Arrays.copyOf(words, wordCount);
+        }
+    }
+
+    void and(ImmutableRoaringBitmap bitmap, ByteBuffer serialized, int offset) {
+        apply(AND, bitmap, serialized, offset);
+    }
+
+    void or(ImmutableRoaringBitmap bitmap, ByteBuffer serialized, int offset) {
+        apply(OR, bitmap, serialized, offset);
+    }
+
+    void andNot(ImmutableRoaringBitmap bitmap, ByteBuffer serialized, int offset) {
+        apply(AND_NOT, bitmap, serialized, offset);
+    }
+
+    @Override
+    public void accept(int value) {
+        target[(value - base) >>> 6] |= (1L << value);
+    }
+
+    private void apply(int op, ImmutableRoaringBitmap bitmap, ByteBuffer serialized, int offset) {
+        if (bitmap instanceof MutableRoaringBitmap) {
+            apply(op, ((MutableRoaringBitmap) bitmap).getMappeableRoaringArray());
+        } else if (offset >= 0) {
+            apply(op, serialized, offset);
+        } else {
+            apply(op, bitmap.toMutableRoaringBitmap().getMappeableRoaringArray());
+        }
+    }
+
+    private void apply(int op, MutableRoaringArray containers) {
+        int size = containers.size();
+        if (op == OR) {
+            if (size > 0) {
+                ensureCapacity((containers.getKeyAtIndex(size - 1) + 1) * WORDS_PER_CONTAINER);
+            }
+            this.target = words;
+            this.base = 0;
+            for (int i = 0; i < size; ++i) {
+                containers.getContainerAtIndex(i).forEach(containers.getKeyAtIndex(i), this);
+            }
+        } else {
+            if (null == chunk) {
+                chunk = new long[WORDS_PER_CONTAINER];
+            }
+            this.target = chunk;
+            int nextWord = 0;
+            for (int i = 0; i < size && nextWord < words.length; ++i) {
+                char key = containers.getKeyAtIndex(i);
+                int start = key * WORDS_PER_CONTAINER;
+                if (op == AND) {
+                    clearWords(nextWord, start);
+                }
+                if (start < words.length) {
+                    Arrays.fill(chunk, 0L);
+                    this.base = key << 16;
+                    containers.getContainerAtIndex(i).forEach(key, this);
+                    int limit = Math.min(WORDS_PER_CONTAINER, words.length - start);
+                    if (op == AND) {
+                        for (int j = 0; j < limit; ++j) {
+                            words[start + j] &= chunk[j];
+                        }
+                    } else {
+                        for (int j = 0; j < limit; ++j) {
+                            words[start + j] &= ~chunk[j];
+                        }
+                    }
+                }
+                nextWord = start + WORDS_PER_CONTAINER;
+            }
+            if (op == AND) {
+                clearWords(nextWord, words.length);
+            }
+        }
+        this.target = null;
+    }
+
+    /*
+     * Reads the portable serialization format directly, see
+     * https://github.com/RoaringBitmap/RoaringFormatSpec
+     */
+    private void apply(int op, ByteBuffer serialized, int offset) {
+        int cookie = serialized.getInt(offset);
+        int size;
+        int runMarkers;
+        int header;
+        if ((cookie & 0xFFFF) == SERIAL_COOKIE) {
+            size = (cookie >>> 16) + 1;
+            runMarkers = offset + 4;
+            header = runMarkers + (size + 7) / 8;
+        } else if (cookie == SERIAL_COOKIE_NO_RUNCONTAINER) {
+            size = serialized.getInt(offset + 4);
+            runMarkers = -1;
+            header = offset + 8;
+        } else {
+            throw new IllegalStateException("Not a serialized bitmap at " + offset);
+        }
+        boolean hasOffsets = runMarkers < 0 || size >= 4;
+        int position = header + 4 * size + (hasOffsets ? 4 * size : 0);
+        if (op == OR && size > 0) {
+            ensureCapacity((serialized.getChar(header + 4 * (size - 1)) + 1) * WORDS_PER_CONTAINER);
+        }
+        int nextWord = 0;
+        for (int i = 0; i < size; ++i) {
+            int key = serialized.getChar(header + 4 * i);
+            int cardinality = serialized.getChar(header + 4 * i + 2) + 1;
+            int start = key * WORDS_PER_CONTAINER;
+            if (op != OR && start >= words.length) {
+                break;
+            }
+            if (op == AND) {
+                clearWords(nextWord, start);
+            }
+            int limit = Math.max(0, Math.min(WORDS_PER_CONTAINER, words.length - start));
+            if (runMarkers >= 0 && (serialized.get(runMarkers + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                int runs = serialized.getChar(position);
+                applyRuns(op, serialized, position + 2, runs, start, limit);
+                position += 2 + 4 * runs;
+            } else if (cardinality > ARRAY_CONTAINER_MAX_SIZE) {
+                applyBitmap(op, serialized, position, start, limit);
+                position += 8 * WORDS_PER_CONTAINER;
+            } else {
+                applyArray(op, serialized, position, cardinality, start, limit);
+                position += 2 * cardinality;
+            }
+            nextWord = start + WORDS_PER_CONTAINER;
+        }
+        if (op == AND) {
+            clearWords(nextWord, words.length);
+        }
+    }
+
+    private void applyBitmap(int op, ByteBuffer serialized, int position, int start, int limit) {
+        switch (op) {
+            case AND:
+                for (int j = 0; j < limit; ++j) {
+                    words[start + j] &= serialized.getLong(position + 8 * j);
+                }
+                break;
+            case OR:
+                for (int j = 0; j < limit; ++j) {
+                    words[start + j] |= serialized.getLong(position + 8 * j);
+                }
+                break;
+            default:
+                for (int j = 0; j < limit; ++j) {
+                    words[start + j] &= ~serialized.getLong(position + 8 * j);
+                }
+        }
+    }
+
+    private void applyArray(int op, ByteBuffer serialized, int position, int cardinality, int start, int limit) {
+        switch (op) {
+            case AND:
+                int nextWord = 0;
+                int i = 0;
+                while (i < cardinality) {
+                    int word = serialized.getChar(position + 2 * i) >>> 6;
+                    if (word >= limit) {
+                        break;
+                    }
+                    clearWords(start + nextWord, start + word);
+                    long mask = 0L;
+                    int value;
+                    while (i < cardinality && ((value = serialized.getChar(position + 2 * i)) >>> 6) == word) {
+                        mask |= (1L << value);
+                        ++i;
+                    }
+                    words[start + word] &= mask;
+                    nextWord = word + 1;
+                }
+                clearWords(start + nextWord, start + limit);
+                break;
+            case OR:
+                for (int j = 0; j < cardinality; ++j) {
+                    int value = serialized.getChar(position + 2 * j);
+                    words[start + (value >>> 6)] |= (1L << value);
+                }
+                break;
+            default:
+                for (int j = 0; j < cardinality; ++j) {
+                    int value = serialized.getChar(position + 2 * j);
+                    if ((value >>> 6) < limit) {
+                        words[start + (value >>> 6)] &= ~(1L << value);
+                    }
+                }
+        }
+    }
+
+    private void applyRuns(int op, ByteBuffer serialized, int position, int runs, int start, int limit) {
+        int base = start << 6;
+        int end = (start + limit) << 6;
+        int next = base;
+        for (int r = 0; r < runs; ++r) {
+            int from = base + serialized.getChar(position + 4 * r);
+            int to = Math.min(end, from + serialized.getChar(position + 4 * r + 2) + 1);
+            switch (op) {
+                case AND:
+                    clearBits(next, Math.min(from, end));
+                    next = to;
+                    break;
+                case OR:
+                    setBits(from, to);
+                    break;
+                default:
+                    clearBits(from, to);
+            }
+        }
+        if (op == AND) {
+            clearBits(next, end);
+        }
+    }
+
+    private void clearWords(int from, int to) {
+        int limit = Math.min(to, words.length);
+        if (from < limit) {
+            Arrays.fill(words, from, limit, 0L);
+        }
+    }
+
+    private void setBits(int from, int to) {
+        if (from < to) {
+            int first = from >>> 6;
+            int last = (to - 1) >>> 6;
+            if (first == last) {
+                words[first] |= (-1L << from) & (-1L >>> -to);
+            } else {
+                words[first] |= -1L << from;
+                Arrays.fill(words, first + 1, last, -1L);
+                words[last] |= -1L >>> -to;
+            }
+        }
+    }
+
+    private void clearBits(int from, int to) {
+        if (from < to) {
+            int first = from >>> 6;
+            int last = (to - 1) >>> 6;
+            if (first == last) {
+                words[first] &= ~((-1L << from) & (-1L >>> -to));
+            } else {
+                words[first] &= ~(-1L << from);
+                Arrays.fill(words, first + 1, last, 0L);
+                words[last] &= ~(-1L >>> -to);
+            }
+        }
+    }
+}
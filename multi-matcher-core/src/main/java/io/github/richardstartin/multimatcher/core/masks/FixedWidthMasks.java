@@ -0,0 +1,30 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Word level helpers shared by the masks which hold a fixed number of words
+ * in fields.
+ */
+final class FixedWidthMasks {
+
+    private FixedWidthMasks() {
+    }
+
+    /**
+     * @param max   the exclusive upper bound of a contiguous set starting at zero
+     * @param index the index of a word
+     * @return the bits of the contiguous set which fall in the word
+     */
+    static long prefix(int max, int index) {
+        int bits = max - index * Long.SIZE;
+        return bits >= Long.SIZE ? -1L : bits <= 0 ? 0L : (1L << bits) - 1;
+    }
+
+    static void forEach(long word, int index, IntConsumer consumer) {
+        while (word != 0) {
+            consumer.accept(index * Long.SIZE + Long.numberOfTrailingZeros(word));
+            word &= (word - 1);
+        }
+    }
+}
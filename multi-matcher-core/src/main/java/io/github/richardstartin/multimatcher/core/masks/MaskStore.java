@@ -26,12 +26,64 @@ public interface MaskStore<MaskType extends Mask<MaskType>> {
         
     }
 
-    MaskType getTemp(int copyAddress);
+    /**
+     * Whether each stored mask takes space in proportion to its contents
+     * rather than to the maximum number of rules, so that many sparse
+     * masks take less space than fewer dense masks.
+     *
+     * @return true if masks are compressed
+     */
+    default boolean isCompressed() {
+        return false;
+    }
+
+    /**
+     * Overwrites the contents of the mask with the contents of the stored mask
+     *
+     * @param mask the mask to overwrite
+     * @param id   the id of the stored mask to copy
+     */
+    void copyInto(MaskType mask, int id);
 
     void orInto(MaskType mask, int id);
 
     void andInto(MaskType mask, int id);
 
+    /**
+     * Intersects the mask with groups of stored masks, where each group stands
+     * for the union of its masks. Group <code>g</code> is made up of the ids
+     * from <code>ends[g - 1]</code> (or zero) up to <code>ends[g]</code>.
+     * Implementations may evaluate all groups a block at a time, and when only
+     * the first identity is needed may stop at the first non-empty block, in
+     * which case the result is a subset of the intersection which contains
+     * its lowest identity.
+     *
+     * @param mask      the mask to intersect
+     * @param temp      scratch space, the contents are undefined
+     * @param ids       the ids of the stored masks, grouped
+     * @param ends      the exclusive end of each group in <code>ids</code>
+     * @param groups    the number of groups
+     * @param firstOnly whether only the lowest identity of the result is needed
+     */
+    default void intersect(MaskType mask, MaskType temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+        int start = 0;
+        for (int g = 0; g < groups && !mask.isEmpty(); ++g) {
+            int end = ends[g];
+            if (start == end) {
+                mask.clear();
+            } else if (end - start == 1) {
+                andInto(mask, ids[start]);
+            } else {
+                copyInto(temp, ids[start]);
+                for (int i = start + 1; i < end; ++i) {
+                    orInto(temp, ids[i]);
+                }
+                mask.inPlaceAnd(temp);
+            }
+            start = end;
+        }
+    }
+
     /**
      * Create a contiguous mask starting at zero
      *
@@ -6,20 +6,38 @@ import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
 public class RoaringMask implements Mask<RoaringMask> {
 
+    private static final int UNKNOWN_EMPTY = -2;
+    private static final int KNOWN_EMPTY = -1;
+
     private final OptimisedStorage storage;
     private ImmutableRoaringBitmap bitmap;
+    // the position of the bitmap in the optimised storage, if it has been consolidated
+    private int position = -1;
+    // working masks are expanded into a dense buffer the first time they are reset,
+    // and are then combined with stored masks without allocating
+    private DenseBuffer dense;
+    private int firstNonEmptyWord = UNKNOWN_EMPTY;
+
     private RoaringMask(OptimisedStorage storage, MutableRoaringBitmap bitmap) {
         this.storage = storage;
         this.bitmap = bitmap;
     }
 
+    private RoaringMask(OptimisedStorage storage, DenseBuffer dense, int firstNonEmptyWord) {
+        this.storage = storage;
+        this.dense = dense;
+        this.firstNonEmptyWord = firstNonEmptyWord;
+    }
+
     public RoaringMask(OptimisedStorage storage) {
         this(storage, new MutableRoaringBitmap());
     }
@@ -30,47 +48,137 @@ public class RoaringMask implements Mask<RoaringMask> {
 
     @Override
     public void add(int id) {
-        ((MutableRoaringBitmap) bitmap).add(id);
+        if (null != dense) {
+            dense.ensureCapacity((id >>> 6) + 1);
+            dense.words[id >>> 6] |= (1L << id);
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        } else {
+            mutable().add(id);
+        }
     }
 
     @Override
     public void remove(int id) {
-        ((MutableRoaringBitmap) bitmap).remove(id);
+        if (null != dense) {
+            if ((id >>> 6) < dense.words.length) {
+                dense.words[id >>> 6] &= ~(1L << id);
+                this.firstNonEmptyWord = UNKNOWN_EMPTY;
+            }
+        } else {
+            mutable().remove(id);
+        }
     }
 
     @Override
     public RoaringMask inPlaceAndNot(RoaringMask other) {
-        ((MutableRoaringBitmap) bitmap).andNot(other.bitmap);
+        if (null != dense) {
+            if (null != other.dense) {
+                long[] words = dense.words;
+                long[] otherWords = other.dense.words;
+                int limit = Math.min(words.length, otherWords.length);
+                for (int i = 0; i < limit; ++i) {
+                    words[i] &= ~otherWords[i];
+                }
+            } else {
+                dense.andNot(other.bitmap, storage.serialized, other.position);
+            }
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        } else {
+            mutable().andNot(other.bitmap());
+        }
         return this;
     }
 
     @Override
     public RoaringMask inPlaceAnd(RoaringMask other) {
-        ((MutableRoaringBitmap) bitmap).and(other.bitmap);
+        if (null != dense) {
+            if (null != other.dense) {
+                long[] words = dense.words;
+                long[] otherWords = other.dense.words;
+                int limit = Math.min(words.length, otherWords.length);
+                for (int i = 0; i < limit; ++i) {
+                    words[i] &= otherWords[i];
+                }
+                Arrays.fill(words, limit, words.length, 0L);
+            } else {
+                dense.and(other.bitmap, storage.serialized, other.position);
+            }
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        } else {
+            mutable().and(other.bitmap());
+        }
         return this;
     }
 
     @Override
     public RoaringMask inPlaceOr(RoaringMask other) {
-        ((MutableRoaringBitmap) bitmap).or(other.bitmap);
+        if (null != dense) {
+            if (null != other.dense) {
+                long[] otherWords = other.dense.words;
+                dense.ensureCapacity(otherWords.length);
+                long[] words = dense.words;
+                for (int i = 0; i < otherWords.length; ++i) {
+                    words[i] |= otherWords[i];
+                }
+            } else {
+                dense.or(other.bitmap, storage.serialized, other.position);
+            }
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        } else {
+            mutable().or(other.bitmap());
+        }
         return this;
     }
 
     @Override
     public RoaringMask inPlaceNot(int max) {
-        ((MutableRoaringBitmap) bitmap).flip(0L, max);
+        if (null != dense) {
+            int wordIndex = max >>> 6;
+            dense.ensureCapacity(wordIndex + 1);
+            long[] words = dense.words;
+            for (int i = 0; i < wordIndex; ++i) {
+                words[i] = ~words[i];
+            }
+            words[wordIndex] ^= ((1L << max) - 1);
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        } else {
+            mutable().flip(0L, max);
+        }
         return this;
     }
 
     @Override
     public RoaringMask resetTo(Mask<RoaringMask> other) {
-        this.bitmap = other.unwrap().bitmap.toMutableRoaringBitmap();
+        var that = other.unwrap();
+        if (null == dense) {
+            this.dense = new DenseBuffer(0);
+            this.bitmap = null;
+            this.position = -1;
+        }
+        long[] words = dense.words;
+        if (null != that.dense) {
+            long[] otherWords = that.dense.words;
+            dense.ensureCapacity(otherWords.length);
+            words = dense.words;
+            System.arraycopy(otherWords, 0, words, 0, otherWords.length);
+            Arrays.fill(words, otherWords.length, words.length, 0L);
+            this.firstNonEmptyWord = that.firstNonEmptyWord;
+        } else {
+            Arrays.fill(words, 0L);
+            dense.or(that.bitmap, storage.serialized, that.position);
+            this.firstNonEmptyWord = UNKNOWN_EMPTY;
+        }
         return this;
     }
 
     @Override
     public void clear() {
-        ((MutableRoaringBitmap) bitmap).clear();
+        if (null != dense) {
+            Arrays.fill(dense.words, 0L);
+            this.firstNonEmptyWord = KNOWN_EMPTY;
+        } else {
+            mutable().clear();
+        }
     }
 
     @Override
@@ -80,6 +188,11 @@ public class RoaringMask implements Mask<RoaringMask> {
 
     @Override
     public IntStream stream() {
+        if (null != dense) {
+            IntStream.Builder builder = IntStream.builder();
+            forEach(builder);
+            return builder.build();
+        }
         IntIterator it = bitmap.getIntIterator();
         return IntStream.range(0, bitmap.getCardinality())
                 .map(i -> it.next());
@@ -87,54 +200,131 @@ public class RoaringMask implements Mask<RoaringMask> {
 
     @Override
     public void forEach(IntConsumer consumer) {
-        bitmap.forEach((org.roaringbitmap.IntConsumer) consumer::accept);
+        if (null != dense) {
+            if (!isEmpty()) {
+                long[] words = dense.words;
+                for (int wordIndex = firstNonEmptyWord; wordIndex < words.length; ++wordIndex) {
+                    long word = words[wordIndex];
+                    while (word != 0) {
+                        consumer.accept(wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word));
+                        word &= (word - 1);
+                    }
+                }
+            }
+        } else {
+            bitmap.forEach((org.roaringbitmap.IntConsumer) consumer::accept);
+        }
     }
 
     @Override
     public int first() {
+        if (null != dense) {
+            if (isEmpty()) {
+                throw new NoSuchElementException("Empty mask");
+            }
+            return firstNonEmptyWord * Long.SIZE + Long.numberOfTrailingZeros(dense.words[firstNonEmptyWord]);
+        }
         return bitmap.first();
     }
 
     @Override
     public RoaringMask clone() {
-        return new RoaringMask(storage, bitmap.toMutableRoaringBitmap());
+        return null != dense
+                ? new RoaringMask(storage, new DenseBuffer(dense.words.clone()), firstNonEmptyWord)
+                : new RoaringMask(storage, bitmap.toMutableRoaringBitmap());
     }
 
     @Override
     public void optimise() {
-        ((MutableRoaringBitmap) bitmap).trim();
-        ((MutableRoaringBitmap) bitmap).runOptimize();
-        this.bitmap = storage.consolidate(((MutableRoaringBitmap) bitmap));
+        if (bitmap instanceof MutableRoaringBitmap) {
+            var mutable = (MutableRoaringBitmap) bitmap;
+            mutable.trim();
+            mutable.runOptimize();
+            int position = storage.consolidate(mutable);
+            if (position >= 0) {
+                this.bitmap = storage.load(position);
+                this.position = position;
+            }
+        }
     }
 
     @Override
     public boolean isEmpty() {
+        if (null != dense) {
+            if (firstNonEmptyWord == UNKNOWN_EMPTY) {
+                firstNonEmptyWord = indexOfFirstNonEmptyWord(dense.words);
+            }
+            return firstNonEmptyWord == KNOWN_EMPTY;
+        }
         return bitmap.isEmpty();
     }
 
     @Override
     public int cardinality() {
+        if (null != dense) {
+            if (isEmpty()) {
+                return 0;
+            }
+            long[] words = dense.words;
+            int cardinality = 0;
+            for (int i = firstNonEmptyWord; i < words.length; ++i) {
+                cardinality += Long.bitCount(words[i]);
+            }
+            return cardinality;
+        }
         return bitmap.getCardinality();
     }
 
+    @Override
+    public long sizeInBytes() {
+        return null != dense
+                ? (long) dense.words.length * Long.BYTES
+                : bitmap.serializedSizeInBytes();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RoaringMask that = (RoaringMask) o;
-        return Objects.equals(bitmap, that.bitmap);
+        return Objects.equals(bitmap(), that.bitmap());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(bitmap);
+        return Objects.hash(bitmap());
+    }
+
+    private ImmutableRoaringBitmap bitmap() {
+        if (null != dense) {
+            var bitmap = new MutableRoaringBitmap();
+            forEach(bitmap::add);
+            return bitmap;
+        }
+        return bitmap;
+    }
+
+    private MutableRoaringBitmap mutable() {
+        if (!(bitmap instanceof MutableRoaringBitmap)) {
+            // consolidated bitmaps are copied on write
+            this.bitmap = bitmap.toMutableRoaringBitmap();
+            this.position = -1;
+        }
+        return (MutableRoaringBitmap) bitmap;
+    }
+
+    private static int indexOfFirstNonEmptyWord(long[] words) {
+        for (int i = 0; i < words.length; ++i) {
+            if (words[i] != 0) {
+                return i;
+            }
+        }
+        return KNOWN_EMPTY;
     }
 
     private static final class Store implements MaskStore<RoaringMask> {
         private final OptimisedStorage storage;
 
-        private final ThreadLocal<RoaringMask> temp;
-
         private RoaringMask[] bitmaps = new RoaringMask[4];
         private int maskId = 0;
 
@@ -142,7 +332,6 @@ public class RoaringMask implements Mask<RoaringMask> {
             this.storage = new OptimisedStorage(direct
                     ? ByteBuffer.allocateDirect(bufferSize)
                     : ByteBuffer.allocate(bufferSize));
-            temp = ThreadLocal.withInitial(this::newMask);
             bitmaps[0] = newMask();
         }
 
@@ -191,8 +380,13 @@ public class RoaringMask implements Mask<RoaringMask> {
         }
 
         @Override
-        public RoaringMask getTemp(int copyAddress) {
-            return temp.get().resetTo(bitmaps[copyAddress & (bitmaps.length - 1)]);
+        public boolean isCompressed() {
+            return true;
+        }
+
+        @Override
+        public void copyInto(RoaringMask mask, int id) {
+            mask.resetTo(bitmaps[id & (bitmaps.length - 1)]);
         }
 
         @Override
@@ -247,24 +441,36 @@ public class RoaringMask implements Mask<RoaringMask> {
 
     private static class OptimisedStorage {
         private final ByteBuffer allocatedSpace;
+        // reads the consolidated bitmaps in their serialized byte order
+        private final ByteBuffer serialized;
 
         private OptimisedStorage(ByteBuffer allocatedSpace) {
             this.allocatedSpace = allocatedSpace;
+            this.serialized = allocatedSpace.duplicate().order(ByteOrder.LITTLE_ENDIAN);
         }
 
-        ImmutableRoaringBitmap consolidate(MutableRoaringBitmap bitmap) {
+        /**
+         * Serializes the bitmap into the allocated space if it fits.
+         *
+         * @param bitmap the bitmap to consolidate
+         * @return the position of the serialized bitmap, or -1 if there isn't enough space
+         */
+        int consolidate(MutableRoaringBitmap bitmap) {
             int requiredSize = bitmap.serializedSizeInBytes();
             if (allocatedSpace.remaining() < requiredSize) {
                 // can't consolidate
-                return bitmap;
-            } else {
-                int pos = allocatedSpace.position();
-                bitmap.serialize(allocatedSpace);
-                allocatedSpace.position(pos);
-                var consolidated = new ImmutableRoaringBitmap(allocatedSpace);
-                allocatedSpace.position(pos + requiredSize);
-                return consolidated;
+                return -1;
             }
+            int pos = allocatedSpace.position();
+            bitmap.serialize(allocatedSpace);
+            allocatedSpace.position(pos + requiredSize);
+            return pos;
+        }
+
+        ImmutableRoaringBitmap load(int position) {
+            var view = allocatedSpace.duplicate();
+            view.position(position);
+            return new ImmutableRoaringBitmap(view);
         }
     }
 }
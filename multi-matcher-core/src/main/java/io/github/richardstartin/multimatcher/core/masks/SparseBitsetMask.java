@@ -0,0 +1,405 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A bitset with a summary bit for each of its words, which is set if and only
+ * if the word is not empty, so each summary word covers 64 words. Operations
+ * iterate over the set bits of the summary rather than over every word, so
+ * intersecting sparse masks only visits the words which are not empty in both,
+ * and {@link #first()}, {@link #cardinality()} and {@link #forEach(IntConsumer)}
+ * skip over runs of empty words.
+ */
+public class SparseBitsetMask implements Mask<SparseBitsetMask> {
+
+    public static final int MAX_CAPACITY = 256 * 64;
+    // blocks with more non-empty words than this are processed without consulting the summary
+    private static final int SPARSE_WORDS = 8;
+
+    private final long[] words;
+    private final long[] summary;
+
+    SparseBitsetMask(int max) {
+        int wordCount = (max + 63) >>> 6;
+        this.words = new long[wordCount];
+        this.summary = new long[(wordCount + 63) >>> 6];
+    }
+
+    SparseBitsetMask(int max, int to) {
+        this(max);
+        Arrays.fill(words, 0, to >>> 6, -1L);
+        if ((to & 63) != 0) {
+            words[to >>> 6] = (1L << to) - 1;
+        }
+        summarise();
+    }
+
+    private SparseBitsetMask(long[] words, long[] summary) {
+        this.words = words;
+        this.summary = summary;
+    }
+
+    public static MaskStore<SparseBitsetMask> store(int max) {
+        return new Store(max);
+    }
+
+    @Override
+    public void add(int id) {
+        int word = id >>> 6;
+        words[word] |= (1L << id);
+        summary[word >>> 6] |= (1L << word);
+    }
+
+    @Override
+    public void remove(int id) {
+        int word = id >>> 6;
+        if ((words[word] &= ~(1L << id)) == 0L) {
+            summary[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    @Override
+    public SparseBitsetMask inPlaceAndNot(SparseBitsetMask other) {
+        for (int s = 0; s < summary.length; ++s) {
+            long present = summary[s];
+            for (long common = present & other.summary[s]; common != 0; common &= (common - 1)) {
+                int word = (s << 6) + Long.numberOfTrailingZeros(common);
+                if ((words[word] &= ~other.words[word]) == 0L) {
+                    present ^= Long.lowestOneBit(common);
+                }
+            }
+            summary[s] = present;
+        }
+        return this;
+    }
+
+    @Override
+    public SparseBitsetMask inPlaceAnd(SparseBitsetMask other) {
+        for (int s = 0; s < summary.length; ++s) {
+            long present = summary[s];
+            if (Long.bitCount(present) > SPARSE_WORDS) {
+                summary[s] = andBlock(s, other.words);
+                continue;
+            }
+            long common = present & other.summary[s];
+            for (long dropped = present & ~common; dropped != 0; dropped &= (dropped - 1)) {
+                words[(s << 6) + Long.numberOfTrailingZeros(dropped)] = 0L;
+            }
+            for (long bits = common; bits != 0; bits &= (bits - 1)) {
+                int word = (s << 6) + Long.numberOfTrailingZeros(bits);
+                if ((words[word] &= other.words[word]) == 0L) {
+                    common ^= Long.lowestOneBit(bits);
+                }
+            }
+            summary[s] = common;
+        }
+        return this;
+    }
+
+    @Override
+    public SparseBitsetMask inPlaceOr(SparseBitsetMask other) {
+        for (int s = 0; s < summary.length; ++s) {
+            long added = other.summary[s];
+            if (Long.bitCount(added) > SPARSE_WORDS) {
+                int from = s << 6;
+                int to = Math.min(from + 64, words.length);
+                for (int word = from; word < to; ++word) {
+                    words[word] |= other.words[word];
+                }
+            } else {
+                for (long bits = added; bits != 0; bits &= (bits - 1)) {
+                    int word = (s << 6) + Long.numberOfTrailingZeros(bits);
+                    words[word] |= other.words[word];
+                }
+            }
+            summary[s] |= added;
+        }
+        return this;
+    }
+
+    @Override
+    public SparseBitsetMask inPlaceNot(int max) {
+        int wordIndex = max >>> 6;
+        for (int i = 0; i < wordIndex; ++i) {
+            words[i] = ~words[i];
+        }
+        if (wordIndex < words.length) {
+            words[wordIndex] = (~words[wordIndex]) & ((1L << max) - 1);
+        }
+        summarise();
+        return this;
+    }
+
+    @Override
+    public SparseBitsetMask resetTo(Mask<SparseBitsetMask> other) {
+        var that = other.unwrap();
+        for (int s = 0; s < summary.length; ++s) {
+            long present = that.summary[s];
+            if (Long.bitCount(present | summary[s]) > SPARSE_WORDS) {
+                int from = s << 6;
+                System.arraycopy(that.words, from, words, from, Math.min(64, words.length - from));
+            } else {
+                for (long bits = summary[s]; bits != 0; bits &= (bits - 1)) {
+                    words[(s << 6) + Long.numberOfTrailingZeros(bits)] = 0L;
+                }
+                for (long bits = present; bits != 0; bits &= (bits - 1)) {
+                    int word = (s << 6) + Long.numberOfTrailingZeros(bits);
+                    words[word] = that.words[word];
+                }
+            }
+            summary[s] = present;
+        }
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        clearWords();
+        Arrays.fill(summary, 0L);
+    }
+
+    @Override
+    public SparseBitsetMask unwrap() {
+        return this;
+    }
+
+    @Override
+    public IntStream stream() {
+        var builder = IntStream.builder();
+        forEach(builder);
+        return builder.build();
+    }
+
+    @Override
+    public void forEach(IntConsumer consumer) {
+        for (int s = 0; s < summary.length; ++s) {
+            for (long bits = summary[s]; bits != 0; bits &= (bits - 1)) {
+                int wordIndex = (s << 6) + Long.numberOfTrailingZeros(bits);
+                for (long word = words[wordIndex]; word != 0; word &= (word - 1)) {
+                    consumer.accept(wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int first() {
+        for (int s = 0; s < summary.length; ++s) {
+            if (summary[s] != 0L) {
+                int wordIndex = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(words[wordIndex]);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public SparseBitsetMask clone() {
+        return new SparseBitsetMask(Arrays.copyOf(words, words.length), Arrays.copyOf(summary, summary.length));
+    }
+
+    @Override
+    public void optimise() {
+        // the summary is always exact
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long s : summary) {
+            if (s != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int cardinality() {
+        int cardinality = 0;
+        for (int s = 0; s < summary.length; ++s) {
+            if (Long.bitCount(summary[s]) > SPARSE_WORDS) {
+                int from = s << 6;
+                int to = Math.min(from + 64, words.length);
+                for (int word = from; word < to; ++word) {
+                    cardinality += Long.bitCount(words[word]);
+                }
+            } else {
+                for (long bits = summary[s]; bits != 0; bits &= (bits - 1)) {
+                    cardinality += Long.bitCount(words[(s << 6) + Long.numberOfTrailingZeros(bits)]);
+                }
+            }
+        }
+        return cardinality;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) (words.length + summary.length) * Long.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SparseBitsetMask that = (SparseBitsetMask) o;
+        return Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(stream().toArray());
+    }
+
+    /*
+     * Intersects a whole block of words, computing its summary without branches,
+     * which is faster than visiting the words one summary bit at a time when
+     * most of them are present.
+     */
+    private long andBlock(int s, long[] other) {
+        int from = s << 6;
+        int to = Math.min(from + 64, words.length);
+        long present = 0L;
+        for (int word = from; word < to; ++word) {
+            long value = (words[word] &= other[word]);
+            present |= ((value | -value) >>> 63) << word;
+        }
+        return present;
+    }
+
+    private void clearWords() {
+        for (int s = 0; s < summary.length; ++s) {
+            for (long bits = summary[s]; bits != 0; bits &= (bits - 1)) {
+                words[(s << 6) + Long.numberOfTrailingZeros(bits)] = 0L;
+            }
+        }
+    }
+
+    private void summarise() {
+        Arrays.fill(summary, 0L);
+        for (int i = 0; i < words.length; ++i) {
+            if (words[i] != 0L) {
+                summary[i >>> 6] |= (1L << i);
+            }
+        }
+    }
+
+    public static final class Store implements MaskStore<SparseBitsetMask> {
+
+        private final int max;
+        private final SparseBitsetMask empty;
+
+        private SparseBitsetMask[] masks = new SparseBitsetMask[4];
+        private int maskId = 0;
+
+        private Store(int max) {
+            this.max = max;
+            this.empty = new SparseBitsetMask(max);
+            masks[0] = empty;
+        }
+
+        @Override
+        public SparseBitsetMask newMask() {
+            return new SparseBitsetMask(max);
+        }
+
+        @Override
+        public int newMaskId() {
+            return storeMask(newMask());
+        }
+
+        @Override
+        public int storeMask(SparseBitsetMask mask) {
+            ensureCapacity(++maskId);
+            masks[maskId] = mask;
+            return maskId;
+        }
+
+        @Override
+        public SparseBitsetMask getMask(int id) {
+            return masks[id].clone();
+        }
+
+        @Override
+        public void add(int id, int bit) {
+            masks[id].add(bit);
+        }
+
+        @Override
+        public void remove(int id, int bit) {
+            if (id != 0) {
+                masks[id].remove(bit);
+            }
+        }
+
+        @Override
+        public void or(int from, int into) {
+            masks[into].inPlaceOr(masks[from]);
+        }
+
+        @Override
+        public void copyInto(SparseBitsetMask mask, int id) {
+            mask.resetTo(masks[id]);
+        }
+
+        @Override
+        public void orInto(SparseBitsetMask mask, int id) {
+            mask.inPlaceOr(masks[id]);
+        }
+
+        @Override
+        public void andInto(SparseBitsetMask mask, int id) {
+            mask.inPlaceAnd(masks[id]);
+        }
+
+        @Override
+        public SparseBitsetMask contiguous(int max) {
+            if (max > this.max) {
+                throw new IllegalArgumentException();
+            }
+            return new SparseBitsetMask(this.max, max);
+        }
+
+        @Override
+        public int newContiguousMaskId(int max) {
+            return storeMask(contiguous(max));
+        }
+
+        @Override
+        public boolean isEmpty(int id) {
+            return masks[id].isEmpty();
+        }
+
+        @Override
+        public SparseBitsetMask of(int... values) {
+            var mask = newMask();
+            for (int value : values) {
+                mask.add(value);
+            }
+            return mask;
+        }
+
+        @Override
+        public double averageSelectivity(int[] ids, int min, int max) {
+            double selectivity = 0f;
+            for (int i = min; i < max; ++i) {
+                selectivity += masks[ids[i]].cardinality();
+            }
+            return selectivity / ids.length;
+        }
+
+        private void ensureCapacity(int maskId) {
+            if (maskId >= masks.length) {
+                masks = Arrays.copyOf(masks, masks.length * 2);
+            }
+        }
+    }
+}
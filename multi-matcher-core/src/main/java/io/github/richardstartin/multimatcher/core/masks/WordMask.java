@@ -11,7 +11,7 @@ import java.util.stream.LongStream;
 
 public class WordMask implements Mask<WordMask> {
 
-    public static MaskStore<WordMask> store(int max) {
+    public static WordStore store(int max) {
         return max <= 32
                 ? new IntStore()
                 : new LongStore();
@@ -127,6 +127,11 @@ public class WordMask implements Mask<WordMask> {
         return Long.bitCount(mask);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return Long.BYTES;
+    }
+
     @Override
     public String toString() {
         return Long.toBinaryString(mask);
@@ -145,7 +150,20 @@ public class WordMask implements Mask<WordMask> {
         return Objects.hash(mask);
     }
 
-    private static final class LongStore implements MaskStore<WordMask> {
+    /**
+     * A store of masks of at most 64 bits, which can be read as primitive words
+     * so classification never needs to materialise mask objects.
+     */
+    public interface WordStore extends MaskStore<WordMask> {
+
+        /**
+         * @param id the id of the stored mask
+         * @return the stored mask as a word
+         */
+        long word(int id);
+    }
+
+    private static final class LongStore implements WordStore {
 
         private long[] masks = new long[4];
 
@@ -174,6 +192,11 @@ public class WordMask implements Mask<WordMask> {
             return new WordMask(masks[id & (masks.length - 1)]);
         }
 
+        @Override
+        public long word(int id) {
+            return masks[id & (masks.length - 1)];
+        }
+
         @Override
         public void add(int id, int bit) {
             masks[id & (masks.length - 1)] |= (1L << bit);
@@ -190,8 +213,8 @@ public class WordMask implements Mask<WordMask> {
         }
 
         @Override
-        public WordMask getTemp(int copyAddress) {
-            return new WordMask(masks[copyAddress & (masks.length - 1)]);
+        public void copyInto(WordMask mask, int id) {
+            mask.mask = masks[id & (masks.length - 1)];
         }
 
         @Override
@@ -204,6 +227,21 @@ public class WordMask implements Mask<WordMask> {
             mask.mask &= masks[id & (masks.length - 1)];
         }
 
+        @Override
+        public void intersect(WordMask mask, WordMask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long word = mask.mask;
+            int start = 0;
+            for (int g = 0; g < groups && word != 0; ++g) {
+                long union = 0L;
+                for (int i = start; i < ends[g]; ++i) {
+                    union |= masks[ids[i] & (masks.length - 1)];
+                }
+                word &= union;
+                start = ends[g];
+            }
+            mask.mask = word;
+        }
+
         @Override
         public WordMask contiguous(int max) {
             return new WordMask(((1L << max) - 1));
@@ -255,7 +293,7 @@ public class WordMask implements Mask<WordMask> {
         }
     }
 
-    private static final class IntStore implements MaskStore<WordMask> {
+    private static final class IntStore implements WordStore {
         private int[] masks = new int[4];
 
         private int maskId = 0;
@@ -283,6 +321,11 @@ public class WordMask implements Mask<WordMask> {
             return new WordMask(masks[id & (masks.length - 1)]);
         }
 
+        @Override
+        public long word(int id) {
+            return masks[id & (masks.length - 1)] & 0xFFFFFFFFL;
+        }
+
         @Override
         public void add(int id, int bit) {
             masks[id & (masks.length - 1)] |= (1 << bit);
@@ -299,8 +342,8 @@ public class WordMask implements Mask<WordMask> {
         }
 
         @Override
-        public WordMask getTemp(int copyAddress) {
-            return new WordMask(masks[copyAddress & (masks.length - 1)]);
+        public void copyInto(WordMask mask, int id) {
+            mask.mask = masks[id & (masks.length - 1)] & 0xFFFFFFFFL;
         }
 
         @Override
@@ -313,6 +356,21 @@ public class WordMask implements Mask<WordMask> {
             mask.mask &= masks[id & (masks.length - 1)];
         }
 
+        @Override
+        public void intersect(WordMask mask, WordMask temp, int[] ids, int[] ends, int groups, boolean firstOnly) {
+            long word = mask.mask;
+            int start = 0;
+            for (int g = 0; g < groups && word != 0; ++g) {
+                int union = 0;
+                for (int i = start; i < ends[g]; ++i) {
+                    union |= masks[ids[i] & (masks.length - 1)];
+                }
+                word &= union & 0xFFFFFFFFL;
+                start = ends[g];
+            }
+            mask.mask = word;
+        }
+
         @Override
         public WordMask contiguous(int max) {
             return new WordMask(((1 << max) - 1));
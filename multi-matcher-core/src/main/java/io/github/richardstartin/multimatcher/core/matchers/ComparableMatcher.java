@@ -2,9 +2,11 @@ package io.github.richardstartin.multimatcher.core.matchers;
 
 import io.github.richardstartin.multimatcher.core.*;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
 import io.github.richardstartin.multimatcher.core.matchers.nodes.ComparableNode;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.function.Function;
 
@@ -32,26 +34,83 @@ public class ComparableMatcher<T, U, MaskType extends Mask<MaskType>> implements
     }
 
     @Override
-    public void match(T value, MaskType context) {
-        MaskType temp = store.getTemp(wildcards);
+    public void match(T value, MaskType context, MaskType temp) {
+        store.copyInto(temp, wildcards);
         U comparable = accessor.apply(value);
         for (var component : children) {
-            store.orInto(temp, component.match(comparable));
+            component.orInto(comparable, temp);
         }
         context.inPlaceAnd(temp);
-        temp.clear();
     }
 
     @Override
+    public int resolve(T value, int[] ids, int offset) {
+        int count = 0;
+        ids[offset + count++] = wildcards;
+        U comparable = accessor.apply(value);
+        for (var component : children) {
+            count += component.match(comparable, ids, offset + count);
+        }
+        return count;
+    }
+
+    @Override
+    public long matchWord(T value, WordMask.WordStore words) {
+        long word = words.word(wildcards);
+        U comparable = accessor.apply(value);
+        for (var component : children) {
+            word |= component.matchWord(comparable, words);
+        }
+        return word;
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        int max = 1;
+        for (var component : children) {
+            max += component.maxMatchedIds();
+        }
+        return max;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
     public boolean addConstraint(Constraint constraint, int priority) {
-        add(constraint.getOperation(), constraint.getValue(), priority);
+        switch (constraint.getOperation()) {
+            case IN:
+                for (U member : constraint.<Collection<U>>getValue()) {
+                    add(Operation.EQ, member, priority);
+                }
+                break;
+            case NOT_IN:
+                Collection<U> excluded = constraint.getValue();
+                if (excluded.isEmpty()) {
+                    // excludes nothing, so the rule stays in the wildcards
+                    return true;
+                }
+                for (U member : excluded) {
+                    add(Operation.NE, member, priority);
+                }
+                break;
+            case BETWEEN:
+                Range<?> range = constraint.getValue();
+                node(Operation.BETWEEN).add((U) range.getFrom(), (U) range.getTo(), priority);
+                break;
+            default:
+                add(constraint.getOperation(), constraint.getValue(), priority);
+        }
         store.remove(wildcards, priority);
         return true;
     }
 
     @Override
     public Matcher<T, MaskType> toMatcher() {
-        optimise();
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        optimise(options.rangeCheckpointInterval());
         store.optimise(wildcards);
         return this;
     }
@@ -67,23 +126,31 @@ public class ComparableMatcher<T, U, MaskType extends Mask<MaskType>> implements
     }
 
     private void add(Operation relation, U threshold, int priority) {
+        node(relation).add(threshold, priority);
+    }
+
+    private ComparableNode<U, MaskType> node(Operation relation) {
         var existing = children[relation.ordinal()];
         if (null == existing) {
             existing = children[relation.ordinal()]
                     = new ComparableNode<>(store, comparator, relation);
         }
-        existing.add(threshold, priority);
+        return existing;
     }
 
-    @SuppressWarnings("unchecked")
     public void optimise() {
+        optimise(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void optimise(int checkpointInterval) {
         int nullCount = nullCount(children);
         if (nullCount > 0) {
             var newChildren = (ComparableNode<U, MaskType>[]) newArray(ComparableNode.class, children.length - nullCount);
             int i = 0;
             for (var child : children) {
                 if (null != child) {
-                    newChildren[i++] = child.freeze();
+                    newChildren[i++] = child.freeze(checkpointInterval);
                 }
             }
             children = newChildren;
@@ -0,0 +1,91 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Dictionary;
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.EqualityLayout;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Accumulates equality constraints on string literals, but matches the
+ * integer codes of a dictionary, so the literals are only encoded once,
+ * when the matcher is built.
+ *
+ * @param <Input>    the type of the classified objects
+ * @param <MaskType> the type of mask
+ */
+public class DictionaryConstraintAccumulator<Input, MaskType extends Mask<MaskType>>
+        extends GenericConstraintAccumulator<Input, String, MaskType> {
+
+    private final ToIntFunction<Input> codeAccessor;
+    private final Dictionary dictionary;
+
+    public DictionaryConstraintAccumulator(ToIntFunction<Input> accessor,
+                                          Dictionary dictionary,
+                                          MaskStore<MaskType> maskStore,
+                                          int max) {
+        super(Object2IntOpenHashMap::new, HashMap::new, String.class, maskStore, max);
+        this.codeAccessor = accessor;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Matcher<Input, MaskType> toMatcher(MatcherOptions options) {
+        var literalByCode = new Int2ObjectOpenHashMap<String>();
+        mergeByCode(equality, literalByCode);
+        mergeByCode(inequality, literalByCode);
+        var masks = computeLiteralMasks();
+        int wildcardId = store.storeMask(wildcard);
+        var codes = new Int2IntOpenHashMap(literalByCode.size());
+        codes.defaultReturnValue(wildcardId);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (var literal : literalByCode.int2ObjectEntrySet()) {
+            int code = literal.getIntKey();
+            codes.put(code, masks.getInt(literal.getValue()));
+            min = Math.min(min, code);
+            max = Math.max(max, code);
+        }
+        if (codes.isEmpty()
+                || EqualityLayout.forThresholds(codes.size(), (long) max - min) != EqualityLayout.TABLE) {
+            return new DictionaryMatcher<>(store, codeAccessor, codes, null, 0, wildcardId);
+        }
+        // every code not mentioned by a rule just matches the wildcard
+        int[] maskIdByCode = new int[max - min + 1];
+        Arrays.fill(maskIdByCode, wildcardId);
+        for (var code : codes.int2IntEntrySet()) {
+            maskIdByCode[code.getIntKey() - min] = code.getIntValue();
+        }
+        return new DictionaryMatcher<>(store, codeAccessor, codes, maskIdByCode, min, wildcardId);
+    }
+
+    /*
+     * Literals with the same code are the same value as far as the inputs are
+     * concerned, so their masks are merged under whichever was encoded first.
+     * Literals not in the dictionary can't be equal to any value, so they are
+     * dropped: rules which require them match nothing, and values which
+     * aren't equal to them just match the wildcard.
+     */
+    private void mergeByCode(Map<String, MaskType> masks, Int2ObjectMap<String> literalByCode) {
+        Map<String, MaskType> merged = new HashMap<>();
+        for (var entry : masks.entrySet()) {
+            int code = dictionary.encode(entry.getKey());
+            if (code >= 0) {
+                String literal = literalByCode.computeIfAbsent(code, c -> entry.getKey());
+                merged.merge(literal, entry.getValue(), MaskType::inPlaceOr);
+            }
+        }
+        masks.clear();
+        masks.putAll(merged);
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+
+import java.util.function.ToIntFunction;
+
+class DictionaryMatcher<T, MaskType extends Mask<MaskType>> implements Matcher<T, MaskType> {
+
+    private final ToIntFunction<T> accessor;
+    private final Int2IntMap maskIdByCode;
+    // the mask id of each code from the smallest, when the codes are dense enough
+    private final int[] table;
+    private final int min;
+    private final int wildcard;
+    private final MaskStore<MaskType> store;
+
+    DictionaryMatcher(MaskStore<MaskType> store,
+                      ToIntFunction<T> accessor,
+                      Int2IntMap maskIdByCode,
+                      int[] table,
+                      int min,
+                      int wildcard) {
+        this.accessor = accessor;
+        this.maskIdByCode = maskIdByCode;
+        this.table = table;
+        this.min = min;
+        this.wildcard = wildcard;
+        this.store = store;
+    }
+
+    @Override
+    public void match(T input, MaskType context, MaskType temp) {
+        store.andInto(context, maskId(accessor.applyAsInt(input)));
+    }
+
+    @Override
+    public int resolve(T input, int[] ids, int offset) {
+        ids[offset] = maskId(accessor.applyAsInt(input));
+        return 1;
+    }
+
+    @Override
+    public long matchWord(T input, WordMask.WordStore words) {
+        return words.word(maskId(accessor.applyAsInt(input)));
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        return 1;
+    }
+
+    @Override
+    public float averageSelectivity() {
+        return (float)store.averageSelectivity(maskIdByCode.values().toIntArray());
+    }
+
+    private int maskId(int code) {
+        if (null != table) {
+            // negative offsets wrap round to large unsigned offsets
+            int offset = code - min;
+            return Integer.compareUnsigned(offset, table.length) < 0 ? table[offset] : wildcard;
+        }
+        return maskIdByCode.get(code);
+    }
+}
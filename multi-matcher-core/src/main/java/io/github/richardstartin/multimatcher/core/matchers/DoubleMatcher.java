@@ -2,8 +2,11 @@ package io.github.richardstartin.multimatcher.core.matchers;
 
 import io.github.richardstartin.multimatcher.core.*;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.DoubleIntervalIndex;
 import io.github.richardstartin.multimatcher.core.matchers.nodes.DoubleNode;
 
+import java.util.Collection;
 import java.util.function.ToDoubleFunction;
 
 import static io.github.richardstartin.multimatcher.core.Utils.newArray;
@@ -17,6 +20,7 @@ public class DoubleMatcher<T, MaskType extends Mask<MaskType>> implements Constr
     private final MaskStore<MaskType> store;
     private final int wildcards;
     private DoubleNode<MaskType>[] children;
+    private DoubleIntervalIndex intervals;
 
     @SuppressWarnings("unchecked")
     public DoubleMatcher(ToDoubleFunction<T> accessor, MaskStore<MaskType> maskStore, int max) {
@@ -27,49 +31,124 @@ public class DoubleMatcher<T, MaskType extends Mask<MaskType>> implements Constr
     }
 
     @Override
-    public void match(T value, MaskType context) {
-        MaskType temp = store.getTemp(wildcards);
+    public void match(T value, MaskType context, MaskType temp) {
+        if (null != intervals) {
+            store.andInto(context, intervals.match(accessor.applyAsDouble(value)));
+            return;
+        }
+        store.copyInto(temp, wildcards);
         double attributeValue = accessor.applyAsDouble(value);
         for (var component : children) {
-            store.orInto(temp, component.match(attributeValue, 0));
+            component.orInto(attributeValue, temp);
         }
         context.inPlaceAnd(temp);
     }
 
+    @Override
+    public int resolve(T value, int[] ids, int offset) {
+        if (null != intervals) {
+            ids[offset] = intervals.match(accessor.applyAsDouble(value));
+            return 1;
+        }
+        int count = 0;
+        ids[offset + count++] = wildcards;
+        double attributeValue = accessor.applyAsDouble(value);
+        for (var component : children) {
+            count += component.match(attributeValue, ids, offset + count);
+        }
+        return count;
+    }
+
+    @Override
+    public long matchWord(T value, WordMask.WordStore words) {
+        if (null != intervals) {
+            return words.word(intervals.match(accessor.applyAsDouble(value)));
+        }
+        long word = words.word(wildcards);
+        double attributeValue = accessor.applyAsDouble(value);
+        for (var component : children) {
+            word |= component.matchWord(attributeValue, words);
+        }
+        return word;
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        if (null != intervals) {
+            return 1;
+        }
+        int max = 1;
+        for (var component : children) {
+            max += component.maxMatchedIds();
+        }
+        return max;
+    }
+
     @Override
     public boolean addConstraint(Constraint constraint, int priority) {
-        Number number = constraint.getValue();
-        double value = number.doubleValue();
-        add(constraint.getOperation(), value, priority);
+        switch (constraint.getOperation()) {
+            case IN:
+                for (Number member : constraint.<Collection<Number>>getValue()) {
+                    add(Operation.EQ, member.doubleValue(), priority);
+                }
+                break;
+            case NOT_IN:
+                Collection<Number> excluded = constraint.getValue();
+                if (excluded.isEmpty()) {
+                    // excludes nothing, so the rule stays in the wildcards
+                    return true;
+                }
+                for (Number member : excluded) {
+                    add(Operation.NE, member.doubleValue(), priority);
+                }
+                break;
+            case BETWEEN:
+                Range<?> range = constraint.getValue();
+                node(Operation.BETWEEN).add(((Number) range.getFrom()).doubleValue(),
+                        ((Number) range.getTo()).doubleValue(), priority);
+                break;
+            default:
+                Number number = constraint.getValue();
+                add(constraint.getOperation(), number.doubleValue(), priority);
+        }
         store.remove(wildcards, priority);
         return true;
     }
 
     @Override
     public Matcher<T, MaskType> toMatcher() {
-        optimise();
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        optimise(options.rangeCheckpointInterval());
         store.optimise(wildcards);
+        this.intervals = DoubleIntervalIndex.build(store, wildcards, children, options.intervalIndexBudget());
         return this;
     }
 
     private void add(Operation relation, double threshold, int priority) {
+        node(relation).add(threshold, priority);
+    }
+
+    private DoubleNode<MaskType> node(Operation relation) {
         var existing = children[relation.ordinal()];
         if (null == existing) {
-            existing = children[relation.ordinal()]
-                    = new DoubleNode<>(store, relation);
+            existing = children[relation.ordinal()] = new DoubleNode<>(store, relation);
         }
-        existing.add(threshold, priority);
+        return existing;
     }
 
     @SuppressWarnings("unchecked")
-    private void optimise() {
+    private void optimise(int checkpointInterval) {
         int nullCount = nullCount(children);
         if (nullCount > 0) {
             var newChildren = (DoubleNode<MaskType>[]) newArray(DoubleNode.class, children.length - nullCount);
             int i = 0;
             for (var child : children) {
                 if (null != child) {
-                    newChildren[i++] = child.optimise();
+                    newChildren[i++] = child.optimise(checkpointInterval);
                 }
             }
             children = newChildren;
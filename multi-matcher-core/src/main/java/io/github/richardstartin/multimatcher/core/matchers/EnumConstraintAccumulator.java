@@ -0,0 +1,38 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.function.Function;
+
+public class EnumConstraintAccumulator<Input, E extends Enum<E>, MaskType extends Mask<MaskType>>
+        extends GenericConstraintAccumulator<Input, E, MaskType> {
+
+    private final Class<E> type;
+
+    public EnumConstraintAccumulator(Class<E> type,
+                                     Function<Input, E> accessor,
+                                     MaskStore<MaskType> maskStore,
+                                     int max) {
+        super(Object2IntOpenHashMap::new, () -> new EnumMap<>(type), accessor, maskStore, max);
+        this.type = type;
+    }
+
+    @Override
+    public Matcher<Input, MaskType> toMatcher(MatcherOptions options) {
+        var masks = computeLiteralMasks();
+        int wildcardId = store.storeMask(wildcard);
+        // every constant not mentioned by a rule just matches the wildcard
+        int[] maskIdByOrdinal = new int[type.getEnumConstants().length];
+        Arrays.fill(maskIdByOrdinal, wildcardId);
+        for (var entry : masks.object2IntEntrySet()) {
+            maskIdByOrdinal[entry.getKey().ordinal()] = entry.getIntValue();
+        }
+        return new EnumMatcher<>(store, accessor, maskIdByOrdinal, wildcardId);
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
+import java.util.function.Function;
+
+class EnumMatcher<T, E extends Enum<E>, MaskType extends Mask<MaskType>> implements Matcher<T, MaskType> {
+
+    private final Function<T, E> accessor;
+    private final int[] maskIdByOrdinal;
+    private final int wildcard;
+    private final MaskStore<MaskType> store;
+
+    EnumMatcher(MaskStore<MaskType> store,
+                Function<T, E> accessor,
+                int[] maskIdByOrdinal,
+                int wildcard) {
+        this.accessor = accessor;
+        this.maskIdByOrdinal = maskIdByOrdinal;
+        this.wildcard = wildcard;
+        this.store = store;
+    }
+
+    @Override
+    public void match(T input, MaskType context, MaskType temp) {
+        store.andInto(context, maskId(accessor.apply(input)));
+    }
+
+    @Override
+    public int resolve(T input, int[] ids, int offset) {
+        ids[offset] = maskId(accessor.apply(input));
+        return 1;
+    }
+
+    @Override
+    public long matchWord(T input, WordMask.WordStore words) {
+        return words.word(maskId(accessor.apply(input)));
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        return 1;
+    }
+
+    @Override
+    public float averageSelectivity() {
+        return (float)store.averageSelectivity(maskIdByOrdinal);
+    }
+
+    private int maskId(E value) {
+        return null == value ? wildcard : maskIdByOrdinal[value.ordinal()];
+    }
+}
@@ -2,15 +2,14 @@ package io.github.richardstartin.multimatcher.core.matchers;
 
 import io.github.richardstartin.multimatcher.core.*;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.PerfectHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import static io.github.richardstartin.multimatcher.core.Operation.EQ;
-import static io.github.richardstartin.multimatcher.core.Operation.NE;
-
 public class GenericConstraintAccumulator<T, U, MaskType extends Mask<MaskType>>
         implements ConstraintAccumulator<T, MaskType> {
 
@@ -21,6 +20,8 @@ public class GenericConstraintAccumulator<T, U, MaskType extends Mask<MaskType>>
     protected final int max;
     protected final MaskStore<MaskType> store;
     protected final MaskType wildcard;
+    // checked for literals which aren't matched against the accessor's values, otherwise null
+    private final Class<U> literalType;
 
     public GenericConstraintAccumulator(Supplier<Object2IntMap<U>> primitiveMapSupplier,
                                         Supplier<Map<U, MaskType>> mapSupplier,
@@ -34,23 +35,66 @@ public class GenericConstraintAccumulator<T, U, MaskType extends Mask<MaskType>>
         this.wildcard = store.contiguous(max);
         this.equality = mapSupplier.get();
         this.inequality = mapSupplier.get();
+        this.literalType = null;
+    }
+
+    /**
+     * For accumulators which match some other representation of the values than
+     * the literals, and so have no accessor, but check the type of the literals
+     * as they are added instead of failing when the matcher is built.
+     *
+     * @param primitiveMapSupplier creates the map from literals to mask ids
+     * @param mapSupplier          creates the maps from literals to masks
+     * @param literalType          the type of the literals
+     * @param store                the mask store
+     * @param max                  the number of rules
+     */
+    protected GenericConstraintAccumulator(Supplier<Object2IntMap<U>> primitiveMapSupplier,
+                                           Supplier<Map<U, MaskType>> mapSupplier,
+                                           Class<U> literalType,
+                                           MaskStore<MaskType> store,
+                                           int max) {
+        this.accessor = null;
+        this.mapSupplier = primitiveMapSupplier;
+        this.store = store;
+        this.max = max;
+        this.wildcard = store.contiguous(max);
+        this.equality = mapSupplier.get();
+        this.inequality = mapSupplier.get();
+        this.literalType = literalType;
     }
 
     @Override
     public boolean addConstraint(Constraint constraint, int priority) {
-        U key = constraint.getValue();
-        if (constraint.getOperation() == EQ) {
-            update(equality, key, priority);
-            wildcard.remove(priority);
-        } else if (constraint.getOperation() == NE) {
-            update(inequality, key, priority);
-        } else {
-            return false;
+        switch (constraint.getOperation()) {
+            case EQ:
+                update(equality, constraint.getValue(), priority);
+                wildcard.remove(priority);
+                break;
+            case NE:
+                update(inequality, constraint.getValue(), priority);
+                break;
+            case IN:
+                for (U key : constraint.<Collection<U>>getValue()) {
+                    update(equality, key, priority);
+                }
+                wildcard.remove(priority);
+                break;
+            case NOT_IN:
+                for (U key : constraint.<Collection<U>>getValue()) {
+                    update(inequality, key, priority);
+                }
+                break;
+            default:
+                return false;
         }
         return true;
     }
 
     private void update(Map<U, MaskType> map, U key, int priority) {
+        if (null != literalType && !literalType.isInstance(key)) {
+            throw new IllegalArgumentException("Literal " + key + " is not a " + literalType.getSimpleName());
+        }
         var mask = map.get(key);
         if (null == mask) {
             mask = store.newMask();
@@ -61,61 +105,58 @@ public class GenericConstraintAccumulator<T, U, MaskType extends Mask<MaskType>>
 
     @Override
     public Matcher<T, MaskType> toMatcher() {
-        var masks = computeLiteralMasks();
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        var masks = freeze(computeLiteralMasks(), options);
         return new GenericMatcher<>(store, accessor, masks, store.storeMask(wildcard));
     }
 
+    /**
+     * Replaces the literal masks with a perfect hash if there are enough of them.
+     *
+     * @param masks   the mask id of each literal value
+     * @param options the options which say whether to use a perfect hash
+     * @return the literal masks to match with
+     */
+    protected Object2IntMap<U> freeze(Object2IntMap<U> masks, MatcherOptions options) {
+        int threshold = options.perfectHashThreshold();
+        if (threshold > 0 && masks.size() >= threshold) {
+            var perfectHash = PerfectHashMap.build(masks);
+            if (null != perfectHash) {
+                return perfectHash;
+            }
+        }
+        return masks;
+    }
+
     protected Object2IntMap<U> computeLiteralMasks() {
-        // For each inequality mask, need to add the bits to each equality mask for mismatching values.
-        // Then when lookups are done by equality, we will automatically get bits for NOT
-        // constraints whenever the input matches any indexed value.
-        //
-        // Values with inequality constraints must not hit the wildcard, so
-        // the complement of the inequality mask must be added to the equality masks,
-        // but the wildcard does not require modification for inequality masks.
+        // A value matches the rules which require it, and the wildcard rules
+        // unless they exclude it. The wildcard rules are those which don't
+        // constrain the attribute, or only exclude values from it, so values
+        // not mentioned by any rule just match the wildcard.
         //
         // This all means only one lookup needs to be done.
-        // now process the relationships between equality and inequality masks
-        if (!wildcard.isEmpty()) {
-            for (var eq : equality.entrySet()) {
-                eq.getValue()
-                        .inPlaceOr(wildcard);
-            }
-        }
-        var it = inequality.entrySet().iterator();
-        while (it.hasNext()) {
-            var ineq = it.next();
-            boolean hasCounterpart = false;
-            for (var eq : equality.entrySet()) {
-                if (!eq.getKey().equals(ineq.getKey())) {
-                    eq.getValue().inPlaceOr(ineq.getValue());
-                } else {
-                    hasCounterpart = true;
-                    eq.getValue().inPlaceAndNot(ineq.getValue());
-                }
-            }
-            if (hasCounterpart) {
-                // use the equality mask instead
-                it.remove();
-            } else {
-                // complement and optimise the mask, will use it as an equality mask
-                ineq.getValue()
-                    .inPlaceNot(max)
-                    .inPlaceAnd(wildcard)
-                    .optimise();
-            }
-        }
-        // put the processed masks in the store
         Object2IntMap<U> masks = mapSupplier.get();
         for (var eq : equality.entrySet()) {
             var mask = eq.getValue();
+            mask.inPlaceOr(wildcard);
+            var excluded = inequality.remove(eq.getKey());
+            if (null != excluded) {
+                mask.inPlaceAndNot(excluded);
+            }
             mask.optimise();
             masks.put(eq.getKey(), store.storeMask(mask));
         }
-        wildcard.optimise();
         for (var ineq : inequality.entrySet()) {
-            masks.put(ineq.getKey(), store.storeMask(ineq.getValue()));
+            var mask = wildcard.clone();
+            mask.inPlaceAndNot(ineq.getValue());
+            mask.optimise();
+            masks.put(ineq.getKey(), store.storeMask(mask));
         }
+        wildcard.optimise();
         return masks;
     }
 
@@ -3,6 +3,7 @@ package io.github.richardstartin.multimatcher.core.matchers;
 import io.github.richardstartin.multimatcher.core.Mask;
 import io.github.richardstartin.multimatcher.core.Matcher;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 import java.util.function.Function;
@@ -25,12 +26,28 @@ class GenericMatcher<T, U, MaskType extends Mask<MaskType>> implements Matcher<T
     }
 
     @Override
-    public void match(T input, MaskType context) {
+    public void match(T input, MaskType context, MaskType temp) {
         U value = accessor.apply(input);
         int mask = masks.getOrDefault(value, wildcard);
         store.andInto(context, mask);
     }
 
+    @Override
+    public int resolve(T input, int[] ids, int offset) {
+        ids[offset] = masks.getOrDefault(accessor.apply(input), wildcard);
+        return 1;
+    }
+
+    @Override
+    public long matchWord(T input, WordMask.WordStore words) {
+        return words.word(masks.getOrDefault(accessor.apply(input), wildcard));
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        return 1;
+    }
+
     @Override
     public float averageSelectivity() {
         return (float)store.averageSelectivity(masks.values().toIntArray());
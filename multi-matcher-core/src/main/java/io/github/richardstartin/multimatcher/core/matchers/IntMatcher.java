@@ -2,8 +2,11 @@ package io.github.richardstartin.multimatcher.core.matchers;
 
 import io.github.richardstartin.multimatcher.core.*;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.IntIntervalIndex;
 import io.github.richardstartin.multimatcher.core.matchers.nodes.IntNode;
 
+import java.util.Collection;
 import java.util.function.ToIntFunction;
 
 import static io.github.richardstartin.multimatcher.core.Utils.newArray;
@@ -17,6 +20,7 @@ public class IntMatcher<T, MaskType extends Mask<MaskType>> implements Constrain
     private final int wildcards;
     private final MaskStore<MaskType> store;
     private IntNode<MaskType>[] children;
+    private IntIntervalIndex intervals;
 
     @SuppressWarnings("unchecked")
     public IntMatcher(ToIntFunction<T> accessor, MaskStore<MaskType> maskStore, int max) {
@@ -27,28 +31,100 @@ public class IntMatcher<T, MaskType extends Mask<MaskType>> implements Constrain
     }
 
     @Override
-    public void match(T value, MaskType context) {
-        MaskType temp = store.getTemp(wildcards);
+    public void match(T value, MaskType context, MaskType temp) {
+        if (null != intervals) {
+            store.andInto(context, intervals.match(accessor.applyAsInt(value)));
+            return;
+        }
+        store.copyInto(temp, wildcards);
         int i = accessor.applyAsInt(value);
         for (var component : children) {
-            store.orInto(temp, component.match(i, 0));
+            component.orInto(i, temp);
         }
         context.inPlaceAnd(temp);
     }
 
+    @Override
+    public int resolve(T value, int[] ids, int offset) {
+        if (null != intervals) {
+            ids[offset] = intervals.match(accessor.applyAsInt(value));
+            return 1;
+        }
+        int count = 0;
+        ids[offset + count++] = wildcards;
+        int i = accessor.applyAsInt(value);
+        for (var component : children) {
+            count += component.match(i, ids, offset + count);
+        }
+        return count;
+    }
+
+    @Override
+    public long matchWord(T value, WordMask.WordStore words) {
+        if (null != intervals) {
+            return words.word(intervals.match(accessor.applyAsInt(value)));
+        }
+        long word = words.word(wildcards);
+        int attributeValue = accessor.applyAsInt(value);
+        for (var component : children) {
+            word |= component.matchWord(attributeValue, words);
+        }
+        return word;
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        if (null != intervals) {
+            return 1;
+        }
+        int max = 1;
+        for (var component : children) {
+            max += component.maxMatchedIds();
+        }
+        return max;
+    }
+
     @Override
     public boolean addConstraint(Constraint constraint, int priority) {
-        Number number = constraint.getValue();
-        int value = number.intValue();
-        add(constraint.getOperation(), value, priority);
+        switch (constraint.getOperation()) {
+            case IN:
+                for (Number member : constraint.<Collection<Number>>getValue()) {
+                    add(Operation.EQ, member.intValue(), priority);
+                }
+                break;
+            case NOT_IN:
+                Collection<Number> excluded = constraint.getValue();
+                if (excluded.isEmpty()) {
+                    // excludes nothing, so the rule stays in the wildcards
+                    return true;
+                }
+                for (Number member : excluded) {
+                    add(Operation.NE, member.intValue(), priority);
+                }
+                break;
+            case BETWEEN:
+                Range<?> range = constraint.getValue();
+                node(Operation.BETWEEN).add(((Number) range.getFrom()).intValue(),
+                        ((Number) range.getTo()).intValue(), priority);
+                break;
+            default:
+                Number number = constraint.getValue();
+                add(constraint.getOperation(), number.intValue(), priority);
+        }
         store.remove(wildcards, priority);
         return true;
     }
 
     @Override
     public Matcher<T, MaskType> toMatcher() {
-        optimise();
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        optimise(options.rangeCheckpointInterval());
         store.optimise(wildcards);
+        this.intervals = IntIntervalIndex.build(store, wildcards, children, options.intervalIndexBudget());
         return this;
     }
 
@@ -57,23 +133,26 @@ public class IntMatcher<T, MaskType extends Mask<MaskType>> implements Constrain
     }
 
     private void add(Operation relation, int threshold, int priority) {
+        node(relation).add(threshold, priority);
+    }
+
+    private IntNode<MaskType> node(Operation relation) {
         var existing = children[relation.ordinal()];
         if (null == existing) {
-            existing = children[relation.ordinal()]
-                    = new IntNode<>(store, relation);
+            existing = children[relation.ordinal()] = new IntNode<>(store, relation);
         }
-        existing.add(threshold, priority);
+        return existing;
     }
 
     @SuppressWarnings("unchecked")
-    private void optimise() {
+    private void optimise(int checkpointInterval) {
         int nullCount = nullCount(children);
         if (nullCount > 0) {
             var newChildren = (IntNode<MaskType>[]) newArray(IntNode.class, children.length - nullCount);
             int i = 0;
             for (var child : children) {
                 if (null != child) {
-                    newChildren[i++] = child.optimise();
+                    newChildren[i++] = child.optimise(checkpointInterval);
                 }
             }
             children = newChildren;
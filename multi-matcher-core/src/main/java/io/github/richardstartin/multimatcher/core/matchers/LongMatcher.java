@@ -2,8 +2,11 @@ package io.github.richardstartin.multimatcher.core.matchers;
 
 import io.github.richardstartin.multimatcher.core.*;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.LongIntervalIndex;
 import io.github.richardstartin.multimatcher.core.matchers.nodes.LongNode;
 
+import java.util.Collection;
 import java.util.function.ToLongFunction;
 
 import static io.github.richardstartin.multimatcher.core.Utils.newArray;
@@ -14,41 +17,129 @@ public class LongMatcher<T, MaskType extends Mask<MaskType>> implements Constrai
         Matcher<T, MaskType> {
 
     private final ToLongFunction<T> accessor;
+    private final ToLongFunction<Object> encoding;
     private final int wildcards;
     private final MaskStore<MaskType> store;
     private LongNode<MaskType>[] children;
+    private LongIntervalIndex intervals;
 
-    @SuppressWarnings("unchecked")
     public LongMatcher(ToLongFunction<T> accessor, MaskStore<MaskType> maskStore, int max) {
+        this(accessor, value -> ((Number) value).longValue(), maskStore, max);
+    }
+
+    /**
+     * Creates a matcher for an attribute whose values are encoded as longs,
+     * such as times, which the constraints' values are encoded into too.
+     *
+     * @param accessor  extracts the encoded value from the classified object
+     * @param encoding  encodes the values of constraints
+     * @param maskStore the mask store
+     * @param max       the number of constraints
+     */
+    @SuppressWarnings("unchecked")
+    public LongMatcher(ToLongFunction<T> accessor, ToLongFunction<Object> encoding,
+                       MaskStore<MaskType> maskStore, int max) {
         this.accessor = accessor;
+        this.encoding = encoding;
         this.store = maskStore;
         this.wildcards = maskStore.newContiguousMaskId(max);
         this.children = (LongNode<MaskType>[]) newArray(LongNode.class, Operation.SIZE);
     }
 
     @Override
-    public void match(T value, MaskType context) {
-        MaskType temp = store.getTemp(wildcards);
+    public void match(T value, MaskType context, MaskType temp) {
+        if (null != intervals) {
+            store.andInto(context, intervals.match(accessor.applyAsLong(value)));
+            return;
+        }
+        store.copyInto(temp, wildcards);
         long attributeValue = accessor.applyAsLong(value);
         for (var component : children) {
-            store.orInto(temp, component.match(attributeValue, 0));
+            component.orInto(attributeValue, temp);
         }
         context.inPlaceAnd(temp);
     }
 
+    @Override
+    public int resolve(T value, int[] ids, int offset) {
+        if (null != intervals) {
+            ids[offset] = intervals.match(accessor.applyAsLong(value));
+            return 1;
+        }
+        int count = 0;
+        ids[offset + count++] = wildcards;
+        long attributeValue = accessor.applyAsLong(value);
+        for (var component : children) {
+            count += component.match(attributeValue, ids, offset + count);
+        }
+        return count;
+    }
+
+    @Override
+    public long matchWord(T value, WordMask.WordStore words) {
+        if (null != intervals) {
+            return words.word(intervals.match(accessor.applyAsLong(value)));
+        }
+        long word = words.word(wildcards);
+        long attributeValue = accessor.applyAsLong(value);
+        for (var component : children) {
+            word |= component.matchWord(attributeValue, words);
+        }
+        return word;
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        if (null != intervals) {
+            return 1;
+        }
+        int max = 1;
+        for (var component : children) {
+            max += component.maxMatchedIds();
+        }
+        return max;
+    }
+
     @Override
     public boolean addConstraint(Constraint constraint, int priority) {
-        Number number = constraint.getValue();
-        int value = number.intValue();
-        add(constraint.getOperation(), value, priority);
+        switch (constraint.getOperation()) {
+            case IN:
+                for (Object member : constraint.<Collection<?>>getValue()) {
+                    add(Operation.EQ, encoding.applyAsLong(member), priority);
+                }
+                break;
+            case NOT_IN:
+                Collection<?> excluded = constraint.getValue();
+                if (excluded.isEmpty()) {
+                    // excludes nothing, so the rule stays in the wildcards
+                    return true;
+                }
+                for (Object member : excluded) {
+                    add(Operation.NE, encoding.applyAsLong(member), priority);
+                }
+                break;
+            case BETWEEN:
+                Range<?> range = constraint.getValue();
+                node(Operation.BETWEEN).add(encoding.applyAsLong(range.getFrom()),
+                        encoding.applyAsLong(range.getTo()), priority);
+                break;
+            default:
+                add(constraint.getOperation(), encoding.applyAsLong(constraint.getValue()), priority);
+        }
         store.remove(wildcards, priority);
         return true;
     }
 
     @Override
     public Matcher<T, MaskType> toMatcher() {
-        optimise();
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        optimise(options.rangeCheckpointInterval());
         store.optimise(wildcards);
+        this.intervals = LongIntervalIndex.build(store, wildcards, children, options.intervalIndexBudget());
         return this;
     }
 
@@ -56,23 +147,27 @@ public class LongMatcher<T, MaskType extends Mask<MaskType>> implements Constrai
         return avgCardinality(children, LongNode::averageSelectivity);
     }
 
-    private void add(Operation relation, int threshold, int priority) {
+    private void add(Operation relation, long threshold, int priority) {
+        node(relation).add(threshold, priority);
+    }
+
+    private LongNode<MaskType> node(Operation relation) {
         var existing = children[relation.ordinal()];
         if (null == existing) {
             existing = children[relation.ordinal()] = new LongNode<>(store, relation);
         }
-        existing.add(threshold, priority);
+        return existing;
     }
 
     @SuppressWarnings("unchecked")
-    private void optimise() {
+    private void optimise(int checkpointInterval) {
         int nullCount = nullCount(children);
         if (nullCount > 0) {
             var newChildren = (LongNode<MaskType>[]) newArray(LongNode.class, children.length - nullCount);
             int i = 0;
             for (var child : children) {
                 if (null != child) {
-                    newChildren[i++] = child.optimise();
+                    newChildren[i++] = child.optimise(checkpointInterval);
                 }
             }
             children = newChildren;
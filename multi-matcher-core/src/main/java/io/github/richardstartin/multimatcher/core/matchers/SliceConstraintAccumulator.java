@@ -0,0 +1,43 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.LiteralIndex;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.HashMap;
+import java.util.function.Function;
+
+/**
+ * Accumulates equality constraints on string literals, but matches a
+ * representation of the value which needn't be a <code>String</code>,
+ * such as UTF-8 bytes in a buffer, so the value is never copied or decoded.
+ *
+ * @param <Input>    the type of the classified objects
+ * @param <S>        the representation of the value
+ * @param <MaskType> the type of mask
+ */
+public class SliceConstraintAccumulator<Input, S, MaskType extends Mask<MaskType>>
+        extends GenericConstraintAccumulator<Input, String, MaskType> {
+
+    private final Function<Input, S> sliceAccessor;
+    private final Function<Object2IntMap<String>, LiteralIndex<S>> indexer;
+
+    public SliceConstraintAccumulator(Function<Input, S> accessor,
+                                      Function<Object2IntMap<String>, LiteralIndex<S>> indexer,
+                                      MaskStore<MaskType> maskStore,
+                                      int max) {
+        super(Object2IntOpenHashMap::new, HashMap::new, String.class, maskStore, max);
+        this.sliceAccessor = accessor;
+        this.indexer = indexer;
+    }
+
+    @Override
+    public Matcher<Input, MaskType> toMatcher(MatcherOptions options) {
+        return new SliceMatcher<>(store, sliceAccessor, indexer.apply(computeLiteralMasks()),
+                store.storeMask(wildcard));
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.LiteralIndex;
+
+import java.util.function.Function;
+
+class SliceMatcher<T, S, MaskType extends Mask<MaskType>> implements Matcher<T, MaskType> {
+
+    private final Function<T, S> accessor;
+    private final LiteralIndex<S> masks;
+    private final int wildcard;
+    private final MaskStore<MaskType> store;
+
+    SliceMatcher(MaskStore<MaskType> store,
+                 Function<T, S> accessor,
+                 LiteralIndex<S> masks,
+                 int wildcard) {
+        this.accessor = accessor;
+        this.masks = masks;
+        this.wildcard = wildcard;
+        this.store = store;
+    }
+
+    @Override
+    public void match(T input, MaskType context, MaskType temp) {
+        store.andInto(context, masks.get(accessor.apply(input), wildcard));
+    }
+
+    @Override
+    public int resolve(T input, int[] ids, int offset) {
+        ids[offset] = masks.get(accessor.apply(input), wildcard);
+        return 1;
+    }
+
+    @Override
+    public long matchWord(T input, WordMask.WordStore words) {
+        return words.word(masks.get(accessor.apply(input), wildcard));
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        return 1;
+    }
+
+    @Override
+    public float averageSelectivity() {
+        return (float)store.averageSelectivity(masks.ids());
+    }
+
+}
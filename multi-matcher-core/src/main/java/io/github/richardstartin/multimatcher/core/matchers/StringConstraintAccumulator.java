@@ -1,17 +1,29 @@
 package io.github.richardstartin.multimatcher.core.matchers;
 
+import io.github.richardstartin.multimatcher.core.Constraint;
 import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.PrefixTrie;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.SubstringAutomaton;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+
 public class StringConstraintAccumulator<Input, MaskType extends Mask<MaskType>>
         extends GenericConstraintAccumulator<Input, String, MaskType> {
 
+    private final Map<String, MaskType> prefixes = new HashMap<>();
+    // keyed by the reversed suffix, so suffixes can be matched with a trie walked backwards
+    private final Map<String, MaskType> reversedSuffixes = new HashMap<>();
+    private final Map<String, MaskType> substrings = new HashMap<>();
+
     public StringConstraintAccumulator(Function<Input, String> accessor,
                                        MaskStore<MaskType> maskStore,
                                        int max) {
@@ -24,4 +36,42 @@ public class StringConstraintAccumulator<Input, MaskType extends Mask<MaskType>>
                                         int max) {
         super(mapSupplier, HashMap::new, accessor, maskStore, max);
     }
+
+    @Override
+    public boolean addConstraint(Constraint constraint, int priority) {
+        String value;
+        switch (constraint.getOperation()) {
+            case STARTS_WITH:
+                value = constraint.getValue();
+                update(prefixes, value, priority);
+                return true;
+            case ENDS_WITH:
+                value = constraint.getValue();
+                update(reversedSuffixes, new StringBuilder(value).reverse().toString(), priority);
+                return true;
+            case CONTAINS:
+                value = constraint.getValue();
+                update(substrings, value, priority);
+                return true;
+            default:
+                return super.addConstraint(constraint, priority);
+        }
+    }
+
+    @Override
+    public Matcher<Input, MaskType> toMatcher(MatcherOptions options) {
+        if (prefixes.isEmpty() && reversedSuffixes.isEmpty() && substrings.isEmpty()) {
+            return super.toMatcher(options);
+        }
+        var masks = freeze(computeLiteralMasks(), options);
+        return new StringMatcher<>(store, accessor, masks, store.storeMask(wildcard),
+                prefixes.isEmpty() ? null : PrefixTrie.build(store, prefixes),
+                reversedSuffixes.isEmpty() ? null : PrefixTrie.build(store, reversedSuffixes),
+                substrings.isEmpty() ? null : SubstringAutomaton.build(store, substrings));
+    }
+
+    private void update(Map<String, MaskType> patterns, String pattern, int priority) {
+        patterns.computeIfAbsent(pattern, p -> store.newMask()).add(priority);
+        wildcard.remove(priority);
+    }
 }
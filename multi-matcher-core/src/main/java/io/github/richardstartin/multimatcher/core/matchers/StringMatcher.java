@@ -0,0 +1,124 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.PrefixTrie;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.SubstringAutomaton;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.function.Function;
+
+/**
+ * Matches literal constraints with a hash lookup, prefix and suffix
+ * constraints with walks over tries, and substring constraints with a scan
+ * through an Aho-Corasick automaton, and takes the union of the masks.
+ * Any of the tries or the automaton may be null if there are no such constraints.
+ */
+class StringMatcher<T, MaskType extends Mask<MaskType>> implements Matcher<T, MaskType> {
+
+    private final Function<T, String> accessor;
+    private final Object2IntMap<String> masks;
+    private final int wildcard;
+    private final PrefixTrie prefixes;
+    private final PrefixTrie suffixes;
+    private final SubstringAutomaton substrings;
+    private final MaskStore<MaskType> store;
+
+    StringMatcher(MaskStore<MaskType> store,
+                  Function<T, String> accessor,
+                  Object2IntMap<String> masks,
+                  int wildcard,
+                  PrefixTrie prefixes,
+                  PrefixTrie suffixes,
+                  SubstringAutomaton substrings) {
+        this.accessor = accessor;
+        this.masks = masks;
+        this.wildcard = wildcard;
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.substrings = substrings;
+        this.store = store;
+    }
+
+    @Override
+    public void match(T input, MaskType context, MaskType temp) {
+        String value = accessor.apply(input);
+        store.copyInto(temp, masks.getOrDefault(value, wildcard));
+        if (null != prefixes) {
+            store.orInto(temp, prefixes.match(value));
+        }
+        if (null != suffixes) {
+            store.orInto(temp, suffixes.matchSuffix(value));
+        }
+        if (null != substrings) {
+            substrings.orInto(value, store, temp);
+        }
+        context.inPlaceAnd(temp);
+    }
+
+    @Override
+    public int resolve(T input, int[] ids, int offset) {
+        String value = accessor.apply(input);
+        int count = 0;
+        ids[offset + count++] = masks.getOrDefault(value, wildcard);
+        if (null != prefixes) {
+            count += nonZero(prefixes.match(value), ids, offset + count);
+        }
+        if (null != suffixes) {
+            count += nonZero(suffixes.matchSuffix(value), ids, offset + count);
+        }
+        if (null != substrings) {
+            count += substrings.match(value, ids, offset + count);
+        }
+        return count;
+    }
+
+    @Override
+    public long matchWord(T input, WordMask.WordStore words) {
+        String value = accessor.apply(input);
+        long word = words.word(masks.getOrDefault(value, wildcard));
+        if (null != prefixes) {
+            word |= words.word(prefixes.match(value));
+        }
+        if (null != suffixes) {
+            word |= words.word(suffixes.matchSuffix(value));
+        }
+        if (null != substrings) {
+            word |= substrings.matchWord(value, words);
+        }
+        return word;
+    }
+
+    @Override
+    public int maxResolvedIds() {
+        return 1 + (null == prefixes ? 0 : 1)
+                + (null == suffixes ? 0 : 1)
+                + (null == substrings ? 0 : substrings.distinctIds());
+    }
+
+    @Override
+    public float averageSelectivity() {
+        var ids = new IntArrayList(masks.values());
+        if (null != prefixes) {
+            ids.addElements(ids.size(), prefixes.maskIds());
+        }
+        if (null != suffixes) {
+            ids.addElements(ids.size(), suffixes.maskIds());
+        }
+        if (null != substrings) {
+            ids.addElements(ids.size(), substrings.maskIds());
+        }
+        return (float) store.averageSelectivity(ids.toIntArray());
+    }
+
+    private static int nonZero(int id, int[] ids, int offset) {
+        if (0 != id) {
+            ids[offset] = id;
+            return 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.*;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Accumulates constraints on a temporal type, which are matched as longs
+ * unless a literal can't be encoded as a long, in which case they are
+ * matched with the type's natural order instead.
+ * <p>
+ * The encoding saturates, so values beyond its range are equal to
+ * <code>Long.MIN_VALUE</code> or <code>Long.MAX_VALUE</code>. Saturation
+ * preserves the order of any value relative to a literal strictly between
+ * those bounds, so the long encoding is used only if every literal's is.
+ *
+ * @param <T>        the type of the classified objects
+ * @param <U>        the temporal type
+ * @param <MaskType> the type of mask
+ */
+public class TemporalConstraintAccumulator<T, U extends Comparable<? super U>, MaskType extends Mask<MaskType>>
+        implements ConstraintAccumulator<T, MaskType> {
+
+    private final Function<T, U> accessor;
+    private final ToLongFunction<U> encoding;
+    private final MaskStore<MaskType> store;
+    private final int max;
+    private final List<Constraint> constraints = new ArrayList<>();
+    private final List<Integer> priorities = new ArrayList<>();
+    private boolean encodable = true;
+
+    public TemporalConstraintAccumulator(Function<T, U> accessor,
+                                         ToLongFunction<U> encoding,
+                                         MaskStore<MaskType> store,
+                                         int max) {
+        this.accessor = accessor;
+        this.encoding = encoding;
+        this.store = store;
+        this.max = max;
+    }
+
+    @Override
+    public boolean addConstraint(Constraint constraint, int priority) {
+        switch (constraint.getOperation()) {
+            case IN:
+            case NOT_IN:
+                for (Object member : constraint.<Collection<?>>getValue()) {
+                    encodable &= isEncodable(member);
+                }
+                break;
+            case BETWEEN:
+                Range<?> range = constraint.getValue();
+                encodable &= isEncodable(range.getFrom()) && isEncodable(range.getTo());
+                break;
+            default:
+                encodable &= isEncodable(constraint.getValue());
+        }
+        constraints.add(constraint);
+        priorities.add(priority);
+        return true;
+    }
+
+    @Override
+    public Matcher<T, MaskType> toMatcher() {
+        return toMatcher(MatcherOptions.DEFAULT);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Matcher<T, MaskType> toMatcher(MatcherOptions options) {
+        ConstraintAccumulator<T, MaskType> accumulator = encodable
+                ? new LongMatcher<>(value -> encoding.applyAsLong(accessor.apply(value)),
+                        value -> encoding.applyAsLong((U) value), store, max)
+                : new ComparableMatcher<>(accessor, Comparator.<U>naturalOrder(), store, max);
+        for (int i = 0; i < constraints.size(); ++i) {
+            accumulator.addConstraint(constraints.get(i), priorities.get(i));
+        }
+        return accumulator.toMatcher(options);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isEncodable(Object literal) {
+        long encoded = encoding.applyAsLong((U) literal);
+        return encoded != Long.MIN_VALUE && encoded != Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.function.Function;
+
+/**
+ * Looks up a <code>CharSequence</code> among the literal values of an attribute
+ * without converting it to a <code>String</code>. The hash of a sequence is
+ * computed the same way as {@link String#hashCode()}, so the literals' hashes
+ * are their cached hash codes.
+ */
+public final class CharSequenceLiteralIndex implements LiteralIndex<CharSequence> {
+
+    private final LiteralTable<String> table;
+
+    private CharSequenceLiteralIndex(LiteralTable<String> table) {
+        this.table = table;
+    }
+
+    public static CharSequenceLiteralIndex build(Object2IntMap<String> literals) {
+        return new CharSequenceLiteralIndex(LiteralTable.build(literals, Function.identity(), String::hashCode));
+    }
+
+    @Override
+    public int get(CharSequence value, int missing) {
+        if (null == value) {
+            return missing;
+        }
+        int hash = hash(value);
+        for (int slot = table.first(hash); slot >= 0; slot = table.next(hash, slot)) {
+            if (table.key(slot).contentEquals(value)) {
+                return table.id(slot);
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public int[] ids() {
+        return table.ids();
+    }
+
+    private static int hash(CharSequence value) {
+        if (value instanceof String) {
+            return value.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
+/**
+ * A range encoding which only stores the cumulative mask of the first
+ * threshold of each block of thresholds, and leaves the other thresholds
+ * with the masks of their own rules. A match unions the cumulative mask
+ * of its block with the masks of the thresholds between it and the start
+ * of the block, so it resolves at most <code>interval</code> ids, but the
+ * cumulative masks take <code>count / interval</code> times the space of
+ * all the rules rather than <code>count</code> times.
+ * <p>
+ * This only saves space when the masks are compressed, because the masks
+ * of the thresholds are kept, and in a store of fixed width masks each of
+ * them takes as much space as a cumulative mask, so the checkpoints would
+ * only add to the footprint.
+ * <p>
+ * For reverse range encoding, blocks accumulate from their last threshold
+ * towards the end of the thresholds instead.
+ */
+final class Checkpoints {
+
+    private final int interval;
+    private final boolean reverse;
+    private final int[] ids;
+
+    private Checkpoints(int interval, boolean reverse, int[] ids) {
+        this.interval = interval;
+        this.reverse = reverse;
+        this.ids = ids;
+    }
+
+    /**
+     * Computes the cumulative masks of each block of thresholds.
+     *
+     * @param store      the mask store
+     * @param sets       the ids of the masks of the rules of each threshold, which are left as they are
+     * @param count      the number of thresholds
+     * @param interval   the number of thresholds in each block
+     * @param reverse    whether masks accumulate towards the lowest threshold
+     * @param <MaskType> the type of mask
+     * @return the checkpoints, or null if every threshold would be a checkpoint anyway,
+     * or the masks aren't compressed
+     */
+    static <MaskType extends Mask<MaskType>>
+    Checkpoints encode(MaskStore<MaskType> store, int[] sets, int count, int interval, boolean reverse) {
+        if (interval <= 1 || count <= interval || !store.isCompressed()) {
+            return null;
+        }
+        int[] ids = new int[(count + interval - 1) / interval];
+        var cumulative = store.newMask();
+        if (reverse) {
+            for (int i = count - 1; i >= 0; --i) {
+                store.orInto(cumulative, sets[i]);
+                if (i % interval == interval - 1 || i == count - 1) {
+                    ids[i / interval] = snapshot(store, cumulative);
+                }
+            }
+        } else {
+            for (int i = 0; i < count; ++i) {
+                store.orInto(cumulative, sets[i]);
+                if (i % interval == 0) {
+                    ids[i / interval] = snapshot(store, cumulative);
+                }
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            store.optimise(sets[i]);
+        }
+        return new Checkpoints(interval, reverse, ids);
+    }
+
+    /**
+     * @return the maximum number of ids resolved by a match
+     */
+    int interval() {
+        return interval;
+    }
+
+    /**
+     * Writes the ids of the masks which make up the range encoded mask of a threshold.
+     *
+     * @param sets   the ids of the masks of the rules of each threshold
+     * @param count  the number of thresholds
+     * @param index  the index of the threshold
+     * @param out    where to write the ids
+     * @param offset where to start writing
+     * @return the number of ids written
+     */
+    int match(int[] sets, int count, int index, int[] out, int offset) {
+        int block = index / interval;
+        out[offset] = ids[block];
+        int written = 1;
+        if (reverse) {
+            int end = Math.min(block * interval + interval, count) - 1;
+            for (int i = index; i < end; ++i) {
+                out[offset + written++] = sets[i];
+            }
+        } else {
+            for (int i = block * interval + 1; i <= index; ++i) {
+                out[offset + written++] = sets[i];
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Adds the range encoded mask of a threshold to a mask.
+     *
+     * @param store      the mask store
+     * @param sets       the ids of the masks of the rules of each threshold
+     * @param count      the number of thresholds
+     * @param index      the index of the threshold
+     * @param mask       the mask to add to
+     * @param <MaskType> the type of mask
+     */
+    <MaskType extends Mask<MaskType>> void orInto(MaskStore<MaskType> store, int[] sets, int count, int index,
+                                                 MaskType mask) {
+        int block = index / interval;
+        store.orInto(mask, ids[block]);
+        if (reverse) {
+            int end = Math.min(block * interval + interval, count) - 1;
+            for (int i = index; i < end; ++i) {
+                store.orInto(mask, sets[i]);
+            }
+        } else {
+            for (int i = block * interval + 1; i <= index; ++i) {
+                store.orInto(mask, sets[i]);
+            }
+        }
+    }
+
+    /**
+     * Combines the words of the masks which make up the range encoded mask of a threshold.
+     *
+     * @param words the store the masks are stored in
+     * @param sets  the ids of the masks of the rules of each threshold
+     * @param count the number of thresholds
+     * @param index the index of the threshold
+     * @return the range encoded mask
+     */
+    long matchWord(WordMask.WordStore words, int[] sets, int count, int index) {
+        int block = index / interval;
+        long word = words.word(ids[block]);
+        if (reverse) {
+            int end = Math.min(block * interval + interval, count) - 1;
+            for (int i = index; i < end; ++i) {
+                word |= words.word(sets[i]);
+            }
+        } else {
+            for (int i = block * interval + 1; i <= index; ++i) {
+                word |= words.word(sets[i]);
+            }
+        }
+        return word;
+    }
+
+    private static <MaskType extends Mask<MaskType>> int snapshot(MaskStore<MaskType> store, MaskType cumulative) {
+        var mask = cumulative.clone();
+        mask.optimise();
+        return store.storeMask(mask);
+    }
+}
@@ -3,25 +3,55 @@ package io.github.richardstartin.multimatcher.core.matchers.nodes;
 import io.github.richardstartin.multimatcher.core.Mask;
 import io.github.richardstartin.multimatcher.core.Operation;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
 import io.github.richardstartin.multimatcher.core.matchers.ClassificationNode;
 import io.github.richardstartin.multimatcher.core.matchers.MutableNode;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
-
-import static io.github.richardstartin.multimatcher.core.matchers.SelectivityHeuristics.avgCardinality;
+import java.util.UUID;
 
 public class ComparableNode<T, MaskType extends Mask<MaskType>>
         implements MutableNode<T, MaskType>, ClassificationNode<T, MaskType> {
 
     private final MaskStore<MaskType> store;
-    private final NavigableMap<T, Integer> sets;
+    private final Comparator<T> comparator;
+    // the thresholds until the node is frozen
+    private NavigableMap<T, Integer> sets;
     private final Operation operation;
+    // the mask of values which aren't thresholds, only used for inequality
+    private int otherwise;
+    // the bounds and priorities of half open ranges, until they are encoded
+    private List<T> from;
+    private List<T> to;
+    private List<Integer> priorities;
+    // the sorted thresholds and their masks once frozen, which are the masks
+    // of their own rules when range encoding with checkpoints
+    private T[] keys;
+    private int[] maskIds;
+    private Checkpoints checkpoints;
+    private SearchLayout layout = SearchLayout.SORTED;
+    private T[] eytzinger;
+    private int[] ranks;
+    private Object2IntMap<T> equality;
 
     public ComparableNode(MaskStore<MaskType> store,
                           Comparator<T> comparator,
                           Operation operation) {
+        this.comparator = comparator;
         this.sets = new TreeMap<>(comparator);
         this.operation = operation;
         this.store = store;
@@ -36,13 +66,43 @@ public class ComparableNode<T, MaskType extends Mask<MaskType>>
         store.add(set, priority);
     }
 
+    /**
+     * Adds a half open range, for nodes with the {@link Operation#BETWEEN} relation.
+     *
+     * @param from     the lower bound, inclusive
+     * @param to       the upper bound, exclusive
+     * @param priority the identity of the constraint
+     */
+    public void add(T from, T to, int priority) {
+        if (null == priorities) {
+            this.from = new ArrayList<>();
+            this.to = new ArrayList<>();
+            this.priorities = new ArrayList<>();
+        }
+        this.from.add(from);
+        this.to.add(to);
+        this.priorities.add(priority);
+    }
+
     @Override
     public int match(T value) {
+        if (null != keys) {
+            return matchFrozen(value);
+        }
         switch (operation) {
             case GE:
-            case EQ:
+                var floor = sets.floorEntry(value);
+                return null == floor ? 0 : floor.getValue();
             case LE:
+                var ceiling = sets.ceilingEntry(value);
+                return null == ceiling ? 0 : ceiling.getValue();
+            case EQ:
                 return sets.getOrDefault(value, 0);
+            case NE:
+                return sets.getOrDefault(value, otherwise);
+            case BETWEEN:
+                var start = sets.floorEntry(value);
+                return null == start ? 0 : start.getValue();
             case LT:
                 var higher = sets.higherEntry(value);
                 return null == higher ? 0 : higher.getValue();
@@ -54,23 +114,258 @@ public class ComparableNode<T, MaskType extends Mask<MaskType>>
         }
     }
 
+    private int matchFrozen(T value) {
+        switch (operation) {
+            case EQ:
+                if (null != equality) {
+                    return equality.getInt(value);
+                }
+                int eq = search(value);
+                return eq >= 0 ? maskIds[eq] : 0;
+            case NE:
+                if (null != equality) {
+                    return equality.getInt(value);
+                }
+                int ne = search(value);
+                return ne >= 0 ? maskIds[ne] : otherwise;
+            default:
+                int index = rangeIndex(value);
+                return index >= 0 && index < keys.length ? maskIds[index] : 0;
+        }
+    }
+
+    /**
+     * Writes the ids of the masks matched by a value, of which there may be
+     * more than one when range encoded with checkpoints.
+     *
+     * @param value  the value
+     * @param ids    where to write the ids
+     * @param offset where to start writing
+     * @return the number of ids written, at most {@link #maxMatchedIds()}
+     */
+    public int match(T value, int[] ids, int offset) {
+        if (null == checkpoints) {
+            int id = match(value);
+            if (0 == id) {
+                return 0;
+            }
+            ids[offset] = id;
+            return 1;
+        }
+        int index = rangeIndex(value);
+        return index >= 0 && index < keys.length
+                ? checkpoints.match(maskIds, keys.length, index, ids, offset)
+                : 0;
+    }
+
+    /**
+     * Adds the masks matched by a value to a mask.
+     *
+     * @param value the value
+     * @param mask  the mask to add to
+     */
+    public void orInto(T value, MaskType mask) {
+        if (null == checkpoints) {
+            store.orInto(mask, match(value));
+        } else {
+            int index = rangeIndex(value);
+            if (index >= 0 && index < keys.length) {
+                checkpoints.orInto(store, maskIds, keys.length, index, mask);
+            }
+        }
+    }
+
+    /**
+     * Combines the words of the masks matched by a value.
+     *
+     * @param value the value
+     * @param words the store the masks are stored in
+     * @return the union of the masks
+     */
+    public long matchWord(T value, WordMask.WordStore words) {
+        if (null == checkpoints) {
+            return words.word(match(value));
+        }
+        int index = rangeIndex(value);
+        return index >= 0 && index < keys.length ? checkpoints.matchWord(words, maskIds, keys.length, index) : 0L;
+    }
+
+    /**
+     * @return the maximum number of ids written by {@link #match(Object, int[], int)}
+     */
+    public int maxMatchedIds() {
+        return null == checkpoints ? 1 : checkpoints.interval();
+    }
+
     public ComparableNode<T, MaskType> freeze() {
+        return freeze(1);
+    }
+
+    /**
+     * Freezes the node, copying the thresholds out of the tree into arrays
+     * searched without chasing pointers or unboxing mask ids.
+     *
+     * @param checkpointInterval the number of thresholds between each cumulative
+     *                           mask when range encoding, one to make every mask cumulative
+     * @return the frozen node
+     */
+    public ComparableNode<T, MaskType> freeze(int checkpointInterval) {
+        if (null != keys) {
+            return this;
+        }
         switch (operation) {
             case GE:
             case GT:
-                rangeEncode();
-                return this;
             case LE:
             case LT:
-                reverseRangeEncode();
-                return this;
+                boolean reverse = operation == Operation.LE || operation == Operation.LT;
+                int[] ids = sets.values().stream().mapToInt(Integer::intValue).toArray();
+                this.checkpoints = Checkpoints.encode(store, ids, ids.length, checkpointInterval, reverse);
+                if (null == checkpoints) {
+                    if (reverse) {
+                        reverseRangeEncode();
+                    } else {
+                        rangeEncode();
+                    }
+                }
+                break;
+            case NE:
+                inequalityEncode();
+                break;
+            case BETWEEN:
+                intervalEncode();
+                break;
             default:
-                return this;
+        }
+        layout();
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void layout() {
+        this.keys = (T[]) sets.keySet().toArray();
+        this.maskIds = sets.values().stream().mapToInt(Integer::intValue).toArray();
+        this.sets = null;
+        if ((operation == Operation.EQ || operation == Operation.NE) && consistentWithEquals()) {
+            var map = new Object2IntOpenHashMap<T>(keys.length);
+            map.defaultReturnValue(operation == Operation.EQ ? 0 : otherwise);
+            for (int i = 0; i < keys.length; ++i) {
+                map.put(keys[i], maskIds[i]);
+            }
+            this.equality = map;
+            return;
+        }
+        this.layout = SearchLayout.forCount(keys.length);
+        if (layout == SearchLayout.EYTZINGER) {
+            this.eytzinger = Search.eytzinger(keys, keys.length);
+            this.ranks = Search.ranks(keys.length);
+        }
+    }
+
+    /*
+     * Equal values only hash to the same thresholds if the order agrees with
+     * equals, which can only be known for the natural order of types which
+     * document that it does, so BigDecimal, where 1.0 and 1.00 compare equal,
+     * is left to the search.
+     */
+    private boolean consistentWithEquals() {
+        if (comparator != NATURAL_ORDER) {
+            return false;
+        }
+        for (T key : keys) {
+            if (!(key instanceof Enum) && !CONSISTENT_WITH_EQUALS.contains(key.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final Comparator<?> NATURAL_ORDER = Comparator.naturalOrder();
+
+    private static final Set<Class<?>> CONSISTENT_WITH_EQUALS = Set.of(
+            String.class, Integer.class, Long.class, Short.class, Byte.class, Character.class,
+            Boolean.class, Double.class, Float.class, BigInteger.class, UUID.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class, Instant.class);
+
+    private int search(T value) {
+        int index;
+        switch (layout) {
+            case BRANCHLESS:
+                index = Search.lowerBound(keys, keys.length, value, comparator);
+                break;
+            case EYTZINGER:
+                index = Search.lowerBound(eytzinger, ranks, value, comparator);
+                break;
+            default:
+                return Arrays.binarySearch(keys, value, comparator);
+        }
+        return index < keys.length && comparator.compare(keys[index], value) == 0 ? index : -(index + 1);
+    }
+
+    private int rangeIndex(T value) {
+        int pos = search(value);
+        switch (operation) {
+            case GT:
+                return (pos >= 0 ? pos : -(pos + 1)) - 1;
+            case GE:
+            case BETWEEN:
+                return pos >= 0 ? pos : -(pos + 1) - 1;
+            case LT:
+                return pos >= 0 ? pos + 1 : -(pos + 1);
+            default:
+                return pos >= 0 ? pos : -(pos + 1);
         }
     }
 
     public double averageSelectivity() {
-        return store.averageSelectivity(sets.values().stream().mapToInt(Integer::intValue).toArray());
+        return store.averageSelectivity(null == keys
+                ? sets.values().stream().mapToInt(Integer::intValue).toArray()
+                : maskIds);
+    }
+
+    /*
+     * Sweeps over the sorted bounds of the ranges, so each bound maps to the
+     * rules whose ranges contain the values from it up to the next bound.
+     */
+    private void intervalEncode() {
+        int n = null == priorities ? 0 : priorities.size();
+        Integer[] byFrom = new Integer[n];
+        Integer[] byTo = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            byFrom[i] = i;
+            byTo[i] = i;
+        }
+        Arrays.sort(byFrom, (i, j) -> comparator.compare(from.get(i), from.get(j)));
+        Arrays.sort(byTo, (i, j) -> comparator.compare(to.get(i), to.get(j)));
+        var current = store.newMask();
+        int starts = 0;
+        int ends = 0;
+        while (ends < n) {
+            T bound = starts < n && comparator.compare(from.get(byFrom[starts]), to.get(byTo[ends])) <= 0
+                    ? from.get(byFrom[starts])
+                    : to.get(byTo[ends]);
+            while (starts < n && comparator.compare(from.get(byFrom[starts]), bound) == 0) {
+                current.add(priorities.get(byFrom[starts++]));
+            }
+            while (ends < n && comparator.compare(to.get(byTo[ends]), bound) == 0) {
+                current.remove(priorities.get(byTo[ends++]));
+            }
+            var snapshot = current.clone();
+            snapshot.optimise();
+            sets.put(bound, store.storeMask(snapshot));
+        }
+        this.from = null;
+        this.to = null;
+        this.priorities = null;
+    }
+
+    private void inequalityEncode() {
+        int[] ids = sets.values().stream().mapToInt(Integer::intValue).toArray();
+        this.otherwise = Nodes.inequalityEncode(store, ids, ids.length);
+        int i = 0;
+        for (var set : sets.entrySet()) {
+            set.setValue(ids[i++]);
+        }
     }
 
     private void rangeEncode() {
@@ -95,6 +390,10 @@ public class ComparableNode<T, MaskType extends Mask<MaskType>>
 
     @Override
     public String toString() {
-        return Nodes.toString(sets.size(), operation, sets);
+        return null == keys
+                ? Nodes.toString(sets.size(), operation, sets)
+                : Nodes.toString(keys.length, operation,
+                Arrays.asList(keys).iterator(),
+                Arrays.stream(maskIds).iterator());
     }
 }
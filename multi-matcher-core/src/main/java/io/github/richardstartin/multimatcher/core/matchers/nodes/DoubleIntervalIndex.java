@@ -0,0 +1,69 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+
+import java.util.Arrays;
+
+/**
+ * Merges the thresholds of all the nodes of an attribute into one sorted
+ * array, and maps each elementary interval between them to a single mask
+ * which already includes the wildcards, so a value is matched with one search.
+ */
+public class DoubleIntervalIndex {
+
+    private final double[] thresholds;
+    private final int[] masks;
+
+    private DoubleIntervalIndex(double[] thresholds, int[] masks) {
+        this.thresholds = thresholds;
+        this.masks = masks;
+    }
+
+    /**
+     * Builds an interval index over the frozen nodes of an attribute.
+     *
+     * @param store     the mask store
+     * @param wildcards the id of the mask of constraints on other attributes
+     * @param nodes     the frozen nodes
+     * @param budget    the maximum size of the new masks in bytes
+     * @param <MaskType> the type of mask
+     * @return the index, or null if it would exceed the budget
+     */
+    public static <MaskType extends Mask<MaskType>>
+    DoubleIntervalIndex build(MaskStore<MaskType> store, int wildcards, DoubleNode<MaskType>[] nodes, long budget) {
+        if (budget <= 0 || nodes.length == 0) {
+            return null;
+        }
+        double[] thresholds = Arrays.stream(nodes)
+                .map(DoubleNode::thresholds)
+                .flatMapToDouble(Arrays::stream)
+                .sorted()
+                .distinct()
+                .toArray();
+        int maxIds = Arrays.stream(nodes).mapToInt(DoubleNode::maxMatchedIds).sum();
+        int[] masks = IntervalMasks.build(store, wildcards, 2 * thresholds.length + 1, maxIds, budget,
+                (region, ids) -> {
+                    double value = representative(thresholds, region);
+                    int count = 0;
+                    for (var node : nodes) {
+                        count += node.match(value, ids, count);
+                    }
+                    return count;
+                });
+        return null == masks ? null : new DoubleIntervalIndex(thresholds, masks);
+    }
+
+    public int match(double value) {
+        return masks[IntervalMasks.region(Arrays.binarySearch(thresholds, value))];
+    }
+
+    private static double representative(double[] thresholds, int region) {
+        int i = region >>> 1;
+        if ((region & 1) == 1) {
+            return thresholds[i];
+        }
+        // any value in the open interval below the threshold, or above the last threshold
+        return i < thresholds.length ? Math.nextDown(thresholds[i]) : Math.nextUp(thresholds[i - 1]);
+    }
+}
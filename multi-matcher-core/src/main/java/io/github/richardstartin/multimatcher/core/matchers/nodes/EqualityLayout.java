@@ -0,0 +1,46 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+/**
+ * How the thresholds of a frozen node with an equality relation are
+ * indexed.
+ */
+public enum EqualityLayout {
+    /**
+     * Searched like any other relation, see {@link SearchLayout}.
+     */
+    SEARCH,
+    /**
+     * A table of mask ids indexed by the value minus the smallest threshold.
+     */
+    TABLE,
+    /**
+     * An open addressing hash table with linear probing.
+     */
+    HASH;
+
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+    // a table this small is no bigger than a hash table of a few thresholds
+    private static final int SMALL_TABLE_SIZE = 1 << 8;
+    private static final int TABLE_SIZE_PER_THRESHOLD = 8;
+    private static final int HASH_THRESHOLD = 4;
+
+    /**
+     * Chooses the fastest layout for thresholds which doesn't take too much space.
+     * A table is used if it is tiny, or the thresholds are dense enough,
+     * otherwise a hash table unless there are too few thresholds to bother.
+     *
+     * @param count the number of thresholds
+     * @param range the difference between the largest and smallest thresholds
+     * @return the layout to use
+     */
+    public static EqualityLayout forThresholds(int count, long range) {
+        if (count == 0) {
+            return SEARCH;
+        }
+        if (range >= 0 && range < MAX_TABLE_SIZE
+                && (range < SMALL_TABLE_SIZE || range < (long) count * TABLE_SIZE_PER_THRESHOLD)) {
+            return TABLE;
+        }
+        return count >= HASH_THRESHOLD ? HASH : SEARCH;
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * The murmur3 finalizer, a bijection which mixes every bit of the input
+     * into every bit of the output, so weak hashes spread over a table.
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
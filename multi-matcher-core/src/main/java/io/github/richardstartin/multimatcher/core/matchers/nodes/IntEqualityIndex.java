@@ -0,0 +1,91 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+/**
+ * Maps int thresholds to mask ids in constant time, by direct lookup
+ * into a table or by hashing. Mask id zero is reserved for the empty
+ * mask, so it doubles as the marker for absent values and empty slots.
+ */
+public final class IntEqualityIndex {
+
+    private final EqualityLayout layout;
+    private final int min;
+    private final int[] keys;
+    private final int[] values;
+    private final int shift;
+
+    private IntEqualityIndex(EqualityLayout layout, int min, int[] keys, int[] values, int shift) {
+        this.layout = layout;
+        this.min = min;
+        this.keys = keys;
+        this.values = values;
+        this.shift = shift;
+    }
+
+    /**
+     * Indexes sorted thresholds.
+     *
+     * @param thresholds the distinct thresholds in ascending order
+     * @param ids        the non-zero mask id of each threshold
+     * @param count      the number of thresholds
+     * @param layout     either {@link EqualityLayout#TABLE} or {@link EqualityLayout#HASH}
+     * @return the index
+     */
+    public static IntEqualityIndex of(int[] thresholds, int[] ids, int count, EqualityLayout layout) {
+        switch (layout) {
+            case TABLE: {
+                int min = count == 0 ? 0 : thresholds[0];
+                int[] table = new int[count == 0 ? 0 : thresholds[count - 1] - min + 1];
+                for (int i = 0; i < count; ++i) {
+                    table[thresholds[i] - min] = ids[i];
+                }
+                return new IntEqualityIndex(layout, min, null, table, 0);
+            }
+            case HASH: {
+                int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(count)) + 1;
+                int[] keys = new int[1 << bits];
+                int[] values = new int[1 << bits];
+                int shift = 32 - bits;
+                for (int i = 0; i < count; ++i) {
+                    int slot = hash(thresholds[i], shift);
+                    while (values[slot] != 0) {
+                        slot = (slot + 1) & (values.length - 1);
+                    }
+                    keys[slot] = thresholds[i];
+                    values[slot] = ids[i];
+                }
+                return new IntEqualityIndex(layout, 0, keys, values, shift);
+            }
+            default:
+                throw new IllegalArgumentException("Can't build an equality index with layout " + layout);
+        }
+    }
+
+    public EqualityLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @param value the value
+     * @return the mask id of the value, or zero if it isn't a threshold
+     */
+    public int get(int value) {
+        if (layout == EqualityLayout.TABLE) {
+            // negative offsets wrap round to large unsigned offsets
+            int offset = value - min;
+            return Integer.compareUnsigned(offset, values.length) < 0 ? values[offset] : 0;
+        }
+        int slot = hash(value, shift);
+        int id;
+        while ((id = values[slot]) != 0) {
+            if (keys[slot] == value) {
+                return id;
+            }
+            slot = (slot + 1) & (values.length - 1);
+        }
+        return 0;
+    }
+
+    private static int hash(int value, int shift) {
+        return (value * 0x9E3779B9) >>> shift;
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+
+class IntervalMasks {
+
+    interface Region {
+        /**
+         * Writes the ids of the masks matched by any value in the region
+         *
+         * @param region the index of the region
+         * @param ids    receives the mask ids
+         * @return the number of ids written
+         */
+        int match(int region, int[] ids);
+    }
+
+    /**
+     * Precomputes the union of the wildcard mask and the masks matched in each
+     * region, reusing the previous region's mask when they are equal.
+     *
+     * @param store     the mask store
+     * @param wildcards the id of the mask of constraints on other attributes
+     * @param regions   the number of regions
+     * @param nodes     the number of nodes which can match in a region
+     * @param budget    the maximum size of the new masks in bytes
+     * @param region    computes the masks matched in a region
+     * @return the mask id of each region, or null if the budget would be exceeded
+     */
+    static <MaskType extends Mask<MaskType>> int[] build(MaskStore<MaskType> store,
+                                                         int wildcards,
+                                                         int regions,
+                                                         int nodes,
+                                                         long budget,
+                                                         Region region) {
+        long size = (long) regions * Integer.BYTES;
+        if (size > budget) {
+            return null;
+        }
+        var wildcard = store.getMask(wildcards);
+        var masks = new Object[regions];
+        int[] ids = new int[nodes];
+        MaskType previous = null;
+        for (int r = 0; r < regions; ++r) {
+            var mask = wildcard.clone();
+            int count = region.match(r, ids);
+            for (int i = 0; i < count; ++i) {
+                if (0 != ids[i]) {
+                    mask.inPlaceOr(store.getMask(ids[i]));
+                }
+            }
+            if (mask.equals(previous)) {
+                masks[r] = previous;
+            } else {
+                size += mask.sizeInBytes();
+                if (size > budget) {
+                    return null;
+                }
+                masks[r] = previous = mask;
+            }
+        }
+        int[] maskIds = new int[regions];
+        Object stored = null;
+        for (int r = 0; r < regions; ++r) {
+            if (masks[r] == stored) {
+                maskIds[r] = maskIds[r - 1];
+            } else {
+                @SuppressWarnings("unchecked")
+                var mask = (MaskType) masks[r];
+                maskIds[r] = store.storeMask(mask);
+                store.optimise(maskIds[r]);
+                stored = mask;
+            }
+        }
+        return maskIds;
+    }
+
+    /**
+     * Regions alternate between the open intervals around the thresholds and
+     * the thresholds themselves, so the region of a value is computed from
+     * its binary search position.
+     *
+     * @param position the result of searching the sorted thresholds for the value
+     * @return the index of the value's region
+     */
+    static int region(int position) {
+        return position >= 0 ? 2 * position + 1 : -2 * (position + 1);
+    }
+
+}
@@ -0,0 +1,24 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+/**
+ * A frozen index of the literal values of a string attribute, which can be
+ * probed with a representation of a value other than a <code>String</code>,
+ * so matching it needs neither a copy nor a decode.
+ *
+ * @param <S> the representation of the values
+ */
+public interface LiteralIndex<S> {
+
+    /**
+     * @param value   the value
+     * @param missing the id to return if the value isn't a literal
+     * @return the mask id of the literal equal to the value
+     */
+    int get(S value, int missing);
+
+    /**
+     * @return the mask ids of the literals
+     */
+    int[] ids();
+
+}
@@ -0,0 +1,91 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * An open addressing table from encoded literals to mask ids, with linear
+ * probing and at most half full. Comparing a value with the keys is left
+ * to the index which owns the table, so values needn't be encoded like
+ * the keys to be looked up.
+ *
+ * @param <K> the encoding of the literals
+ */
+final class LiteralTable<K> {
+
+    private final Object[] keys;
+    private final int[] hashes;
+    private final int[] ids;
+    private final int[] literalIds;
+
+    private LiteralTable(Object[] keys, int[] hashes, int[] ids, int[] literalIds) {
+        this.keys = keys;
+        this.hashes = hashes;
+        this.ids = ids;
+        this.literalIds = literalIds;
+    }
+
+    static <K> LiteralTable<K> build(Object2IntMap<String> literals,
+                                     Function<String, K> encoding,
+                                     ToIntFunction<K> hashing) {
+        int capacity = Integer.highestOneBit(Math.max(1, literals.size()) * 2 - 1) << 1;
+        Object[] keys = new Object[capacity];
+        int[] hashes = new int[capacity];
+        int[] ids = new int[capacity];
+        for (var literal : literals.object2IntEntrySet()) {
+            K key = encoding.apply(literal.getKey());
+            int hash = hashing.applyAsInt(key);
+            int slot = Hashing.mix(hash) & (capacity - 1);
+            while (null != keys[slot]) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            ids[slot] = literal.getIntValue();
+        }
+        return new LiteralTable<>(keys, hashes, ids, literals.values().toIntArray());
+    }
+
+    /**
+     * @param hash the hash of a value
+     * @return the first slot with a key with the hash, or -1 if there is none
+     */
+    int first(int hash) {
+        return find(hash, Hashing.mix(hash));
+    }
+
+    /**
+     * @param hash the hash of a value
+     * @param slot the last slot with a key with the hash
+     * @return the next slot with a key with the hash, or -1 if there is none
+     */
+    int next(int hash, int slot) {
+        return find(hash, slot + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    K key(int slot) {
+        return (K) keys[slot];
+    }
+
+    int id(int slot) {
+        return ids[slot];
+    }
+
+    int[] ids() {
+        return literalIds;
+    }
+
+    private int find(int hash, int slot) {
+        int mask = keys.length - 1;
+        // there is always an empty slot, because the table is at most half full
+        for (slot &= mask; null != keys[slot]; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
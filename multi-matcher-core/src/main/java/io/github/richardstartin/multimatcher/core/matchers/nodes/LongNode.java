@@ -3,6 +3,11 @@ package io.github.richardstartin.multimatcher.core.matchers.nodes;
 import io.github.richardstartin.multimatcher.core.Mask;
 import io.github.richardstartin.multimatcher.core.Operation;
 import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 import java.util.Arrays;
 
@@ -16,6 +21,18 @@ public class LongNode<MaskType extends Mask<MaskType>> {
     private long[] thresholds = new long[4];
     private int[] sets;
     private int count = 0;
+    // the mask of values which aren't thresholds, only used for inequality
+    private int otherwise;
+    // the bounds and priorities of half open ranges, until they are encoded
+    private LongArrayList from;
+    private LongArrayList to;
+    private IntArrayList priorities;
+    // cumulative masks of blocks of thresholds, when range encoding with checkpoints
+    private Checkpoints checkpoints;
+    private SearchLayout layout = SearchLayout.SORTED;
+    private long[] eytzinger;
+    private int[] ranks;
+    private LongEqualityIndex equality;
 
     public LongNode(MaskStore<MaskType> factory, Operation relation) {
         this.relation = relation;
@@ -62,6 +79,24 @@ public class LongNode<MaskType extends Mask<MaskType>> {
         }
     }
 
+    /**
+     * Adds a half open range, for nodes with the {@link Operation#BETWEEN} relation.
+     *
+     * @param from     the lower bound, inclusive
+     * @param to       the upper bound, exclusive
+     * @param priority the identity of the constraint
+     */
+    public void add(long from, long to, int priority) {
+        if (null == priorities) {
+            this.from = new LongArrayList();
+            this.to = new LongArrayList();
+            this.priorities = new IntArrayList();
+        }
+        this.from.add(from);
+        this.to.add(to);
+        this.priorities.add(priority);
+    }
+
     public int match(long value, int defaultValue) {
         switch (relation) {
             case GT:
@@ -74,61 +109,246 @@ public class LongNode<MaskType extends Mask<MaskType>> {
                 return findReverseRangeEncodedInclusive(value);
             case EQ:
                 return findEqualityEncoded(value);
+            case NE:
+                return findInequalityEncoded(value);
+            case BETWEEN:
+                return findRangeEncodedInclusive(value);
             default:
                 return defaultValue;
         }
     }
 
 
+    long[] thresholds() {
+        return Arrays.copyOf(thresholds, count);
+    }
+
     public double averageSelectivity() {
         return factory.averageSelectivity(sets);
     }
 
+    /**
+     * Writes the ids of the masks matched by a value, of which there may be
+     * more than one when range encoded with checkpoints.
+     *
+     * @param value  the value
+     * @param ids    where to write the ids
+     * @param offset where to start writing
+     * @return the number of ids written, at most {@link #maxMatchedIds()}
+     */
+    public int match(long value, int[] ids, int offset) {
+        if (null == checkpoints) {
+            int id = match(value, 0);
+            if (0 == id) {
+                return 0;
+            }
+            ids[offset] = id;
+            return 1;
+        }
+        int index = rangeIndex(value);
+        return index >= 0 && index < count ? checkpoints.match(sets, count, index, ids, offset) : 0;
+    }
+
+    /**
+     * Adds the masks matched by a value to a mask.
+     *
+     * @param value the value
+     * @param mask  the mask to add to
+     */
+    public void orInto(long value, MaskType mask) {
+        if (null == checkpoints) {
+            factory.orInto(mask, match(value, 0));
+        } else {
+            int index = rangeIndex(value);
+            if (index >= 0 && index < count) {
+                checkpoints.orInto(factory, sets, count, index, mask);
+            }
+        }
+    }
+
+    /**
+     * Combines the words of the masks matched by a value.
+     *
+     * @param value the value
+     * @param words the store the masks are stored in
+     * @return the union of the masks
+     */
+    public long matchWord(long value, WordMask.WordStore words) {
+        if (null == checkpoints) {
+            return words.word(match(value, 0));
+        }
+        int index = rangeIndex(value);
+        return index >= 0 && index < count ? checkpoints.matchWord(words, sets, count, index) : 0L;
+    }
+
+    /**
+     * @return the maximum number of ids written by {@link #match(long, int[], int)}
+     */
+    public int maxMatchedIds() {
+        return null == checkpoints ? 1 : checkpoints.interval();
+    }
+
     public LongNode<MaskType> optimise() {
+        return optimise(1);
+    }
+
+    /**
+     * Freezes the node.
+     *
+     * @param checkpointInterval the number of thresholds between each cumulative
+     *                           mask when range encoding, one to make every mask cumulative
+     * @return the frozen node
+     */
+    public LongNode<MaskType> optimise(int checkpointInterval) {
         switch (relation) {
             case GE:
             case GT:
-                rangeEncode();
+                this.checkpoints = Checkpoints.encode(factory, sets, count, checkpointInterval, false);
+                if (null == checkpoints) {
+                    rangeEncode();
+                }
                 break;
             case LE:
             case LT:
-                reverseRangeEncode();
+                this.checkpoints = Checkpoints.encode(factory, sets, count, checkpointInterval, true);
+                if (null == checkpoints) {
+                    reverseRangeEncode();
+                }
+                break;
+            case NE:
+                this.otherwise = Nodes.inequalityEncode(factory, sets, count);
+                break;
+            case BETWEEN:
+                intervalEncode();
                 break;
             default:
         }
         trim();
+        layout();
         return this;
     }
 
+    private int search(long value) {
+        int index;
+        switch (layout) {
+            case BRANCHLESS:
+                index = Search.lowerBound(thresholds, count, value);
+                break;
+            case EYTZINGER:
+                index = Search.lowerBound(eytzinger, ranks, value);
+                break;
+            default:
+                return Arrays.binarySearch(thresholds, 0, count, value);
+        }
+        return index < count && thresholds[index] == value ? index : -(index + 1);
+    }
+
+    private void layout() {
+        if (relation == Operation.EQ && count > 0) {
+            var equalityLayout = EqualityLayout.forThresholds(count, thresholds[count - 1] - thresholds[0]);
+            if (equalityLayout != EqualityLayout.SEARCH) {
+                this.equality = LongEqualityIndex.of(thresholds, sets, count, equalityLayout);
+                return;
+            }
+        }
+        this.layout = SearchLayout.forCount(count);
+        if (layout == SearchLayout.EYTZINGER) {
+            this.eytzinger = Search.eytzinger(thresholds, count);
+            this.ranks = Search.ranks(count);
+        }
+    }
+
+    private int rangeIndex(long value) {
+        int pos = search(value);
+        switch (relation) {
+            case GT:
+                return (pos >= 0 ? pos : -(pos + 1)) - 1;
+            case GE:
+                return pos >= 0 ? pos : -(pos + 1) - 1;
+            case LT:
+                return pos >= 0 ? pos + 1 : -(pos + 1);
+            default:
+                return pos >= 0 ? pos : -(pos + 1);
+        }
+    }
+
     private int findEqualityEncoded(long value) {
-        int index = Arrays.binarySearch(thresholds, 0, count, value);
+        if (null != equality) {
+            return equality.get(value);
+        }
+        int index = search(value);
         return index >= 0 ? sets[index] : 0;
     }
 
+    private int findInequalityEncoded(long value) {
+        int index = search(value);
+        return index >= 0 ? sets[index] : otherwise;
+    }
+
     private int findRangeEncoded(long value) {
-        int pos = Arrays.binarySearch(thresholds, 0, count, value);
+        int pos = search(value);
         int index = (pos >= 0 ? pos : -(pos + 1)) - 1;
         return index >= 0 && index < count ? sets[index] : 0;
     }
 
     private int findRangeEncodedInclusive(long value) {
-        int pos = Arrays.binarySearch(thresholds, 0, count, value);
+        int pos = search(value);
         int index = (pos >= 0 ? pos : -(pos + 1) - 1);
         return index >= 0 && index < count ? sets[index] : 0;
     }
 
     private int findReverseRangeEncoded(long value) {
-        int pos = Arrays.binarySearch(thresholds, 0, count, value);
+        int pos = search(value);
         int index = (pos >= 0 ? pos + 1 : -(pos + 1));
         return index >= 0 && index < count ? sets[index] : 0;
     }
 
     private int findReverseRangeEncodedInclusive(long value) {
-        int pos = Arrays.binarySearch(thresholds, 0, count, value);
+        int pos = search(value);
         int index = (pos >= 0 ? pos : -(pos + 1));
         return index < count ? sets[index] : 0;
     }
 
+    /*
+     * Sweeps over the sorted bounds of the ranges, so each bound maps to the
+     * rules whose ranges contain the values from it up to the next bound.
+     */
+    private void intervalEncode() {
+        int n = null == priorities ? 0 : priorities.size();
+        int[] byFrom = new int[n];
+        int[] byTo = new int[n];
+        for (int i = 0; i < n; ++i) {
+            byFrom[i] = i;
+            byTo[i] = i;
+        }
+        IntArrays.quickSort(byFrom, (i, j) -> Long.compare(from.getLong(i), from.getLong(j)));
+        IntArrays.quickSort(byTo, (i, j) -> Long.compare(to.getLong(i), to.getLong(j)));
+        thresholds = new long[2 * n];
+        sets = new int[2 * n];
+        count = 0;
+        var current = factory.newMask();
+        int starts = 0;
+        int ends = 0;
+        while (ends < n) {
+            long bound = starts < n && Long.compare(from.getLong(byFrom[starts]), to.getLong(byTo[ends])) <= 0
+                    ? from.getLong(byFrom[starts])
+                    : to.getLong(byTo[ends]);
+            while (starts < n && Long.compare(from.getLong(byFrom[starts]), bound) == 0) {
+                current.add(priorities.getInt(byFrom[starts++]));
+            }
+            while (ends < n && Long.compare(to.getLong(byTo[ends]), bound) == 0) {
+                current.remove(priorities.getInt(byTo[ends++]));
+            }
+            var snapshot = current.clone();
+            snapshot.optimise();
+            thresholds[count] = bound;
+            sets[count++] = factory.storeMask(snapshot);
+        }
+        this.from = null;
+        this.to = null;
+        this.priorities = null;
+    }
+
     private void reverseRangeEncode() {
         for (int i = count - 2; i >= 0; --i) {
             factory.or(sets[i + 1], sets[i]);
@@ -1,12 +1,41 @@
 package io.github.richardstartin.multimatcher.core.matchers.nodes;
 
+import io.github.richardstartin.multimatcher.core.Mask;
 import io.github.richardstartin.multimatcher.core.Operation;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
 
 import java.util.Iterator;
 import java.util.Map;
 
 class Nodes {
 
+    /**
+     * Replaces the mask of each threshold, the rules which exclude it,
+     * with the rules which don't, and computes the mask of all the rules,
+     * which is matched by any value which isn't a threshold.
+     *
+     * @param store      the mask store
+     * @param sets       the ids of the masks of the rules excluding each threshold
+     * @param count      the number of thresholds
+     * @param <MaskType> the type of mask
+     * @return the id of the mask of all the rules
+     */
+    static <MaskType extends Mask<MaskType>> int inequalityEncode(MaskStore<MaskType> store, int[] sets, int count) {
+        int all = store.newMaskId();
+        for (int i = 0; i < count; ++i) {
+            store.or(sets[i], all);
+        }
+        store.optimise(all);
+        var union = store.getMask(all);
+        for (int i = 0; i < count; ++i) {
+            var mask = union.clone();
+            mask.inPlaceAndNot(store.getMask(sets[i]));
+            mask.optimise();
+            sets[i] = store.storeMask(mask);
+        }
+        return all;
+    }
+
     public static String toString(int count,
                                   Operation op,
                                   Iterator<?> thresholds,
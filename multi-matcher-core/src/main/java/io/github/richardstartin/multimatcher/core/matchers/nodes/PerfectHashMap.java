@@ -0,0 +1,241 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.AbstractObject2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable map from the literal values of an attribute to mask ids,
+ * indexed by a minimal perfect hash built by hash and displace (CHD).
+ * <p>
+ * The keys are grouped into buckets of about four by their hash codes, and
+ * each bucket, largest first, is given the first displacement which sends
+ * all its keys to free slots. There are exactly as many slots as keys, so a
+ * lookup is a bucket's displacement, a slot, and one <code>equals</code> to
+ * reject values which aren't keys, and the map takes a key and an id per
+ * literal and an int per bucket.
+ * <p>
+ * Keys with the same hash code can't be separated, so only the first of
+ * them is hashed, and the others are kept in a small ordinary map, which is
+ * only probed when a value misses at the slot of a hash code they share.
+ */
+public final class PerfectHashMap<K> extends AbstractObject2IntMap<K> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int KEYS_PER_BUCKET = 4;
+    // the last buckets to be placed may have one free slot among millions
+    private static final long DISPLACEMENTS_PER_KEY = 64;
+
+    private final int[] displacements;
+    private final Object[] keys;
+    private final int[] values;
+    // the keys which share a hash code with a hashed key, and the slots of those keys
+    private final Object2IntMap<K> overflow;
+    private final long[] sharedSlots;
+
+    private PerfectHashMap(int[] displacements, Object[] keys, int[] values,
+                           Object2IntMap<K> overflow, long[] sharedSlots, int defaultValue) {
+        this.displacements = displacements;
+        this.keys = keys;
+        this.values = values;
+        this.overflow = overflow;
+        this.sharedSlots = sharedSlots;
+        this.defRetValue = defaultValue;
+    }
+
+    /**
+     * Builds a perfect hash over the keys of a map.
+     *
+     * @param map the map to copy
+     * @param <K> the type of key
+     * @return the perfect hash map, or null if the map is empty, has a null key,
+     * or a bucket can't be placed
+     */
+    public static <K> PerfectHashMap<K> build(Object2IntMap<K> map) {
+        if (map.isEmpty()) {
+            return null;
+        }
+        Object[] mapKeys = new Object[map.size()];
+        int[] mapValues = new int[map.size()];
+        int[] hashes = new int[map.size()];
+        var hashed = new IntOpenHashSet(map.size());
+        var overflow = new Object2IntOpenHashMap<K>();
+        overflow.defaultReturnValue(map.defaultReturnValue());
+        int size = 0;
+        for (var entry : map.object2IntEntrySet()) {
+            K key = entry.getKey();
+            if (null == key) {
+                return null;
+            }
+            if (hashed.add(key.hashCode())) {
+                mapKeys[size] = key;
+                mapValues[size] = entry.getIntValue();
+                hashes[size] = key.hashCode();
+                ++size;
+            } else {
+                overflow.put(key, entry.getIntValue());
+            }
+        }
+        int bucketCount = Math.max(1, size / KEYS_PER_BUCKET);
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int b = 0; b < bucketCount; ++b) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int k = 0; k < size; ++k) {
+            buckets.get(bucket(hashes[k], bucketCount)).add(k);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int b = 0; b < bucketCount; ++b) {
+            order[b] = b;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer b) -> buckets.get(b).size()).reversed());
+        int[] displacements = new int[bucketCount];
+        Object[] keys = new Object[size];
+        int[] values = new int[size];
+        boolean[] taken = new boolean[size];
+        int[] slots = new int[size];
+        for (int b : order) {
+            var bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            int displacement = displace(bucket, hashes, taken, slots,
+                    (int) Math.min(Integer.MAX_VALUE, DISPLACEMENTS_PER_KEY * size));
+            if (displacement < 0) {
+                return null;
+            }
+            displacements[b] = displacement;
+            for (int k = 0; k < bucket.size(); ++k) {
+                taken[slots[k]] = true;
+                keys[slots[k]] = mapKeys[bucket.get(k)];
+                values[slots[k]] = mapValues[bucket.get(k)];
+            }
+        }
+        long[] sharedSlots = null;
+        if (!overflow.isEmpty()) {
+            sharedSlots = new long[(size + 63) >>> 6];
+            for (K key : overflow.keySet()) {
+                int hash = key.hashCode();
+                int slot = slot(hash, displacements[bucket(hash, bucketCount)], size);
+                sharedSlots[slot >>> 6] |= 1L << slot;
+            }
+        }
+        return new PerfectHashMap<>(displacements, keys, values,
+                overflow.isEmpty() ? null : overflow, sharedSlots, map.defaultReturnValue());
+    }
+
+    @Override
+    public int getInt(Object key) {
+        return getOrDefault(key, defRetValue);
+    }
+
+    @Override
+    public int getOrDefault(Object key, int defaultValue) {
+        if (null == key) {
+            return defaultValue;
+        }
+        int hash = key.hashCode();
+        int slot = slot(hash, displacements[bucket(hash, displacements.length)], keys.length);
+        if (key.equals(keys[slot])) {
+            return values[slot];
+        }
+        return null != sharedSlots && (sharedSlots[slot >>> 6] & (1L << slot)) != 0
+                ? overflow.getOrDefault(key, defaultValue)
+                : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (null == key) {
+            return false;
+        }
+        int hash = key.hashCode();
+        return key.equals(keys[slot(hash, displacements[bucket(hash, displacements.length)], keys.length)])
+                || (null != overflow && overflow.containsKey(key));
+    }
+
+    @Override
+    public int size() {
+        return keys.length + (null == overflow ? 0 : overflow.size());
+    }
+
+    @Override
+    public IntCollection values() {
+        var all = new IntArrayList(values);
+        if (null != overflow) {
+            all.addAll(overflow.values());
+        }
+        return all;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ObjectSet<Entry<K>> object2IntEntrySet() {
+        // the keys are distinct, so the entries are copied without checking for duplicates
+        Object[] entries = new Object[size()];
+        int size = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            entries[size++] = new BasicEntry<>((K) keys[i], values[i]);
+        }
+        if (null != overflow) {
+            for (var entry : overflow.object2IntEntrySet()) {
+                entries[size++] = new BasicEntry<>(entry.getKey(), entry.getIntValue());
+            }
+        }
+        return new ObjectArraySet<>(entries, size);
+    }
+
+    /*
+     * Finds the first displacement which sends every key in the bucket to a
+     * distinct free slot, leaving the slots in slots, or -1 if there is none.
+     */
+    private static int displace(List<Integer> bucket, int[] hashes, boolean[] taken, int[] slots,
+                                int maxDisplacement) {
+        for (int displacement = 0; displacement < maxDisplacement; ++displacement) {
+            if (fits(bucket, hashes, taken, slots, displacement)) {
+                return displacement;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean fits(List<Integer> bucket, int[] hashes, boolean[] taken, int[] slots, int displacement) {
+        for (int k = 0; k < bucket.size(); ++k) {
+            int slot = slot(hashes[bucket.get(k)], displacement, taken.length);
+            if (taken[slot]) {
+                return false;
+            }
+            for (int j = 0; j < k; ++j) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[k] = slot;
+        }
+        return true;
+    }
+
+    private static int bucket(int hash, int bucketCount) {
+        return range(Hashing.mix(hash), bucketCount);
+    }
+
+    private static int slot(int hash, int displacement, int slotCount) {
+        return range(Hashing.mix(hash + 0x9E3779B9 * (displacement + 1)), slotCount);
+    }
+
+    // maps a uniformly distributed int onto [0, n) without a division
+    private static int range(int hash, int n) {
+        return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+    }
+}
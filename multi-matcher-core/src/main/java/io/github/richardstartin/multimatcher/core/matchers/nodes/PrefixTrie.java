@@ -0,0 +1,231 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A path compressed trie over the prefixes of an attribute. Each node
+ * stores the id of the union of the masks of every prefix which ends at
+ * or above it, so one walk over a value finds the mask of all the
+ * prefixes it starts with.
+ * <p>
+ * The frozen trie is stored in arrays in breadth first order, so the
+ * children of a node are contiguous and sorted by their first character.
+ */
+public class PrefixTrie {
+
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+
+    private final char[] labels;
+    private final int[] labelOffsets;
+    private final char[] firstChars;
+    private final int[] firstChild;
+    private final int[] ids;
+
+    private PrefixTrie(char[] labels, int[] labelOffsets, char[] firstChars, int[] firstChild, int[] ids) {
+        this.labels = labels;
+        this.labelOffsets = labelOffsets;
+        this.firstChars = firstChars;
+        this.firstChild = firstChild;
+        this.ids = ids;
+    }
+
+    /**
+     * Builds a trie from the masks of some prefixes.
+     *
+     * @param store    the mask store
+     * @param prefixes the mask of each prefix
+     * @param <MaskType> the type of mask
+     * @return the trie
+     */
+    public static <MaskType extends Mask<MaskType>>
+    PrefixTrie build(MaskStore<MaskType> store, Map<String, MaskType> prefixes) {
+        var root = new MutableNode<MaskType>("");
+        for (var prefix : prefixes.entrySet()) {
+            root.insert(prefix.getKey(), 0, prefix.getValue());
+        }
+        root.compress();
+        int nodeCount = root.count();
+        var labels = new StringBuilder();
+        int[] labelOffsets = new int[nodeCount + 1];
+        char[] firstChars = new char[nodeCount];
+        int[] firstChild = new int[nodeCount + 1];
+        int[] ids = new int[nodeCount];
+        var queue = new ArrayDeque<MutableNode<MaskType>>();
+        var cumulative = new ArrayDeque<MaskType>();
+        queue.add(root);
+        cumulative.add(store.newMask());
+        int next = 1;
+        for (int node = 0; node < nodeCount; ++node) {
+            var current = queue.poll();
+            var inherited = cumulative.poll();
+            labelOffsets[node] = labels.length();
+            labels.append(current.label);
+            firstChars[node] = current.label.isEmpty() ? 0 : current.label.charAt(0);
+            var mask = inherited;
+            if (null != current.mask) {
+                mask = inherited.clone();
+                mask.inPlaceOr(current.mask);
+                mask.optimise();
+                ids[node] = store.storeMask(mask);
+            } else {
+                ids[node] = node == 0 ? 0 : ids[current.parent];
+            }
+            firstChild[node] = next;
+            for (var child : current.children.values()) {
+                child.parent = node;
+                queue.add(child);
+                cumulative.add(mask);
+                ++next;
+            }
+        }
+        labelOffsets[nodeCount] = labels.length();
+        firstChild[nodeCount] = next;
+        char[] chars = new char[labels.length()];
+        labels.getChars(0, chars.length, chars, 0);
+        return new PrefixTrie(chars, labelOffsets, firstChars, firstChild, ids);
+    }
+
+    /**
+     * Walks the trie along a value.
+     *
+     * @param value the value
+     * @return the id of the mask of the prefixes of the value, or zero if there are none
+     */
+    public int match(CharSequence value) {
+        if (null == value) {
+            return 0;
+        }
+        int length = value.length();
+        int position = 0;
+        int node = 0;
+        while (position < length) {
+            int child = child(node, value.charAt(position));
+            if (child < 0) {
+                break;
+            }
+            int offset = labelOffsets[child];
+            int labelLength = labelOffsets[child + 1] - offset;
+            if (labelLength > length - position) {
+                break;
+            }
+            // the first character was matched when the child was found
+            for (int i = 1; i < labelLength; ++i) {
+                if (labels[offset + i] != value.charAt(position + i)) {
+                    return ids[node];
+                }
+            }
+            position += labelLength;
+            node = child;
+        }
+        return ids[node];
+    }
+
+    /**
+     * Walks the trie backwards from the end of a value, for a trie built
+     * from reversed suffixes.
+     *
+     * @param value the value
+     * @return the id of the mask of the suffixes of the value, or zero if there are none
+     */
+    public int matchSuffix(CharSequence value) {
+        if (null == value) {
+            return 0;
+        }
+        int last = value.length() - 1;
+        int position = 0;
+        int node = 0;
+        while (position <= last) {
+            int child = child(node, value.charAt(last - position));
+            if (child < 0) {
+                break;
+            }
+            int offset = labelOffsets[child];
+            int labelLength = labelOffsets[child + 1] - offset;
+            if (labelLength > last + 1 - position) {
+                break;
+            }
+            for (int i = 1; i < labelLength; ++i) {
+                if (labels[offset + i] != value.charAt(last - position - i)) {
+                    return ids[node];
+                }
+            }
+            position += labelLength;
+            node = child;
+        }
+        return ids[node];
+    }
+
+    /**
+     * @return the distinct ids of the masks in the trie
+     */
+    public int[] maskIds() {
+        return Arrays.stream(ids).filter(id -> id != 0).distinct().toArray();
+    }
+
+    private int child(int node, char c) {
+        int from = firstChild[node];
+        int to = firstChild[node + 1];
+        if (to - from <= LINEAR_SEARCH_THRESHOLD) {
+            for (int i = from; i < to; ++i) {
+                if (firstChars[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int index = Arrays.binarySearch(firstChars, from, to, c);
+        return index >= 0 ? index : -1;
+    }
+
+    private static final class MutableNode<MaskType extends Mask<MaskType>> {
+        private String label;
+        private final TreeMap<Character, MutableNode<MaskType>> children = new TreeMap<>();
+        private MaskType mask;
+        private int parent;
+
+        private MutableNode(String label) {
+            this.label = label;
+        }
+
+        void insert(String prefix, int position, MaskType mask) {
+            if (position == prefix.length()) {
+                if (null == this.mask) {
+                    this.mask = mask;
+                } else {
+                    this.mask.inPlaceOr(mask);
+                }
+                return;
+            }
+            children.computeIfAbsent(prefix.charAt(position), c -> new MutableNode<>(String.valueOf(c)))
+                    .insert(prefix, position + 1, mask);
+        }
+
+        // merges chains of nodes without masks and with only one child
+        void compress() {
+            for (var child : children.values()) {
+                while (null == child.mask && child.children.size() == 1) {
+                    var grandchild = child.children.firstEntry().getValue();
+                    child.label = child.label + grandchild.label;
+                    child.mask = grandchild.mask;
+                    child.children.clear();
+                    child.children.putAll(grandchild.children);
+                }
+                child.compress();
+            }
+        }
+
+        int count() {
+            int count = 1;
+            for (var child : children.values()) {
+                count += child.count();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Lower bound searches over the {@link SearchLayout}s. Each returns the
+ * index in sorted order of the first threshold not less than the value,
+ * or the number of thresholds if there is none.
+ */
+public final class Search {
+
+    private Search() {
+    }
+
+    public static int lowerBound(int[] sorted, int count, int value) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            // all ones when the threshold is less than the value, widened so it can't overflow
+            base += half & (int) (((long) sorted[base + half] - value) >> 63);
+            n -= half;
+        }
+        return base + (sorted[base] < value ? 1 : 0);
+    }
+
+    public static int lowerBound(long[] sorted, int count, long value) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            long threshold = sorted[base + half];
+            long difference = threshold - value;
+            // the sign of the difference, corrected for overflow, is set when the threshold is less than the value
+            base += half & (int) ((difference ^ ((threshold ^ value) & (difference ^ threshold))) >> 63);
+            n -= half;
+        }
+        return base + (sorted[base] < value ? 1 : 0);
+    }
+
+    public static <T> int lowerBound(T[] sorted, int count, T value, Comparator<? super T> comparator) {
+        if (count == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = count;
+        while (n > 1) {
+            int half = n >>> 1;
+            base += comparator.compare(sorted[base + half], value) < 0 ? half : 0;
+            n -= half;
+        }
+        return base + (comparator.compare(sorted[base], value) < 0 ? 1 : 0);
+    }
+
+    /**
+     * @param eytzinger the thresholds in Eytzinger order, starting at index one
+     * @param ranks     the index in sorted order of each threshold in Eytzinger order
+     * @param value     the value to search for
+     * @return the index of the lower bound in sorted order
+     */
+    public static int lowerBound(int[] eytzinger, int[] ranks, int value) {
+        int n = eytzinger.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (eytzinger[k] < value ? 1 : 0);
+        }
+        // the path ends with a run of right turns after the last left turn, at the lower bound
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return ranks[k];
+    }
+
+    /**
+     * @param eytzinger the thresholds in Eytzinger order, starting at index one
+     * @param ranks     the index in sorted order of each threshold in Eytzinger order
+     * @param value     the value to search for
+     * @return the index of the lower bound in sorted order
+     */
+    public static int lowerBound(long[] eytzinger, int[] ranks, long value) {
+        int n = eytzinger.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (eytzinger[k] < value ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return ranks[k];
+    }
+
+    /**
+     * @param eytzinger  the thresholds in Eytzinger order, starting at index one
+     * @param ranks      the index in sorted order of each threshold in Eytzinger order
+     * @param value      the value to search for
+     * @param comparator the order of the thresholds
+     * @return the index of the lower bound in sorted order
+     */
+    public static <T> int lowerBound(T[] eytzinger, int[] ranks, T value, Comparator<? super T> comparator) {
+        int n = eytzinger.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (comparator.compare(eytzinger[k], value) < 0 ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return ranks[k];
+    }
+
+    public static int[] eytzinger(int[] sorted, int count) {
+        int[] eytzinger = new int[count + 1];
+        fill(sorted, eytzinger, 0, 1);
+        return eytzinger;
+    }
+
+    public static long[] eytzinger(long[] sorted, int count) {
+        long[] eytzinger = new long[count + 1];
+        fill(sorted, eytzinger, 0, 1);
+        return eytzinger;
+    }
+
+    public static <T> T[] eytzinger(T[] sorted, int count) {
+        T[] eytzinger = Arrays.copyOf(sorted, count + 1);
+        fill(sorted, eytzinger, 0, 1);
+        return eytzinger;
+    }
+
+    /**
+     * Computes the index in sorted order of each position in an Eytzinger
+     * layout. Position zero, where searches for values greater than every
+     * threshold finish, maps to the number of thresholds.
+     *
+     * @param count the number of thresholds
+     * @return the ranks
+     */
+    public static int[] ranks(int count) {
+        int[] ranks = new int[count + 1];
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; ++i) {
+            sorted[i] = i;
+        }
+        fill(sorted, ranks, 0, 1);
+        ranks[0] = count;
+        return ranks;
+    }
+
+    /**
+     * Maps doubles to longs with the same order as {@link Double#compare(double, double)}
+     *
+     * @param value a double
+     * @return a long which sorts the same way
+     */
+    public static long sortable(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int fill(int[] sorted, int[] eytzinger, int i, int k) {
+        if (k < eytzinger.length) {
+            i = fill(sorted, eytzinger, i, 2 * k);
+            eytzinger[k] = sorted[i++];
+            i = fill(sorted, eytzinger, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    private static int fill(long[] sorted, long[] eytzinger, int i, int k) {
+        if (k < eytzinger.length) {
+            i = fill(sorted, eytzinger, i, 2 * k);
+            eytzinger[k] = sorted[i++];
+            i = fill(sorted, eytzinger, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    private static int fill(Object[] sorted, Object[] eytzinger, int i, int k) {
+        if (k < eytzinger.length) {
+            i = fill(sorted, eytzinger, i, 2 * k);
+            eytzinger[k] = sorted[i++];
+            i = fill(sorted, eytzinger, i, 2 * k + 1);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+/**
+ * How the thresholds of a frozen node are laid out and searched.
+ */
+public enum SearchLayout {
+    /**
+     * Sorted, searched with {@link java.util.Arrays#binarySearch(int[], int)}.
+     */
+    SORTED,
+    /**
+     * Sorted, searched with a binary search which replaces the unpredictable
+     * branch at each level with arithmetic on the sign of a comparison.
+     */
+    BRANCHLESS,
+    /**
+     * Copied into breadth first (Eytzinger) order, so the top levels of every
+     * search share cache lines, searched without unpredictable branches.
+     */
+    EYTZINGER;
+
+    private static final int EYTZINGER_THRESHOLD = 8;
+    private static final int BRANCHLESS_THRESHOLD = 1 << 18;
+
+    /**
+     * Chooses the fastest layout for a number of thresholds. Beyond a
+     * few hundred thousand thresholds the bottom levels of an Eytzinger
+     * search miss the cache as often as a sorted search, and the ranks
+     * it needs are no longer worth their space.
+     *
+     * @param count the number of thresholds
+     * @return the layout to use
+     */
+    public static SearchLayout forCount(int count) {
+        if (count < EYTZINGER_THRESHOLD) {
+            return SORTED;
+        }
+        return count < BRANCHLESS_THRESHOLD ? EYTZINGER : BRANCHLESS;
+    }
+}
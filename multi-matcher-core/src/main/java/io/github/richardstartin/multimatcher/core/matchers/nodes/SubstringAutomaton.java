@@ -0,0 +1,301 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton over the substrings of an attribute. Each
+ * state stores the id of the union of the masks of every substring which
+ * ends there, including those reached by following failure links, so a
+ * single scan over a value visits the masks of all the substrings it
+ * contains.
+ * <p>
+ * States are stored in arrays in breadth first order, so the children of
+ * a state are contiguous and sorted by character.
+ */
+public class SubstringAutomaton {
+
+    private static final int LINEAR_SEARCH_THRESHOLD = 8;
+    private static final int ROOT_TABLE_SIZE = 128;
+
+    private final char[] chars;
+    private final int[] firstChild;
+    private final int[] failure;
+    private final int[] ids;
+    // the index of the id of each state among the distinct ids, or -1 if it has none
+    private final int[] slots;
+    // transitions from the root for ASCII, which most scans return to often
+    private final int[] root;
+    private final int distinctIds;
+
+    private <MaskType extends Mask<MaskType>>
+    SubstringAutomaton(MaskStore<MaskType> store, char[] chars, int[] firstChild, int[] parents, MaskType[] masks) {
+        this.chars = chars;
+        this.firstChild = firstChild;
+        this.failure = new int[chars.length];
+        this.ids = new int[chars.length];
+        link(store, parents, masks);
+        this.slots = new int[chars.length];
+        var distinct = new Int2IntOpenHashMap();
+        distinct.defaultReturnValue(-1);
+        for (int state = 0; state < ids.length; ++state) {
+            int id = ids[state];
+            int slot = -1;
+            if (0 != id) {
+                slot = distinct.get(id);
+                if (slot < 0) {
+                    slot = distinct.size();
+                    distinct.put(id, slot);
+                }
+            }
+            slots[state] = slot;
+        }
+        this.distinctIds = distinct.size();
+        this.root = new int[ROOT_TABLE_SIZE];
+        for (int c = 0; c < ROOT_TABLE_SIZE; ++c) {
+            root[c] = Math.max(0, child(0, (char) c));
+        }
+    }
+
+    /**
+     * Builds an automaton from the masks of some substrings.
+     *
+     * @param store      the mask store
+     * @param substrings the mask of each substring
+     * @param <MaskType> the type of mask
+     * @return the automaton
+     */
+    public static <MaskType extends Mask<MaskType>>
+    SubstringAutomaton build(MaskStore<MaskType> store, Map<String, MaskType> substrings) {
+        var trie = new MutableState<MaskType>();
+        for (var substring : substrings.entrySet()) {
+            trie.insert(substring.getKey(), substring.getValue());
+        }
+        int stateCount = trie.count();
+        char[] chars = new char[stateCount];
+        int[] firstChild = new int[stateCount + 1];
+        int[] parents = new int[stateCount];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MaskType[] masks = (MaskType[]) new Mask[stateCount];
+        var queue = new ArrayDeque<MutableState<MaskType>>();
+        queue.add(trie);
+        int next = 1;
+        for (int state = 0; state < stateCount; ++state) {
+            var current = queue.poll();
+            masks[state] = current.mask;
+            firstChild[state] = next;
+            for (var child : current.children.entrySet()) {
+                chars[next] = child.getKey();
+                parents[next] = state;
+                queue.add(child.getValue());
+                ++next;
+            }
+        }
+        firstChild[stateCount] = next;
+        return new SubstringAutomaton(store, chars, firstChild, parents, masks);
+    }
+
+    /**
+     * Scans a value, and adds the masks of all the substrings it contains to a mask.
+     *
+     * @param value      the value
+     * @param store      the mask store the automaton was built with
+     * @param mask       the mask to add to
+     * @param <MaskType> the type of mask
+     */
+    public <MaskType extends Mask<MaskType>> void orInto(CharSequence value, MaskStore<MaskType> store, MaskType mask) {
+        if (null == value) {
+            return;
+        }
+        int state = 0;
+        int previous = ids[0];
+        if (0 != previous) {
+            store.orInto(mask, previous);
+        }
+        for (int i = 0; i < value.length(); ++i) {
+            state = next(state, value.charAt(i));
+            int id = ids[state];
+            if (0 != id && id != previous) {
+                store.orInto(mask, id);
+                previous = id;
+            }
+        }
+    }
+
+    /**
+     * Scans a value, combining the words of the masks of the substrings it contains.
+     *
+     * @param value the value
+     * @param words the store the masks are stored in
+     * @return the union of the masks
+     */
+    public long matchWord(CharSequence value, WordMask.WordStore words) {
+        if (null == value) {
+            return 0L;
+        }
+        int state = 0;
+        long word = words.word(ids[0]);
+        for (int i = 0; i < value.length(); ++i) {
+            state = next(state, value.charAt(i));
+            word |= words.word(ids[state]);
+        }
+        return word;
+    }
+
+    /**
+     * Scans a value, writing the distinct mask ids of the substrings it contains.
+     *
+     * @param value  the value
+     * @param out    where to write the ids
+     * @param offset where to start writing
+     * @return the number of ids written, at most {@link #distinctIds()}
+     */
+    public int match(CharSequence value, int[] out, int offset) {
+        if (null == value) {
+            return 0;
+        }
+        int count = 0;
+        int state = 0;
+        // marks the slots of the ids already written, the first 64 in a word
+        long seen = 0L;
+        long[] moreSeen = null;
+        for (int i = -1; i < value.length(); ++i) {
+            if (i >= 0) {
+                state = next(state, value.charAt(i));
+            }
+            int slot = slots[state];
+            if (slot < 0) {
+                continue;
+            }
+            if (slot < Long.SIZE) {
+                if ((seen & (1L << slot)) != 0) {
+                    continue;
+                }
+                seen |= 1L << slot;
+            } else {
+                if (null == moreSeen) {
+                    moreSeen = new long[(distinctIds + Long.SIZE - 1) >>> 6];
+                }
+                if ((moreSeen[slot >>> 6] & (1L << slot)) != 0) {
+                    continue;
+                }
+                moreSeen[slot >>> 6] |= 1L << slot;
+            }
+            out[offset + count++] = ids[state];
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of distinct mask ids in the automaton
+     */
+    public int distinctIds() {
+        return distinctIds;
+    }
+
+    /**
+     * @return the distinct ids of the masks in the automaton
+     */
+    public int[] maskIds() {
+        return Arrays.stream(ids).filter(id -> id != 0).distinct().toArray();
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            if (state == 0) {
+                return c < ROOT_TABLE_SIZE ? root[c] : Math.max(0, child(0, c));
+            }
+            int child = child(state, c);
+            if (child >= 0) {
+                return child;
+            }
+            state = failure[state];
+        }
+    }
+
+    /*
+     * Computes the failure links breadth first, so the failure state of each
+     * state, being shallower, has its output mask by the time it is needed.
+     */
+    private <MaskType extends Mask<MaskType>> void link(MaskStore<MaskType> store, int[] parents, MaskType[] masks) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MaskType[] outputs = (MaskType[]) new Mask[ids.length];
+        for (int state = 0; state < ids.length; ++state) {
+            if (state > 0) {
+                int parent = parents[state];
+                int fallback = parent == 0 ? 0 : failure[parent];
+                int target = -1;
+                if (parent != 0) {
+                    while (true) {
+                        target = child(fallback, chars[state]);
+                        if (target >= 0 || fallback == 0) {
+                            break;
+                        }
+                        fallback = failure[fallback];
+                    }
+                }
+                failure[state] = Math.max(0, target);
+            }
+            var inherited = state == 0 ? null : outputs[failure[state]];
+            if (null != masks[state]) {
+                var output = masks[state];
+                if (null != inherited) {
+                    output.inPlaceOr(inherited);
+                }
+                output.optimise();
+                outputs[state] = output;
+                ids[state] = store.storeMask(output);
+            } else {
+                outputs[state] = inherited;
+                ids[state] = state == 0 ? 0 : ids[failure[state]];
+            }
+        }
+    }
+
+    private int child(int state, char c) {
+        int from = firstChild[state];
+        int to = firstChild[state + 1];
+        if (to - from <= LINEAR_SEARCH_THRESHOLD) {
+            for (int i = from; i < to; ++i) {
+                if (chars[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int index = Arrays.binarySearch(chars, from, to, c);
+        return index >= 0 ? index : -1;
+    }
+
+    private static final class MutableState<MaskType extends Mask<MaskType>> {
+        private final TreeMap<Character, MutableState<MaskType>> children = new TreeMap<>();
+        private MaskType mask;
+
+        void insert(String substring, MaskType mask) {
+            var state = this;
+            for (int i = 0; i < substring.length(); ++i) {
+                state = state.children.computeIfAbsent(substring.charAt(i), c -> new MutableState<>());
+            }
+            if (null == state.mask) {
+                state.mask = mask;
+            } else {
+                state.mask.inPlaceOr(mask);
+            }
+        }
+
+        int count() {
+            int count = 1;
+            for (var child : children.values()) {
+                count += child.count();
+            }
+            return count;
+        }
+    }
+}
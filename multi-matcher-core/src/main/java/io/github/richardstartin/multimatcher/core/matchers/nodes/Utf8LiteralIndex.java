@@ -0,0 +1,93 @@
+package io.github.richardstartin.multimatcher.core.matchers.nodes;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Looks up the UTF-8 bytes between the position and limit of a
+ * <code>ByteBuffer</code> among the literal values of an attribute, which
+ * are encoded when the index is built, so the bytes are never decoded.
+ * The buffer's position and limit are left as they are.
+ */
+public final class Utf8LiteralIndex implements LiteralIndex<ByteBuffer> {
+
+    private final LiteralTable<byte[]> table;
+
+    private Utf8LiteralIndex(LiteralTable<byte[]> table) {
+        this.table = table;
+    }
+
+    public static Utf8LiteralIndex build(Object2IntMap<String> literals) {
+        return new Utf8LiteralIndex(LiteralTable.build(literals, literal -> literal.getBytes(UTF_8),
+                bytes -> hash(bytes, 0, bytes.length)));
+    }
+
+    @Override
+    public int get(ByteBuffer value, int missing) {
+        if (null == value) {
+            return missing;
+        }
+        if (value.hasArray()) {
+            return get(value.array(), value.arrayOffset() + value.position(), value.remaining(), missing);
+        }
+        int position = value.position();
+        int length = value.remaining();
+        int hash = 0;
+        for (int i = 0; i < length; ++i) {
+            hash = 31 * hash + value.get(position + i);
+        }
+        for (int slot = table.first(hash); slot >= 0; slot = table.next(hash, slot)) {
+            if (equals(table.key(slot), value, position, length)) {
+                return table.id(slot);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @param bytes   UTF-8 bytes containing the value
+     * @param offset  the offset of the value in the bytes
+     * @param length  the length of the value
+     * @param missing the id to return if the value isn't a literal
+     * @return the mask id of the literal equal to the value
+     */
+    public int get(byte[] bytes, int offset, int length, int missing) {
+        int hash = hash(bytes, offset, length);
+        for (int slot = table.first(hash); slot >= 0; slot = table.next(hash, slot)) {
+            byte[] key = table.key(slot);
+            if (Arrays.equals(key, 0, key.length, bytes, offset, offset + length)) {
+                return table.id(slot);
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public int[] ids() {
+        return table.ids();
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; ++i) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    private static boolean equals(byte[] key, ByteBuffer value, int position, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (key[i] != value.get(position + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
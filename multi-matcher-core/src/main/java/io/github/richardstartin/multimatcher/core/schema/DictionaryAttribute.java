@@ -0,0 +1,32 @@
+package io.github.richardstartin.multimatcher.core.schema;
+
+import io.github.richardstartin.multimatcher.core.ConstraintAccumulator;
+import io.github.richardstartin.multimatcher.core.Dictionary;
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.DictionaryConstraintAccumulator;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Creates a column of equality constraints on strings, which are matched
+ * against the dictionary codes of the classified objects.
+ *
+ * @param <Input> the type of the classified objects
+ */
+public class DictionaryAttribute<Input> implements Attribute<Input> {
+
+    private final ToIntFunction<Input> accessor;
+    private final Dictionary dictionary;
+
+    public DictionaryAttribute(ToIntFunction<Input> accessor, Dictionary dictionary) {
+        this.accessor = accessor;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public <MaskType extends Mask<MaskType>>
+    ConstraintAccumulator<Input, MaskType> newAccumulator(MaskStore<MaskType> maskStore, int max) {
+        return new DictionaryConstraintAccumulator<>(accessor, dictionary, maskStore, max);
+    }
+}
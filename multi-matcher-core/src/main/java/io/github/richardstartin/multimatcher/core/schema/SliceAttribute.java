@@ -0,0 +1,35 @@
+package io.github.richardstartin.multimatcher.core.schema;
+
+import io.github.richardstartin.multimatcher.core.ConstraintAccumulator;
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.SliceConstraintAccumulator;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.LiteralIndex;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.function.Function;
+
+/**
+ * Creates a column of equality constraints on strings, which are matched
+ * against a slice of the classified object, such as a region of a buffer,
+ * rather than a <code>String</code>.
+ *
+ * @param <Input> the type of the classified objects
+ * @param <S>     the representation of the value
+ */
+public class SliceAttribute<Input, S> implements Attribute<Input> {
+
+    private final Function<Input, S> accessor;
+    private final Function<Object2IntMap<String>, LiteralIndex<S>> indexer;
+
+    public SliceAttribute(Function<Input, S> accessor, Function<Object2IntMap<String>, LiteralIndex<S>> indexer) {
+        this.accessor = accessor;
+        this.indexer = indexer;
+    }
+
+    @Override
+    public <MaskType extends Mask<MaskType>>
+    ConstraintAccumulator<Input, MaskType> newAccumulator(MaskStore<MaskType> maskStore, int max) {
+        return new SliceConstraintAccumulator<>(accessor, indexer, maskStore, max);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.richardstartin.multimatcher.core.schema;
+
+import io.github.richardstartin.multimatcher.core.ConstraintAccumulator;
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.matchers.TemporalConstraintAccumulator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Creates a column of constraints on a temporal type, which is encoded
+ * as a long with the same order, so it can be matched with long semantics
+ * instead of with a comparator, unless a literal is out of the encoding's
+ * range.
+ *
+ * @param <T> the type of the classified objects
+ * @param <U> the temporal type
+ */
+public class TemporalAttribute<T, U extends Comparable<? super U>> implements Attribute<T> {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Function<T, U> accessor;
+    private final ToLongFunction<U> encoding;
+
+    public TemporalAttribute(Function<T, U> accessor, ToLongFunction<U> encoding) {
+        this.accessor = accessor;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public <MaskType extends Mask<MaskType>>
+    ConstraintAccumulator<T, MaskType> newAccumulator(MaskStore<MaskType> maskStore, int max) {
+        return new TemporalConstraintAccumulator<>(accessor, encoding, maskStore, max);
+    }
+
+    /**
+     * Encodes an instant as nanoseconds since the epoch, saturating
+     * outside the years 1677 to 2262.
+     *
+     * @param instant the instant
+     * @return the nanoseconds since the epoch
+     */
+    public static long epochNanos(Instant instant) {
+        return saturatedNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    /**
+     * Encodes a duration as nanoseconds, saturating beyond about 292 years.
+     *
+     * @param duration the duration
+     * @return the nanoseconds in the duration
+     */
+    public static long nanos(Duration duration) {
+        return saturatedNanos(duration.getSeconds(), duration.getNano());
+    }
+
+    private static long saturatedNanos(long seconds, int nanos) {
+        try {
+            // borrow a second when negative so the product can reach Long.MIN_VALUE
+            return seconds < 0
+                    ? Math.addExact(Math.multiplyExact(seconds + 1, NANOS_PER_SECOND), nanos - NANOS_PER_SECOND)
+                    : Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+        } catch (ArithmeticException overflow) {
+            return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
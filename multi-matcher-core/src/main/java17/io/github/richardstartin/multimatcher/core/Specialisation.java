@@ -0,0 +1,52 @@
+package io.github.richardstartin.multimatcher.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Specialises classifiers by defining a class for each, so the JIT compiler
+ * profiles and inlines each classifier's matchers separately.
+ * <p>
+ * Each classifier gets a hidden copy of {@link SpecialisedWordClassifier},
+ * whose bytes are read once, with the classifier as its class data. The
+ * copy holds the classifier's matchers in static final fields, so they are
+ * constants, and calls each one from a call site of its own.
+ */
+final class Specialisation {
+
+    private static final byte[] TEMPLATE = readTemplate();
+
+    private Specialisation() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <Input, Classification> WordClassifier<Input, Classification>
+    specialise(WordClassifier<Input, Classification> classifier) {
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClassWithClassData(TEMPLATE, classifier, true);
+            return (WordClassifier<Input, Classification>) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to specialise classifier", e);
+        }
+    }
+
+    /**
+     * @return whether classifiers are specialised
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    private static byte[] readTemplate() {
+        try (InputStream in = Specialisation.class.getResourceAsStream("SpecialisedWordClassifier.class")) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.richardstartin.multimatcher.core;
+
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * The template which {@link Specialisation} defines a hidden class from for
+ * each classifier, and which is never loaded as it is. The static initialiser
+ * reads the classifier from the class data, so the first eight matchers, the
+ * store and the mask of all the constraints are constants, and the checks on
+ * the number of matchers fold away.
+ */
+final class SpecialisedWordClassifier extends WordClassifier<Object, Object> {
+
+    private static final int UNROLLED = 8;
+    private static final WordClassifier<Object, Object> PROTOTYPE = prototype();
+    private static final Matcher<Object, WordMask>[] MATCHERS = PROTOTYPE.matchers;
+    private static final WordMask.WordStore STORE = PROTOTYPE.store;
+    private static final long MASK = PROTOTYPE.mask;
+    private static final int COUNT = MATCHERS.length;
+    private static final Matcher<Object, WordMask> M0 = matcher(0);
+    private static final Matcher<Object, WordMask> M1 = matcher(1);
+    private static final Matcher<Object, WordMask> M2 = matcher(2);
+    private static final Matcher<Object, WordMask> M3 = matcher(3);
+    private static final Matcher<Object, WordMask> M4 = matcher(4);
+    private static final Matcher<Object, WordMask> M5 = matcher(5);
+    private static final Matcher<Object, WordMask> M6 = matcher(6);
+    private static final Matcher<Object, WordMask> M7 = matcher(7);
+
+    SpecialisedWordClassifier() {
+        super(PROTOTYPE.classifications, MATCHERS, STORE, MASK);
+    }
+
+    @Override
+    long match(Object value) {
+        long word = MASK;
+        if (COUNT > 0 && word != 0L) {
+            word &= M0.matchWord(value, STORE);
+        }
+        if (COUNT > 1 && word != 0L) {
+            word &= M1.matchWord(value, STORE);
+        }
+        if (COUNT > 2 && word != 0L) {
+            word &= M2.matchWord(value, STORE);
+        }
+        if (COUNT > 3 && word != 0L) {
+            word &= M3.matchWord(value, STORE);
+        }
+        if (COUNT > 4 && word != 0L) {
+            word &= M4.matchWord(value, STORE);
+        }
+        if (COUNT > 5 && word != 0L) {
+            word &= M5.matchWord(value, STORE);
+        }
+        if (COUNT > 6 && word != 0L) {
+            word &= M6.matchWord(value, STORE);
+        }
+        if (COUNT > 7 && word != 0L) {
+            word &= M7.matchWord(value, STORE);
+        }
+        for (int i = UNROLLED; i < COUNT && word != 0L; ++i) {
+            word &= MATCHERS[i].matchWord(value, STORE);
+        }
+        return word;
+    }
+
+    private static Matcher<Object, WordMask> matcher(int index) {
+        return index < MATCHERS.length ? MATCHERS[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WordClassifier<Object, Object> prototype() {
+        try {
+            return MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, WordClassifier.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+/**
+ * The loops over words which {@link BitsetMask} and its store spend most of
+ * their time in. Each combines <code>length</code> words of a target array,
+ * from an offset, with as many words of a source array, from another offset.
+ * <p>
+ * This implementation uses the vector API when the incubating
+ * <code>jdk.incubator.vector</code> module has been added to the module
+ * graph, with <code>--add-modules jdk.incubator.vector</code>, and otherwise
+ * relies on the JIT compiler to vectorise the loops.
+ */
+final class BitsetKernels {
+
+    private static final boolean VECTORISED = ModuleLayer.boot()
+            .findModule("jdk.incubator.vector")
+            .isPresent();
+
+    private BitsetKernels() {
+    }
+
+    static void and(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        if (VECTORISED) {
+            VectorBitsetKernels.and(target, targetOffset, source, sourceOffset, length);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                target[targetOffset + i] &= source[sourceOffset + i];
+            }
+        }
+    }
+
+    static void or(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        if (VECTORISED) {
+            VectorBitsetKernels.or(target, targetOffset, source, sourceOffset, length);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                target[targetOffset + i] |= source[sourceOffset + i];
+            }
+        }
+    }
+
+    static void andNot(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        if (VECTORISED) {
+            VectorBitsetKernels.andNot(target, targetOffset, source, sourceOffset, length);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                target[targetOffset + i] &= ~source[sourceOffset + i];
+            }
+        }
+    }
+
+    /**
+     * Intersects the target with the source, and tests whether the result is empty.
+     *
+     * @return true if no words of the target are left with any bits
+     */
+    static boolean andIsEmpty(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        if (VECTORISED) {
+            return VectorBitsetKernels.andIsEmpty(target, targetOffset, source, sourceOffset, length);
+        }
+        long any = 0L;
+        for (int i = 0; i < length; ++i) {
+            any |= (target[targetOffset + i] &= source[sourceOffset + i]);
+        }
+        return any == 0L;
+    }
+
+    /**
+     * @return whether the implementation uses the vector API
+     */
+    static boolean isVectorised() {
+        return VECTORISED;
+    }
+}
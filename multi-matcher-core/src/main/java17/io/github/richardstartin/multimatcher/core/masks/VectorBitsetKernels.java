@@ -0,0 +1,69 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementations of {@link BitsetKernels}, which must only be
+ * loaded when the <code>jdk.incubator.vector</code> module is present.
+ */
+final class VectorBitsetKernels {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private VectorBitsetKernels() {
+    }
+
+    static void and(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            LongVector.fromArray(SPECIES, target, targetOffset + i)
+                    .and(LongVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        for (; i < length; ++i) {
+            target[targetOffset + i] &= source[sourceOffset + i];
+        }
+    }
+
+    static void or(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            LongVector.fromArray(SPECIES, target, targetOffset + i)
+                    .or(LongVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        for (; i < length; ++i) {
+            target[targetOffset + i] |= source[sourceOffset + i];
+        }
+    }
+
+    static void andNot(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            LongVector.fromArray(SPECIES, target, targetOffset + i)
+                    .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        for (; i < length; ++i) {
+            target[targetOffset + i] &= ~source[sourceOffset + i];
+        }
+    }
+
+    static boolean andIsEmpty(long[] target, int targetOffset, long[] source, int sourceOffset, int length) {
+        int i = 0;
+        var any = LongVector.zero(SPECIES);
+        for (; i < SPECIES.loopBound(length); i += SPECIES.length()) {
+            var result = LongVector.fromArray(SPECIES, target, targetOffset + i)
+                    .and(LongVector.fromArray(SPECIES, source, sourceOffset + i));
+            result.intoArray(target, targetOffset + i);
+            any = any.or(result);
+        }
+        long tail = 0L;
+        for (; i < length; ++i) {
+            tail |= (target[targetOffset + i] &= source[sourceOffset + i]);
+        }
+        return tail == 0L && any.reduceLanes(VectorOperators.OR) == 0L;
+    }
+}
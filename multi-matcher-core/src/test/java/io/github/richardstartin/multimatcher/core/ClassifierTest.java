@@ -368,6 +368,94 @@ public class ClassifierTest {
         assertEquals("BLUEfoo", classifier.classification(test.setField1("foo").setField3("bar").setColour(TestDomainObject.Colour.BLUE)).orElse("NONE"));
     }
 
+    @Test
+    public void testClassifyAllRejectsShortOutput() throws IOException {
+        Classifier<TestDomainObject, String> classifier = buildStringMatcher(() ->
+                Collections.singletonList(MatchingConstraint.<String, String>anonymous()
+                        .eq("field1", "foo")
+                        .classification("RED")
+                        .build()));
+        var inputs = new TestDomainObject[]{TestDomainObject.random(), TestDomainObject.random()};
+        assertThrows(IllegalArgumentException.class, () -> classifier.classifyAll(inputs, new String[1]));
+        assertThrows(IllegalArgumentException.class, () -> classifier.matchCounts(inputs, new int[1]));
+    }
+
+    @Test
+    public void testClassifyAll() throws IOException {
+        Classifier<TestDomainObject, String> classifier = buildStringMatcher(() ->
+                Arrays.asList(MatchingConstraint.<String, String>anonymous()
+                                .eq("field1", "foo")
+                                .eq("field3", "bar")
+                                .priority(0)
+                                .classification("RED")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .eq("field1", "foo")
+                                .priority(1)
+                                .classification("BLUE")
+                                .build()));
+        var inputs = new TestDomainObject[100];
+        for (int i = 0; i < inputs.length; ++i) {
+            inputs[i] = TestDomainObject.random();
+            if (i % 2 == 0) {
+                inputs[i].setField1("foo");
+            }
+            if (i % 3 == 0) {
+                inputs[i].setField3("bar");
+            }
+        }
+        var classifications = new String[inputs.length];
+        var counts = new int[inputs.length];
+        classifier.classifyAll(inputs, classifications);
+        classifier.matchCounts(inputs, counts);
+        for (int i = 0; i < inputs.length; ++i) {
+            assertEquals(i % 2 == 0 ? "BLUE" : null, classifications[i]);
+            assertEquals(i % 2 == 0 ? (i % 3 == 0 ? 2 : 1) : 0, counts[i]);
+        }
+    }
+
+    @Test
+    public void testReuseMatchContext() throws IOException {
+        Classifier<TestDomainObject, String> classifier = buildStringMatcher(() ->
+                Arrays.asList(MatchingConstraint.<String, String>anonymous()
+                                .eq("field1", "foo")
+                                .eq("field3", "bar")
+                                .priority(0)
+                                .classification("RED")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .eq("field1", "foo")
+                                .priority(1)
+                                .classification("BLUE")
+                                .build()));
+        assertTrue(classifier instanceof WordClassifier);
+        MatchContext context = classifier.newMatchContext();
+        TestDomainObject test = TestDomainObject.random();
+        assertNull(classifier.classificationOrNull(test, context));
+        assertEquals("BLUE", classifier.classificationOrNull(test.setField1("foo"), context));
+        assertEquals(1, classifier.matchCount(test, context));
+        assertEquals(2, classifier.matchCount(test.setField3("bar"), context));
+        var classifications = new ArrayList<>();
+        classifier.forEachClassification(test, context, classifications::add);
+        assertEquals(Arrays.asList("BLUE", "RED"), classifications);
+        assertFalse(classifier.classification(test.setField1("bar"), context).isPresent());
+        var batch = new TestDomainObject[]{test, TestDomainObject.random().setField1("foo")};
+        var out = new String[batch.length];
+        classifier.classifyAll(batch, out, context);
+        assertArrayEquals(new String[]{null, "BLUE"}, out);
+    }
+
+    @Test
+    public void testRejectForeignMatchContext() throws IOException {
+        RuleSet<String, String> rules = () -> Collections.singletonList(MatchingConstraint.<String, String>anonymous()
+                .eq("field1", "foo")
+                .classification("RED")
+                .build());
+        Classifier<TestDomainObject, String> classifier = buildStringMatcher(rules);
+        MatchContext context = buildStringMatcher(rules).newMatchContext();
+        assertThrows(IllegalArgumentException.class, () -> classifier.classificationOrNull(TestDomainObject.random(), context));
+    }
+
     private Classifier<TestDomainObject, String> buildSimple(RuleSet<String, String> repo) throws IOException {
         return Classifier.<String, TestDomainObject, String>builder(Schema.<String, TestDomainObject>create()
                 .withAttribute("field1", TestDomainObject::getField1)
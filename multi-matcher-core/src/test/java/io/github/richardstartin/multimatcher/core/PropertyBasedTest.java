@@ -108,6 +108,89 @@ public class PropertyBasedTest {
     }
 
 
+    @ValueSource(ints = {5, 63, 100, 200, 500, 1500, 16485})
+    @ParameterizedTest
+    public void batchConsistentWithSingleObjectPath(int count) {
+        var prototype = new TestDomainObject("a_1", "b_1",
+                "c_1", "d_1", "e_1",
+                0D, 0, 0, RED);
+        var classifier = Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA)
+                .build(expand(prototype.clone(), PropertyBasedTest::nextOverlapping, count));
+        var inputs = new TestDomainObject[100];
+        var input = prototype;
+        for (int i = 0; i < inputs.length; ++i) {
+            inputs[i] = i % 3 == 0 ? changeColour(input) : input;
+            input = i % 2 == 0 ? nextOverlapping(input) : nextDisjoint(input);
+        }
+        var classifications = new Integer[inputs.length];
+        var counts = new int[inputs.length];
+        classifier.classifyAll(inputs, classifications);
+        classifier.matchCounts(inputs, counts);
+        for (int i = 0; i < inputs.length; ++i) {
+            assertEquals(classifier.classificationOrNull(inputs[i]), classifications[i]);
+            assertEquals(classifier.matchCount(inputs[i]), counts[i]);
+        }
+    }
+
+    @ValueSource(ints = {5, 63, 100, 200, 500, 1500, 10000, 16485})
+    @ParameterizedTest
+    public void fusedConsistentWithSequentialEvaluation(int count) {
+        assertConsistentClassifications(count, Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA)
+                .useFusedEvaluation(true));
+    }
+
+    @ValueSource(ints = {5, 63, 100, 1500, 16485})
+    @ParameterizedTest
+    public void intervalIndexConsistentWithNodes(int count) {
+        assertConsistentClassifications(count, Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA)
+                .withIntervalIndexBudget(1L << 30));
+    }
+
+    @ValueSource(ints = {5, 63})
+    @ParameterizedTest
+    public void specialisedConsistentWithUnspecialised(int count) {
+        var builder = Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA).specialise(true);
+        assertConsistentClassifications(count, builder);
+        var prototype = new TestDomainObject("a_1", "b_1",
+                "c_1", "d_1", "e_1",
+                0D, 0, 0, RED);
+        var classifier = Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA)
+                .specialise(true)
+                .build(expand(prototype, PropertyBasedTest::nextOverlapping, count));
+        assertEquals(Specialisation.isSupported(), classifier.getClass() != WordClassifier.class);
+    }
+
+    private static void assertConsistentClassifications(int count,
+                                                        Classifier.ClassifierBuilder<Integer, TestDomainObject, Integer> builder) {
+        var prototype = new TestDomainObject("a_1", "b_1",
+                "c_1", "d_1", "e_1",
+                0D, 0, 0, RED);
+        var expected = Classifier.<Integer, TestDomainObject, Integer>builder(SCHEMA)
+                .build(expand(prototype.clone(), PropertyBasedTest::nextOverlapping, count));
+        var actual = builder.build(expand(prototype.clone(), PropertyBasedTest::nextOverlapping, count));
+        var inputs = new TestDomainObject[100];
+        var input = prototype;
+        for (int i = 0; i < inputs.length; ++i) {
+            inputs[i] = i % 3 == 0 ? changeColour(input) : input;
+            input = i % 2 == 0 ? nextOverlapping(input) : nextDisjoint(input);
+        }
+        var classifications = new Integer[inputs.length];
+        var counts = new int[inputs.length];
+        actual.classifyAll(inputs, classifications);
+        actual.matchCounts(inputs, counts);
+        for (int i = 0; i < inputs.length; ++i) {
+            assertEquals(expected.classificationOrNull(inputs[i]), actual.classificationOrNull(inputs[i]));
+            assertEquals(expected.matchCount(inputs[i]), actual.matchCount(inputs[i]));
+            assertEquals(expected.classificationOrNull(inputs[i]), classifications[i]);
+            assertEquals(expected.matchCount(inputs[i]), counts[i]);
+            var expectedClassifications = new HashSet<Integer>();
+            var actualClassifications = new HashSet<Integer>();
+            expected.forEachClassification(inputs[i], expectedClassifications::add);
+            actual.forEachClassification(inputs[i], actualClassifications::add);
+            assertEquals(expectedClassifications, actualClassifications);
+        }
+    }
+
     private static List<MatchingConstraint<Integer, Integer>> expand(TestDomainObject prototype,
                                                                     Function<TestDomainObject, TestDomainObject> next,
                                                                     int count) {
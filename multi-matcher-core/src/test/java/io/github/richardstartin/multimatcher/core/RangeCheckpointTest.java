@@ -0,0 +1,197 @@
+package io.github.richardstartin.multimatcher.core;
+
+import io.github.richardstartin.multimatcher.core.masks.BitsetMask;
+import io.github.richardstartin.multimatcher.core.masks.RoaringMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.IntNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class RangeCheckpointTest {
+
+    private static final int DOMAIN = 200;
+    private static final Operation[] RELATIONS = {Operation.GT, Operation.GE, Operation.LT, Operation.LE};
+
+    // each attribute is derived from the same int so expectations are easy to compute
+    private static final Map<String, IntFunction<Comparable<?>>> ATTRIBUTES = Map.of(
+            "int", x -> x,
+            "long", x -> x * 10_000_000_000L,
+            "double", x -> x / 2D,
+            "comparable", x -> (long) -x);
+
+    private static final Schema<String, Integer> SCHEMA = Schema.<String, Integer>create()
+            .withAttribute("int", (ToIntFunction<Integer>) x -> x)
+            .withAttribute("long", (ToLongFunction<Integer>) x -> x * 10_000_000_000L)
+            .withAttribute("double", (ToDoubleFunction<Integer>) x -> x / 2D)
+            .withAttribute("comparable", x -> (long) -x, Comparator.<Long>naturalOrder());
+
+    public static Stream<Arguments> options() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (int count : new int[]{10, 60, 1000}) {
+            for (int interval : new int[]{1, 2, 3, 16}) {
+                for (boolean fused : new boolean[]{false, true}) {
+                    for (long intervalIndexBudget : new long[]{0, 1 << 20}) {
+                        arguments.add(Arguments.of(count, interval, fused, intervalIndexBudget));
+                    }
+                }
+            }
+        }
+        // checkpoints are only used when masks are compressed
+        for (int interval : new int[]{1, 16}) {
+            for (boolean fused : new boolean[]{false, true}) {
+                arguments.add(Arguments.of(BitsetMask.MAX_CAPACITY + 1000, interval, fused, 0L));
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}/{3}")
+    @MethodSource("options")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testCheckpointsConsistentWithThresholds(int count, int interval, boolean fused,
+                                                       long intervalIndexBudget) {
+        var random = new SplittableRandom(count + interval);
+        var names = ATTRIBUTES.keySet().stream().sorted().toArray(String[]::new);
+        List<MatchingConstraint<String, Integer>> rules = new ArrayList<>();
+        List<Map<String, Constraint>> constraints = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            var builder = MatchingConstraint.<String, Integer>anonymous().priority(i).classification(i);
+            Map<String, Constraint> ruleConstraints = new HashMap<>();
+            for (String name : names) {
+                if (ruleConstraints.isEmpty() || random.nextInt(3) == 0) {
+                    Comparable threshold = ATTRIBUTES.get(name).apply(random.nextInt(0, DOMAIN));
+                    var relation = RELATIONS[random.nextInt(RELATIONS.length)];
+                    Constraint constraint;
+                    switch (relation) {
+                        case GT:
+                            constraint = Constraint.greaterThan(threshold);
+                            break;
+                        case GE:
+                            constraint = Constraint.greaterThanOrEqualTo(threshold);
+                            break;
+                        case LT:
+                            constraint = Constraint.lessThan(threshold);
+                            break;
+                        default:
+                            constraint = Constraint.lessThanOrEqualTo(threshold);
+                    }
+                    builder.constraint(name, constraint);
+                    ruleConstraints.put(name, constraint);
+                }
+            }
+            rules.add(builder.build());
+            constraints.add(ruleConstraints);
+        }
+        var classifier = Classifier.<String, Integer, Integer>builder(SCHEMA)
+                .useFusedEvaluation(fused)
+                .withIntervalIndexBudget(intervalIndexBudget)
+                .withRangeCheckpointInterval(interval)
+                .build(rules);
+        for (int x = -1; x <= DOMAIN; ++x) {
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < count; ++i) {
+                if (matches(constraints.get(i), x)) {
+                    expected.add(i);
+                }
+            }
+            var actual = new TreeSet<Integer>();
+            classifier.forEachClassification(x, actual::add);
+            assertEquals(expected, actual, "value " + x);
+        }
+    }
+
+    @Test
+    public void testNonPositiveIntervalRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Classifier.<String, Integer, Integer>builder(SCHEMA).withRangeCheckpointInterval(0));
+    }
+
+    @Test
+    public void testCheckpointsShrinkCompressedMasks() {
+        int count = 2000;
+        long cumulative = footprint(count, 1);
+        long checkpointed = footprint(count, 16);
+        assertTrue(checkpointed * 4 < cumulative, checkpointed + " bytes checkpointed, " + cumulative + " cumulative");
+    }
+
+    @Test
+    public void testFixedWidthMasksNotCheckpointed() {
+        var node = new IntNode<>(BitsetMask.store(1000), Operation.GT);
+        for (int i = 0; i < 1000; ++i) {
+            node.add(i, i);
+        }
+        assertEquals(1, node.optimise(16).maxMatchedIds());
+    }
+
+    private static long footprint(int count, int interval) {
+        // the rules of the thresholds are shuffled so cumulative masks don't compress to runs
+        int[] priorities = IntStream.range(0, count).toArray();
+        var random = new SplittableRandom(count);
+        for (int i = count - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int tmp = priorities[i];
+            priorities[i] = priorities[j];
+            priorities[j] = tmp;
+        }
+        var store = RoaringMask.store(0, false);
+        var node = new IntNode<>(store, Operation.GT);
+        for (int i = 0; i < count; ++i) {
+            node.add(i, priorities[i]);
+        }
+        node.optimise(interval);
+        long bytes = 0;
+        for (int id = 1, end = store.newMaskId(); id < end; ++id) {
+            bytes += store.getMask(id).sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean matches(Map<String, Constraint> constraints, int x) {
+        for (var entry : constraints.entrySet()) {
+            Comparable value = ATTRIBUTES.get(entry.getKey()).apply(x);
+            var constraint = entry.getValue();
+            int comparison = value.compareTo(constraint.getValue());
+            boolean matches;
+            switch (constraint.getOperation()) {
+                case GT:
+                    matches = comparison > 0;
+                    break;
+                case GE:
+                    matches = comparison >= 0;
+                    break;
+                case LT:
+                    matches = comparison < 0;
+                    break;
+                default:
+                    matches = comparison <= 0;
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.richardstartin.multimatcher.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class RangeConstraintTest {
+
+    private static final int DOMAIN = 50;
+
+    // each attribute is derived from the same int so expectations are easy to compute
+    private static final Map<String, IntFunction<Comparable<?>>> ATTRIBUTES = Map.of(
+            "int", x -> x,
+            "long", x -> x * 10_000_000_000L,
+            "double", x -> x / 2D,
+            "comparable", x -> (long) -x);
+
+    private static final Schema<String, Integer> SCHEMA = Schema.<String, Integer>create()
+            .withAttribute("int", (ToIntFunction<Integer>) x -> x)
+            .withAttribute("long", (ToLongFunction<Integer>) x -> x * 10_000_000_000L)
+            .withAttribute("double", (ToDoubleFunction<Integer>) x -> x / 2D)
+            .withAttribute("comparable", x -> (long) -x, Comparator.<Long>naturalOrder());
+
+    public static Stream<Arguments> sizes() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (int count : new int[]{10, 60, 1000}) {
+            for (boolean fused : new boolean[]{false, true}) {
+                for (long intervalIndexBudget : new long[]{0, 1 << 20}) {
+                    arguments.add(Arguments.of(count, fused, intervalIndexBudget));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("sizes")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testRangesConsistentWithBounds(int count, boolean fused, long intervalIndexBudget) {
+        var random = new SplittableRandom(count);
+        var names = ATTRIBUTES.keySet().stream().sorted().toArray(String[]::new);
+        List<MatchingConstraint<String, Integer>> rules = new ArrayList<>();
+        List<Map<String, Range<?>>> constraints = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            var builder = MatchingConstraint.<String, Integer>anonymous().priority(i).classification(i);
+            Map<String, Range<?>> ranges = new HashMap<>();
+            for (String name : names) {
+                if (ranges.isEmpty() || random.nextInt(3) == 0) {
+                    // ranges may overlap, share bounds, or be empty
+                    Comparable x = ATTRIBUTES.get(name).apply(random.nextInt(0, DOMAIN));
+                    Comparable y = ATTRIBUTES.get(name).apply(random.nextInt(0, DOMAIN));
+                    var range = x.compareTo(y) <= 0 ? new Range(x, y) : new Range(y, x);
+                    builder.between(name, range.getFrom(), range.getTo());
+                    ranges.put(name, range);
+                }
+            }
+            rules.add(builder.build());
+            constraints.add(ranges);
+        }
+        var classifier = Classifier.<String, Integer, Integer>builder(SCHEMA)
+                .useFusedEvaluation(fused)
+                .withIntervalIndexBudget(intervalIndexBudget)
+                .build(rules);
+        for (int x = -1; x <= DOMAIN; ++x) {
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < count; ++i) {
+                if (contains(constraints.get(i), x)) {
+                    expected.add(i);
+                }
+            }
+            var actual = new TreeSet<Integer>();
+            classifier.forEachClassification(x, actual::add);
+            assertEquals(expected, actual, "value " + x);
+        }
+    }
+
+    @Test
+    public void testRangeIsHalfOpen() {
+        var classifier = Classifier.<String, Integer, String>builder(SCHEMA)
+                .build(Arrays.asList(
+                        MatchingConstraint.<String, String>anonymous()
+                                .between("int", 10, 20)
+                                .priority(0)
+                                .classification("teens")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .between("int", 15, 15)
+                                .priority(1)
+                                .classification("empty")
+                                .build()));
+        assertEquals(0, classifier.matchCount(9));
+        assertEquals(1, classifier.matchCount(10));
+        assertEquals(1, classifier.matchCount(15));
+        assertEquals(1, classifier.matchCount(19));
+        assertEquals(0, classifier.matchCount(20));
+    }
+
+    @Test
+    public void testInvertedRangeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Constraint.between(5, 1));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean contains(Map<String, Range<?>> ranges, int x) {
+        for (var entry : ranges.entrySet()) {
+            Comparable value = ATTRIBUTES.get(entry.getKey()).apply(x);
+            var range = entry.getValue();
+            if (value.compareTo(range.getFrom()) < 0 || value.compareTo(range.getTo()) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.richardstartin.multimatcher.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class SetMembershipTest {
+
+    private static final int DOMAIN = 20;
+
+    // each attribute is derived from the same int so expectations are easy to compute
+    private static final Map<String, IntFunction<Object>> ATTRIBUTES = Map.of(
+            "int", x -> x,
+            "long", x -> x * 10_000_000_000L,
+            "double", x -> x / 2D,
+            "string", x -> "s" + x,
+            "generic", x -> (long) x,
+            "comparable", x -> (long) -x);
+
+    private static final Schema<String, Integer> SCHEMA = Schema.<String, Integer>create()
+            .withAttribute("int", (ToIntFunction<Integer>) x -> x)
+            .withAttribute("long", (ToLongFunction<Integer>) x -> x * 10_000_000_000L)
+            .withAttribute("double", (ToDoubleFunction<Integer>) x -> x / 2D)
+            .withStringAttribute("string", x -> "s" + x)
+            .withAttribute("generic", (Function<Integer, Long>) x -> (long) x)
+            .withAttribute("comparable", x -> (long) -x, Comparator.<Long>naturalOrder());
+
+    public static Stream<Arguments> sizes() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (int count : new int[]{10, 60, 1000}) {
+            for (boolean fused : new boolean[]{false, true}) {
+                for (long intervalIndexBudget : new long[]{0, 1 << 20}) {
+                    arguments.add(Arguments.of(count, fused, intervalIndexBudget, false));
+                    if (count >= 64) {
+                        arguments.add(Arguments.of(count, fused, intervalIndexBudget, true));
+                    }
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}/{3}")
+    @MethodSource("sizes")
+    public void testMembershipConsistentWithSets(int count, boolean fused, long intervalIndexBudget,
+                                                 boolean sparseBitsets) {
+        var random = new SplittableRandom(count);
+        var names = ATTRIBUTES.keySet().stream().sorted().toArray(String[]::new);
+        List<MatchingConstraint<String, Integer>> rules = new ArrayList<>();
+        List<Map<String, Constraint>> constraints = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            var builder = MatchingConstraint.<String, Integer>anonymous().priority(i).classification(i);
+            Map<String, Constraint> ruleConstraints = new HashMap<>();
+            for (String name : names) {
+                if (random.nextInt(3) == 0) {
+                    var members = random.ints(random.nextInt(1, 5), 0, DOMAIN)
+                            .mapToObj(x -> ATTRIBUTES.get(name).apply(x))
+                            .collect(Collectors.toList());
+                    Constraint constraint;
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            constraint = Constraint.in(members);
+                            break;
+                        case 1:
+                            constraint = Constraint.notIn(members);
+                            break;
+                        case 2:
+                            constraint = Constraint.equalTo(members.get(0));
+                            break;
+                        default:
+                            constraint = Constraint.notEqualTo(members.get(0));
+                    }
+                    builder.constraint(name, constraint);
+                    ruleConstraints.put(name, constraint);
+                }
+            }
+            if (ruleConstraints.isEmpty()) {
+                var constraint = Constraint.in(List.of(i % DOMAIN));
+                builder.constraint("int", constraint);
+                ruleConstraints.put("int", constraint);
+            }
+            rules.add(builder.build());
+            constraints.add(ruleConstraints);
+        }
+        var classifier = Classifier.<String, Integer, Integer>builder(SCHEMA)
+                .useFusedEvaluation(fused)
+                .withIntervalIndexBudget(intervalIndexBudget)
+                .useSparseBitsets(sparseBitsets)
+                .build(rules);
+        for (int x = -1; x <= DOMAIN; ++x) {
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < count; ++i) {
+                if (matches(constraints.get(i), x)) {
+                    expected.add(i);
+                }
+            }
+            var actual = new TreeSet<Integer>();
+            classifier.forEachClassification(x, actual::add);
+            assertEquals(expected, actual, "value " + x);
+        }
+    }
+
+    @Test
+    public void testNotInExcludesOnlyMembers() {
+        var classifier = Classifier.<String, Integer, String>builder(SCHEMA)
+                .build(Arrays.asList(
+                        MatchingConstraint.<String, String>anonymous()
+                                .notIn("int", List.of(1, 2))
+                                .priority(0)
+                                .classification("not 1 or 2")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .in("string", List.of("s2", "s3"))
+                                .priority(1)
+                                .classification("2 or 3")
+                                .build()));
+        assertEquals(1, classifier.matchCount(0));
+        assertEquals(0, classifier.matchCount(1));
+        assertEquals(1, classifier.matchCount(2));
+        assertEquals(2, classifier.matchCount(3));
+    }
+
+    public static Stream<Arguments> attributes() {
+        return ATTRIBUTES.keySet().stream()
+                .sorted()
+                .flatMap(name -> Stream.of(Arguments.of(name, false), Arguments.of(name, true)));
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("attributes")
+    public void testEmptySets(String attribute, boolean fused) {
+        var classifier = Classifier.<String, Integer, String>builder(SCHEMA)
+                .useFusedEvaluation(fused)
+                .build(Arrays.asList(
+                        MatchingConstraint.<String, String>anonymous()
+                                .in(attribute, List.of())
+                                .priority(0)
+                                .classification("in nothing")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .notIn(attribute, List.of())
+                                .priority(1)
+                                .classification("not in nothing")
+                                .build()));
+        for (int x = -1; x <= DOMAIN; ++x) {
+            var actual = new TreeSet<String>();
+            classifier.forEachClassification(x, actual::add);
+            assertEquals(new TreeSet<>(List.of("not in nothing")), actual, "value " + x);
+        }
+    }
+
+    private static boolean matches(Map<String, Constraint> constraints, int x) {
+        for (var entry : constraints.entrySet()) {
+            Object value = ATTRIBUTES.get(entry.getKey()).apply(x);
+            var constraint = entry.getValue();
+            boolean matches;
+            switch (constraint.getOperation()) {
+                case IN:
+                    matches = constraint.<List<?>>getValue().contains(value);
+                    break;
+                case NOT_IN:
+                    matches = !constraint.<List<?>>getValue().contains(value);
+                    break;
+                case EQ:
+                    matches = value.equals(constraint.getValue());
+                    break;
+                default:
+                    matches = !value.equals(constraint.getValue());
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
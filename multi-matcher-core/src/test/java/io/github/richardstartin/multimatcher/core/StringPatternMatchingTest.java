@@ -0,0 +1,109 @@
+package io.github.richardstartin.multimatcher.core;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class StringPatternMatchingTest {
+
+    private static final Schema<String, String> SCHEMA = Schema.<String, String>create()
+            .withStringAttribute("value", s -> s);
+
+    public static Stream<Arguments> sizes() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (int count : new int[]{1, 40, 1000, 20000}) {
+            for (boolean fused : new boolean[]{false, true}) {
+                arguments.add(Arguments.of(count, fused));
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("sizes")
+    public void testPatternsConsistentWithStringMethods(int count, boolean fused) {
+        var random = new SplittableRandom(count);
+        List<MatchingConstraint<String, Integer>> rules = new ArrayList<>();
+        List<Constraint> constraints = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            String literal = randomString(random, 6);
+            Constraint constraint;
+            switch (random.nextInt(8)) {
+                case 0:
+                    constraint = Constraint.equalTo(literal);
+                    break;
+                case 1:
+                    constraint = Constraint.notEqualTo(literal);
+                    break;
+                case 2:
+                case 3:
+                    constraint = Constraint.endsWith(literal);
+                    break;
+                case 4:
+                case 5:
+                    constraint = Constraint.contains(literal);
+                    break;
+                default:
+                    constraint = Constraint.startsWith(literal);
+            }
+            constraints.add(constraint);
+            rules.add(MatchingConstraint.<String, Integer>anonymous()
+                    .constraint("value", constraint)
+                    .priority(i)
+                    .classification(i)
+                    .build());
+        }
+        var classifier = Classifier.<String, String, Integer>builder(SCHEMA)
+                .useFusedEvaluation(fused)
+                .build(rules);
+        for (int i = 0; i < 1000; ++i) {
+            String value = randomString(random, 10);
+            var expected = new TreeSet<Integer>();
+            for (int j = 0; j < count; ++j) {
+                if (matches(constraints.get(j), value)) {
+                    expected.add(j);
+                }
+            }
+            var actual = new TreeSet<Integer>();
+            classifier.forEachClassification(value, actual::add);
+            assertEquals(expected, actual, value);
+            assertEquals(expected.isEmpty() ? null : expected.last(), classifier.classificationOrNull(value), value);
+        }
+    }
+
+    private static boolean matches(Constraint constraint, String value) {
+        String literal = constraint.getValue();
+        switch (constraint.getOperation()) {
+            case EQ:
+                return literal.equals(value);
+            case NE:
+                return !literal.equals(value);
+            case ENDS_WITH:
+                return value.endsWith(literal);
+            case CONTAINS:
+                return value.contains(literal);
+            default:
+                return value.startsWith(literal);
+        }
+    }
+
+    private static String randomString(SplittableRandom random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; ++i) {
+            // a small alphabet so prefixes share long paths and values often match
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+}
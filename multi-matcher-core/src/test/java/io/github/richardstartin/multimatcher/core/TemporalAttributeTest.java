@@ -0,0 +1,181 @@
+package io.github.richardstartin.multimatcher.core;
+
+import io.github.richardstartin.multimatcher.core.schema.TemporalAttribute;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class TemporalAttributeTest {
+
+    private static final int DOMAIN = 50;
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    // each attribute is derived from the same int so expectations are easy to compute,
+    // the instants are before the epoch and less than a second apart
+    private static final Map<String, IntFunction<Comparable<?>>> ATTRIBUTES = Map.of(
+            "instant", x -> Instant.ofEpochSecond(-1, x * 1000),
+            "date", x -> START.plusDays(x * 40),
+            "duration", x -> Duration.ofMinutes(x).minusHours(1));
+
+    private static final Schema<String, Integer> SCHEMA = Schema.<String, Integer>create()
+            .withInstantAttribute("instant", x -> (Instant) ATTRIBUTES.get("instant").apply(x))
+            .withLocalDateAttribute("date", x -> (LocalDate) ATTRIBUTES.get("date").apply(x))
+            .withDurationAttribute("duration", x -> (Duration) ATTRIBUTES.get("duration").apply(x));
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 60, 1000})
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testTemporalConstraintsConsistentWithOrder(int count) {
+        var random = new SplittableRandom(count);
+        var names = ATTRIBUTES.keySet().stream().sorted().toArray(String[]::new);
+        var operations = new Operation[]{Operation.EQ, Operation.NE, Operation.LT, Operation.LE,
+                Operation.GT, Operation.GE, Operation.BETWEEN, Operation.IN};
+        List<MatchingConstraint<String, Integer>> rules = new ArrayList<>();
+        List<Map<String, Constraint>> constraints = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            var builder = MatchingConstraint.<String, Integer>anonymous().priority(i).classification(i);
+            Map<String, Constraint> ruleConstraints = new HashMap<>();
+            for (String name : names) {
+                if (ruleConstraints.isEmpty() || random.nextInt(3) == 0) {
+                    Comparable x = ATTRIBUTES.get(name).apply(random.nextInt(0, DOMAIN));
+                    Comparable y = ATTRIBUTES.get(name).apply(random.nextInt(0, DOMAIN));
+                    Constraint constraint;
+                    switch (operations[random.nextInt(operations.length)]) {
+                        case EQ: constraint = Constraint.equalTo(x); break;
+                        case NE: constraint = Constraint.notEqualTo(x); break;
+                        case LT: constraint = Constraint.lessThan(x); break;
+                        case LE: constraint = Constraint.lessThanOrEqualTo(x); break;
+                        case GT: constraint = Constraint.greaterThan(x); break;
+                        case GE: constraint = Constraint.greaterThanOrEqualTo(x); break;
+                        case BETWEEN:
+                            constraint = x.compareTo(y) <= 0 ? Constraint.between(x, y) : Constraint.between(y, x);
+                            break;
+                        default: constraint = Constraint.in(List.of(x, y));
+                    }
+                    builder.constraint(name, constraint);
+                    ruleConstraints.put(name, constraint);
+                }
+            }
+            rules.add(builder.build());
+            constraints.add(ruleConstraints);
+        }
+        var classifier = Classifier.<String, Integer, Integer>builder(SCHEMA).build(rules);
+        for (int x = -1; x <= DOMAIN; ++x) {
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < count; ++i) {
+                if (matches(constraints.get(i), x)) {
+                    expected.add(i);
+                }
+            }
+            var actual = new TreeSet<Integer>();
+            classifier.forEachClassification(x, actual::add);
+            assertEquals(expected, actual, "value " + x);
+        }
+    }
+
+    @Test
+    public void testEncodingsSaturate() {
+        assertEquals(Long.MAX_VALUE, TemporalAttribute.epochNanos(Instant.MAX));
+        assertEquals(Long.MIN_VALUE, TemporalAttribute.epochNanos(Instant.MIN));
+        assertEquals(Long.MIN_VALUE, TemporalAttribute.epochNanos(Instant.ofEpochSecond(0, Long.MIN_VALUE)));
+        assertEquals(-500_000_000L, TemporalAttribute.epochNanos(Instant.ofEpochSecond(-1, 500_000_000)));
+        assertEquals(Long.MAX_VALUE, TemporalAttribute.nanos(Duration.ofDays(365L * 300)));
+        assertTrue(TemporalAttribute.nanos(Duration.ofDays(-1)) < TemporalAttribute.nanos(Duration.ofNanos(-1)));
+    }
+
+    public static Stream<Arguments> boundaries() {
+        // the last instant and longest duration which can be encoded without saturating
+        Instant lastInstant = Instant.ofEpochSecond(0, Long.MAX_VALUE - 1);
+        Duration longestDuration = Duration.ofNanos(Long.MAX_VALUE - 1);
+        Instant year1000 = Instant.parse("1000-01-01T00:00:00Z");
+        Instant year2300 = Instant.parse("2300-01-01T00:00:00Z");
+        Instant year2400 = Instant.parse("2400-01-01T00:00:00Z");
+        Instant year3000 = Instant.parse("3000-01-01T00:00:00Z");
+        Duration years400 = Duration.ofDays(365L * 400);
+        return Stream.of(
+                Arguments.of(Constraint.lessThan(Instant.MAX), year3000, true),
+                Arguments.of(Constraint.lessThan(Instant.MAX), year1000, true),
+                Arguments.of(Constraint.lessThan(Instant.MAX), Instant.MAX, false),
+                Arguments.of(Constraint.greaterThan(Instant.MIN), year1000, true),
+                Arguments.of(Constraint.greaterThan(Instant.MIN), Instant.MIN, false),
+                Arguments.of(Constraint.equalTo(year2300), year2400, false),
+                Arguments.of(Constraint.equalTo(year2300), year2300, true),
+                Arguments.of(Constraint.notEqualTo(year2300), year2400, true),
+                Arguments.of(Constraint.in(List.of(year2300, Instant.EPOCH)), year2400, false),
+                Arguments.of(Constraint.between(Instant.EPOCH, year2300), year2400, false),
+                Arguments.of(Constraint.between(Instant.EPOCH, year2300), year1000, false),
+                Arguments.of(Constraint.greaterThan(lastInstant), year3000, true),
+                Arguments.of(Constraint.lessThanOrEqualTo(lastInstant), year3000, false),
+                Arguments.of(Constraint.lessThanOrEqualTo(lastInstant), lastInstant, true),
+                Arguments.of(Constraint.equalTo(lastInstant.plusNanos(1)), year3000, false),
+                Arguments.of(Constraint.equalTo(lastInstant.plusNanos(1)), lastInstant.plusNanos(1), true),
+                Arguments.of(Constraint.greaterThan(longestDuration), years400, true),
+                Arguments.of(Constraint.lessThan(longestDuration), years400, false),
+                Arguments.of(Constraint.equalTo(years400), years400.plusDays(1), false),
+                Arguments.of(Constraint.lessThan(years400), years400.minusNanos(1), true),
+                Arguments.of(Constraint.greaterThan(years400.negated()), Duration.ZERO, true),
+                Arguments.of(Constraint.lessThan(years400.negated()), years400.negated().plusDays(1), false));
+    }
+
+    @ParameterizedTest
+    @MethodSource("boundaries")
+    public void testLiteralsBeyondEncodingRange(Constraint constraint, Comparable<?> value, boolean expected) {
+        var schema = Schema.<String, Comparable<?>>create()
+                .withInstantAttribute("instant", x -> (Instant) x)
+                .withDurationAttribute("duration", x -> (Duration) x);
+        var classifier = Classifier.<String, Comparable<?>, String>builder(schema)
+                .build(Arrays.asList(MatchingConstraint.<String, String>anonymous()
+                        .constraint(value instanceof Instant ? "instant" : "duration", constraint)
+                        .priority(0)
+                        .classification("matched")
+                        .build()));
+        assertEquals(expected, classifier.classification(value).isPresent());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean matches(Map<String, Constraint> constraints, int x) {
+        for (var constraint : constraints.entrySet()) {
+            Comparable value = ATTRIBUTES.get(constraint.getKey()).apply(x);
+            Object operand = constraint.getValue().getValue();
+            boolean matches;
+            switch (constraint.getValue().getOperation()) {
+                case EQ: matches = value.compareTo(operand) == 0; break;
+                case NE: matches = value.compareTo(operand) != 0; break;
+                case LT: matches = value.compareTo(operand) < 0; break;
+                case LE: matches = value.compareTo(operand) <= 0; break;
+                case GT: matches = value.compareTo(operand) > 0; break;
+                case GE: matches = value.compareTo(operand) >= 0; break;
+                case BETWEEN:
+                    Range<?> range = (Range<?>) operand;
+                    matches = value.compareTo(range.getFrom()) >= 0 && value.compareTo(range.getTo()) < 0;
+                    break;
+                default: matches = ((List<?>) operand).contains(value);
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Execution(ExecutionMode.CONCURRENT)
+class BitsetKernelsTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 3, 7, 8, 9, 16, 31, 256})
+    public void testKernelsConsistentWithScalarLoops(int length) {
+        var random = new SplittableRandom(length);
+        for (int trial = 0; trial < 20; ++trial) {
+            int targetOffset = random.nextInt(0, 10);
+            int sourceOffset = random.nextInt(0, 10);
+            long[] target = sparse(random, targetOffset + length + 10);
+            long[] source = sparse(random, sourceOffset + length + 10);
+
+            long[] and = target.clone();
+            long[] or = target.clone();
+            long[] andNot = target.clone();
+            long[] andIsEmpty = target.clone();
+            long[] expectedAnd = target.clone();
+            long[] expectedOr = target.clone();
+            long[] expectedAndNot = target.clone();
+            long any = 0L;
+            for (int i = 0; i < length; ++i) {
+                expectedAnd[targetOffset + i] &= source[sourceOffset + i];
+                expectedOr[targetOffset + i] |= source[sourceOffset + i];
+                expectedAndNot[targetOffset + i] &= ~source[sourceOffset + i];
+                any |= expectedAnd[targetOffset + i];
+            }
+            BitsetKernels.and(and, targetOffset, source, sourceOffset, length);
+            BitsetKernels.or(or, targetOffset, source, sourceOffset, length);
+            BitsetKernels.andNot(andNot, targetOffset, source, sourceOffset, length);
+            boolean empty = BitsetKernels.andIsEmpty(andIsEmpty, targetOffset, source, sourceOffset, length);
+            assertArrayEquals(expectedAnd, and);
+            assertArrayEquals(expectedOr, or);
+            assertArrayEquals(expectedAndNot, andNot);
+            assertArrayEquals(expectedAnd, andIsEmpty);
+            assertEquals(any == 0L, empty);
+        }
+    }
+
+    // mostly empty words so that intersections are often empty
+    private static long[] sparse(SplittableRandom random, int length) {
+        long[] words = new long[length];
+        for (int i = 0; i < length; ++i) {
+            if (random.nextInt(4) == 0) {
+                words[i] = random.nextLong();
+            }
+        }
+        return words;
+    }
+}
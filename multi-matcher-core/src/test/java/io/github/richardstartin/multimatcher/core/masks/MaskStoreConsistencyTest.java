@@ -0,0 +1,179 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import io.github.richardstartin.multimatcher.core.Mask;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Execution(ExecutionMode.CONCURRENT)
+class MaskStoreConsistencyTest {
+
+    public static Stream<Arguments> stores() {
+        return Stream.of(
+                Arguments.of((Supplier<MaskStore<?>>) Bits128Mask::store, 65),
+                Arguments.of((Supplier<MaskStore<?>>) Bits128Mask::store, 128),
+                Arguments.of((Supplier<MaskStore<?>>) Bits256Mask::store, 200),
+                Arguments.of((Supplier<MaskStore<?>>) Bits256Mask::store, 256),
+                Arguments.of((Supplier<MaskStore<?>>) Bits512Mask::store, 300),
+                Arguments.of((Supplier<MaskStore<?>>) Bits512Mask::store, 512),
+                sparse(64),
+                sparse(100),
+                sparse(4096),
+                sparse(4097),
+                sparse(16383)
+        );
+    }
+
+    private static Arguments sparse(int max) {
+        return Arguments.of((Supplier<MaskStore<?>>) () -> SparseBitsetMask.store(max), max);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testOperationsConsistentWithBitSet(Supplier<MaskStore<?>> supplier, int max) {
+        assertOperationsConsistent(supplier.get(), max);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testStoreConsistentWithBitSet(Supplier<MaskStore<?>> supplier, int max) {
+        assertStoreConsistent(supplier.get(), max);
+    }
+
+    private static <M extends Mask<M>> void assertOperationsConsistent(MaskStore<M> store, int max) {
+        var random = new SplittableRandom(max);
+        for (int trial = 0; trial < 50; ++trial) {
+            var left = randomBits(random, max);
+            var right = randomBits(random, max);
+            var x = of(store, left);
+            var y = of(store, right);
+
+            var and = (BitSet) left.clone();
+            and.and(right);
+            assertMatches(and, x.and(y));
+            var or = (BitSet) left.clone();
+            or.or(right);
+            assertMatches(or, x.or(y));
+            var andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+            assertMatches(andNot, x.andNot(y));
+            var not = (BitSet) left.clone();
+            not.flip(0, max);
+            assertMatches(not, x.clone().inPlaceNot(max));
+            var contiguous = new BitSet();
+            contiguous.set(0, trial * max / 50);
+            assertMatches(contiguous, store.contiguous(trial * max / 50));
+
+            var removed = (BitSet) left.clone();
+            int bit = random.nextInt(max);
+            removed.clear(bit);
+            var mask = x.clone();
+            mask.remove(bit);
+            assertMatches(removed, mask);
+            assertMatches(right, mask.resetTo(y));
+            assertEquals(y, mask);
+            mask.clear();
+            assertMatches(new BitSet(), mask);
+        }
+    }
+
+    private static <M extends Mask<M>> void assertStoreConsistent(MaskStore<M> store, int max) {
+        var random = new SplittableRandom(max);
+        var bits = new BitSet[20];
+        int[] ids = new int[bits.length];
+        for (int i = 0; i < bits.length; ++i) {
+            bits[i] = randomBits(random, max);
+            if (i % 2 == 0) {
+                ids[i] = store.storeMask(of(store, bits[i]));
+            } else {
+                int id = ids[i] = store.newMaskId();
+                bits[i].stream().forEach(bit -> store.add(id, bit));
+            }
+        }
+        for (int i = 0; i < bits.length; ++i) {
+            assertMatches(bits[i], store.getMask(ids[i]));
+            assertEquals(bits[i].isEmpty(), store.isEmpty(ids[i]));
+        }
+        assertTrue(store.isEmpty(0));
+        // the stored masks are copied out, so changing a copy leaves the store as it was
+        store.getMask(ids[0]).clear();
+        assertMatches(bits[0], store.getMask(ids[0]));
+
+        var mask = store.newMask();
+        store.copyInto(mask, ids[0]);
+        store.orInto(mask, ids[1]);
+        var expected = (BitSet) bits[0].clone();
+        expected.or(bits[1]);
+        assertMatches(expected, mask);
+        store.andInto(mask, ids[2]);
+        expected.and(bits[2]);
+        assertMatches(expected, mask);
+
+        store.or(ids[3], ids[4]);
+        bits[4].or(bits[3]);
+        assertMatches(bits[4], store.getMask(ids[4]));
+
+        // intersect groups {5, 6}, {7}, {8, 9, 10} with a full mask
+        int[] groupIds = {ids[5], ids[6], ids[7], ids[8], ids[9], ids[10]};
+        int[] ends = {2, 3, 6};
+        var intersection = store.contiguous(max);
+        store.intersect(intersection, store.newMask(), groupIds, ends, ends.length, false);
+        expected = (BitSet) bits[5].clone();
+        expected.or(bits[6]);
+        expected.and(bits[7]);
+        var union = (BitSet) bits[8].clone();
+        union.or(bits[9]);
+        union.or(bits[10]);
+        expected.and(union);
+        assertMatches(expected, intersection);
+
+        int contiguous = store.newContiguousMaskId(max / 2);
+        assertEquals(max / 2, store.getMask(contiguous).cardinality());
+        bits[11].stream().forEach(bit -> store.remove(ids[11], bit));
+        assertTrue(store.isEmpty(ids[11]));
+        assertEquals(-1, store.getMask(ids[11]).first());
+    }
+
+    private static void assertMatches(BitSet expected, Mask<?> actual) {
+        assertArrayEquals(expected.stream().toArray(), actual.stream().toArray());
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.isEmpty() ? -1 : expected.nextSetBit(0), actual.first());
+    }
+
+    private static BitSet randomBits(SplittableRandom random, int max) {
+        var bits = new BitSet(max);
+        if (random.nextBoolean()) {
+            int density = 1 + random.nextInt(8);
+            for (int bit = 0; bit < max; ++bit) {
+                if (random.nextInt(density) == 0) {
+                    bits.set(bit);
+                }
+            }
+        } else {
+            // mixes empty, sparse and dense runs of words
+            for (int word = 0; word < (max + 63) / 64; ++word) {
+                int density = random.nextInt(4);
+                for (int bit = word * 64; bit < Math.min(max, word * 64 + 64); ++bit) {
+                    if (density == 3 ? random.nextInt(4) != 0 : density == 2 && random.nextInt(64) == 0) {
+                        bits.set(bit);
+                    }
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static <M extends Mask<M>> M of(MaskStore<M> store, BitSet bits) {
+        return store.of(bits.stream().toArray());
+    }
+}
@@ -71,6 +71,35 @@ class MaskTest {
         assertEquals(bitmapMaskStore.contiguous(100).or(bitmapMaskStore.of(101, 102)), bitmapMaskStore.contiguous(100).inPlaceOr(bitmapMaskStore.of(101, 102)));
     }
 
+    @Test
+    public void testBitmapStoreArena() {
+        // enough masks to grow the arena several times
+        int[] ids = new int[100];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = bitmapMaskStore.newMaskId();
+            bitmapMaskStore.add(ids[i], i * 40);
+        }
+        int contiguous = bitmapMaskStore.newContiguousMaskId(1 << 11);
+        int stored = bitmapMaskStore.storeMask(bitmapMaskStore.of(5, 4000));
+        for (int i = 0; i < ids.length; ++i) {
+            assertEquals(bitmapMaskStore.of(i * 40), bitmapMaskStore.getMask(ids[i]));
+        }
+        assertEquals(bitmapMaskStore.contiguous(1 << 11), bitmapMaskStore.getMask(contiguous));
+        bitmapMaskStore.or(stored, ids[0]);
+        bitmapMaskStore.remove(ids[0], 4000);
+        assertEquals(bitmapMaskStore.of(0, 5), bitmapMaskStore.getMask(ids[0]));
+        var mask = bitmapMaskStore.newMask();
+        bitmapMaskStore.copyInto(mask, contiguous);
+        bitmapMaskStore.andInto(mask, stored);
+        assertEquals(bitmapMaskStore.of(5), mask);
+        bitmapMaskStore.orInto(mask, ids[99]);
+        assertEquals(bitmapMaskStore.of(5, 99 * 40), mask);
+        bitmapMaskStore.andInto(mask, 0);
+        assertTrue(mask.isEmpty());
+        assertTrue(bitmapMaskStore.isEmpty(0));
+        assertFalse(bitmapMaskStore.isEmpty(ids[1]));
+    }
+
     @Test
     public void testHugeMask() {
         RoaringMask range = roaringMaskStore.contiguous(1 << 22);
@@ -0,0 +1,164 @@
+package io.github.richardstartin.multimatcher.core.masks;
+
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Execution(ExecutionMode.CONCURRENT)
+class RoaringMaskTest {
+
+    private static final int MAX = 1 << 18;
+
+    public static Stream<Arguments> shapes() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (int bufferSize : new int[]{0, 1 << 20}) {
+            for (String left : new String[]{"empty", "sparse", "dense", "runs", "gaps"}) {
+                for (String right : new String[]{"empty", "sparse", "dense", "runs", "gaps"}) {
+                    arguments.add(Arguments.of(bufferSize, left, right));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("shapes")
+    public void testWorkingMaskConsistentWithBitmaps(int bufferSize, String left, String right) {
+        MaskStore<RoaringMask> store = RoaringMask.store(bufferSize, false);
+        var leftBitmap = bitmap(left, 0);
+        var rightBitmap = bitmap(right, 1);
+        int leftId = store(store, leftBitmap);
+        int rightId = store(store, rightBitmap);
+
+        var working = store.newMask();
+        store.copyInto(working, leftId);
+        assertConsistent(leftBitmap, working);
+
+        store.andInto(working, rightId);
+        assertConsistent(MutableRoaringBitmap.and(leftBitmap, rightBitmap), working);
+
+        store.copyInto(working, leftId);
+        store.orInto(working, rightId);
+        assertConsistent(MutableRoaringBitmap.or(leftBitmap, rightBitmap), working);
+
+        store.copyInto(working, leftId);
+        working.inPlaceAndNot(store.getMask(rightId));
+        assertConsistent(MutableRoaringBitmap.andNot(leftBitmap, rightBitmap), working);
+
+        var other = store.newMask();
+        store.copyInto(other, rightId);
+        store.copyInto(working, leftId);
+        working.inPlaceAnd(other);
+        assertConsistent(MutableRoaringBitmap.and(leftBitmap, rightBitmap), working);
+
+        store.copyInto(working, leftId);
+        working.inPlaceOr(other);
+        assertConsistent(MutableRoaringBitmap.or(leftBitmap, rightBitmap), working);
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("shapes")
+    public void testStoredMaskCombinedWithWorkingMask(int bufferSize, String left, String right) {
+        MaskStore<RoaringMask> store = RoaringMask.store(bufferSize, false);
+        var leftBitmap = bitmap(left, 0);
+        var rightBitmap = bitmap(right, 1);
+        int rightId = store(store, rightBitmap);
+        var working = store.newMask();
+        store.copyInto(working, rightId);
+        var mask = store.of(leftBitmap.toArray());
+        assertEquals(store.of(MutableRoaringBitmap.and(leftBitmap, rightBitmap).toArray()), mask.and(working));
+        assertEquals(store.of(MutableRoaringBitmap.or(leftBitmap, rightBitmap).toArray()), mask.or(working));
+        assertEquals(store.of(MutableRoaringBitmap.andNot(leftBitmap, rightBitmap).toArray()), mask.andNot(working));
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("shapes")
+    public void testWorkingMaskNot(int bufferSize, String left, String ignored) {
+        MaskStore<RoaringMask> store = RoaringMask.store(bufferSize, false);
+        var bitmap = bitmap(left, 0);
+        var working = store.newMask();
+        store.copyInto(working, store(store, bitmap));
+        var expected = bitmap.clone();
+        expected.flip(0L, 1000);
+        assertConsistent(expected, working.inPlaceNot(1000));
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("shapes")
+    public void testWorkingMaskIsReusable(int bufferSize, String left, String right) {
+        MaskStore<RoaringMask> store = RoaringMask.store(bufferSize, false);
+        var leftBitmap = bitmap(left, 0);
+        var rightBitmap = bitmap(right, 1);
+        int leftId = store(store, leftBitmap);
+        int rightId = store(store, rightBitmap);
+        var working = store.newMask();
+        for (int i = 0; i < 3; ++i) {
+            store.copyInto(working, rightId);
+            assertConsistent(rightBitmap, working);
+            store.copyInto(working, leftId);
+            assertConsistent(leftBitmap, working);
+            working.clear();
+            assertTrue(working.isEmpty());
+        }
+    }
+
+    private static int store(MaskStore<RoaringMask> store, MutableRoaringBitmap bitmap) {
+        int id = store.newMaskId();
+        bitmap.forEach((int bit) -> store.add(id, bit));
+        store.optimise(id);
+        return id;
+    }
+
+    private static void assertConsistent(MutableRoaringBitmap expected, RoaringMask actual) {
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.getCardinality(), actual.cardinality());
+        assertArrayEquals(expected.toArray(), actual.stream().toArray());
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first(), actual.first());
+        }
+    }
+
+    private static MutableRoaringBitmap bitmap(String shape, long seed) {
+        var random = new SplittableRandom(seed);
+        var bitmap = new MutableRoaringBitmap();
+        switch (shape) {
+            case "sparse":
+                for (int i = 0; i < 2000; ++i) {
+                    bitmap.add(random.nextInt(MAX));
+                }
+                break;
+            case "dense":
+                for (int i = 0; i < MAX / 2; ++i) {
+                    bitmap.add(random.nextInt(MAX));
+                }
+                break;
+            case "runs":
+                for (int i = 0; i < 100; ++i) {
+                    int start = random.nextInt(MAX - 1000);
+                    bitmap.add((long) start, start + random.nextInt(1, 1000));
+                }
+                break;
+            case "gaps":
+                // leaves whole containers empty in between
+                bitmap.add(0L, 10_000L);
+                bitmap.add((long) (3 << 16) + 5, (4 << 16) - 3);
+                for (int i = 0; i < 100; ++i) {
+                    bitmap.add((2 << 16) + random.nextInt(1 << 16));
+                }
+                break;
+            default:
+        }
+        bitmap.runOptimize();
+        return bitmap;
+    }
+}
@@ -10,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Comparator;
+import java.util.function.IntFunction;
 
 import static io.github.richardstartin.multimatcher.core.Mask.with;
 import static io.github.richardstartin.multimatcher.core.Operation.*;
@@ -60,6 +62,27 @@ public class ComparableMutableNodeTest {
         assertEquals(mask.andNot(zeroOrOne), store.getMask(node.match(LocalDate.ofEpochDay(10))));
     }
 
+    @Test
+    public void testGreaterThanOrEqualBetweenThresholds() {
+        var node = build(100, GE);
+        assertTrue(store.isEmpty(node.match(LocalDate.ofEpochDay(-1))));
+        assertEquals(zero, store.getMask(node.match(LocalDate.ofEpochDay(0))));
+        assertEquals(zero, store.getMask(node.match(LocalDate.ofEpochDay(9))));
+        assertEquals(zeroOrOne, store.getMask(node.match(LocalDate.ofEpochDay(10))));
+        assertEquals(zeroOrOne, store.getMask(node.match(LocalDate.ofEpochDay(11))));
+    }
+
+    @Test
+    public void testLessThanOrEqualBetweenThresholds() {
+        var node = build(100, LE);
+        BitsetMask mask = store.contiguous(100);
+        assertTrue(store.isEmpty(node.match(LocalDate.ofEpochDay(991))));
+        assertEquals(mask, store.getMask(node.match(LocalDate.ofEpochDay(0))));
+        assertEquals(mask.andNot(zero), store.getMask(node.match(LocalDate.ofEpochDay(1))));
+        assertEquals(mask.andNot(zero), store.getMask(node.match(LocalDate.ofEpochDay(10))));
+        assertEquals(mask.andNot(zeroOrOne), store.getMask(node.match(LocalDate.ofEpochDay(11))));
+    }
+
     @Test
     public void testGreaterThanRev() {
         var node = buildRev(100, GT);
@@ -94,6 +117,55 @@ public class ComparableMutableNodeTest {
         assertEquals(store.contiguous(2), store.getMask(node.match(11D)));
     }
 
+    @Test
+    public void testFrozenLayoutsAgreeWithThresholds() {
+        for (int count : new int[]{3, 20, 100}) {
+            for (Operation operation : new Operation[]{GT, GE, LT, LE, EQ, NE}) {
+                // LocalDate equality is hashed, BigDecimal equality is searched
+                verifyFrozen(count, operation, LocalDate::ofEpochDay);
+                verifyFrozen(count, operation, BigDecimal::valueOf);
+            }
+        }
+    }
+
+    @Test
+    public void testEqualityFollowsComparator() {
+        var node = new ComparableNode<BigDecimal, BitsetMask>(store, Comparator.naturalOrder(), EQ);
+        node.add(new BigDecimal("1.0"), 0);
+        node.freeze();
+        assertEquals(zero, store.getMask(node.match(new BigDecimal("1.00"))));
+    }
+
+    private <T extends Comparable<T>> void verifyFrozen(int count, Operation operation, IntFunction<T> values) {
+        var node = new ComparableNode<T, BitsetMask>(store, Comparator.naturalOrder(), operation);
+        for (int i = 0; i < count; ++i) {
+            node.add(values.apply(i * 10), i);
+        }
+        node.freeze();
+        for (int x = -1; x <= count * 10; ++x) {
+            var value = values.apply(x);
+            var expected = store.newMask();
+            for (int i = 0; i < count; ++i) {
+                int cmp = value.compareTo(values.apply(i * 10));
+                boolean matches;
+                switch (operation) {
+                    case GT: matches = cmp > 0; break;
+                    case GE: matches = cmp >= 0; break;
+                    case LT: matches = cmp < 0; break;
+                    case LE: matches = cmp <= 0; break;
+                    case EQ: matches = cmp == 0; break;
+                    default: matches = cmp != 0;
+                }
+                if (matches) {
+                    expected.add(i);
+                }
+            }
+            var actual = store.newMask();
+            node.orInto(value, actual);
+            assertEquals(expected, actual, operation + " " + value + " with " + count + " thresholds");
+        }
+    }
+
     private ComparableNode<LocalDate, BitsetMask> build(int count, Operation operation) {
         var node = new ComparableNode<>(store, Comparator.<LocalDate>naturalOrder(), operation);
         for (int i = 0; i < count; ++i) {
@@ -0,0 +1,114 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Dictionary;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.github.richardstartin.multimatcher.core.Constraint.equalTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.in;
+import static io.github.richardstartin.multimatcher.core.Constraint.notEqualTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.notIn;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class DictionaryMatcherTest {
+
+    private static final List<String> REGIONS = List.of("EMEA", "APAC", "AMER", "LATAM");
+
+    public static Stream<Arguments> dictionaries() {
+        var sparse = new Object2IntOpenHashMap<String>();
+        sparse.defaultReturnValue(-1);
+        for (int i = 0; i < REGIONS.size(); ++i) {
+            sparse.put(REGIONS.get(i), i * 1_000_000);
+        }
+        return IntStream.of(32, 64)
+                .boxed()
+                .flatMap(i -> Stream.of(
+                        Arguments.of(i - 1, WordMask.store(i), Dictionary.of(REGIONS)),
+                        Arguments.of(i - 1, WordMask.store(i), (Dictionary) sparse::getInt)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dictionaries")
+    public void testEqualityAndInequality(int maxElement, MaskStore<WordMask> store, Dictionary dictionary) {
+        var accumulator = new DictionaryConstraintAccumulator<Integer, WordMask>(Integer::intValue,
+                dictionary, store, 6);
+        accumulator.addConstraint(equalTo("EMEA"), 0);
+        accumulator.addConstraint(notEqualTo("APAC"), 1);
+        accumulator.addConstraint(in(List.of("EMEA", "AMER")), 2);
+        accumulator.addConstraint(notIn(List.of("EMEA", "AMER")), 3);
+        // neither can be encoded
+        accumulator.addConstraint(equalTo("ANTARCTICA"), 4);
+        accumulator.addConstraint(notEqualTo("ANTARCTICA"), 5);
+        var matcher = accumulator.toMatcher();
+        assertEquals(store.of(0, 1, 2, 5), match(matcher, dictionary.encode("EMEA"), store, maxElement));
+        assertEquals(store.of(3, 5), match(matcher, dictionary.encode("APAC"), store, maxElement));
+        assertEquals(store.of(1, 2, 5), match(matcher, dictionary.encode("AMER"), store, maxElement));
+        assertEquals(store.of(1, 3, 5), match(matcher, dictionary.encode("LATAM"), store, maxElement));
+        assertEquals(store.of(1, 3, 5), match(matcher, -1, store, maxElement));
+        assertEquals(store.of(1, 3, 5), match(matcher, Integer.MAX_VALUE, store, maxElement));
+        assertEquals(store.of(1, 3, 5), match(matcher, Integer.MIN_VALUE, store, maxElement));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dictionaries")
+    public void testResolveAndMatchWordAgree(int maxElement, MaskStore<WordMask> store, Dictionary dictionary) {
+        var accumulator = new DictionaryConstraintAccumulator<Integer, WordMask>(Integer::intValue,
+                dictionary, store, 3);
+        accumulator.addConstraint(equalTo("AMER"), 0);
+        accumulator.addConstraint(notEqualTo("LATAM"), 1);
+        var matcher = accumulator.toMatcher();
+        int[] ids = new int[matcher.maxResolvedIds()];
+        for (String region : REGIONS) {
+            int code = dictionary.encode(region);
+            assertEquals(1, matcher.resolve(code, ids, 0));
+            var expected = match(matcher, code, store, maxElement);
+            var resolved = store.contiguous(maxElement);
+            store.andInto(resolved, ids[0]);
+            assertEquals(expected, resolved);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("dictionaries")
+    public void testLiteralsWithSameCodeAreSameValue(int maxElement, MaskStore<WordMask> store, Dictionary dictionary) {
+        Dictionary caseInsensitive = value -> dictionary.encode(value.toUpperCase());
+        var accumulator = new DictionaryConstraintAccumulator<Integer, WordMask>(Integer::intValue,
+                caseInsensitive, store, 5);
+        accumulator.addConstraint(equalTo("EMEA"), 0);
+        accumulator.addConstraint(equalTo("emea"), 1);
+        accumulator.addConstraint(notEqualTo("Emea"), 2);
+        accumulator.addConstraint(in(List.of("apac", "EMEA")), 3);
+        accumulator.addConstraint(notIn(List.of("Amer", "AMER")), 4);
+        var matcher = accumulator.toMatcher();
+        assertEquals(store.of(0, 1, 3, 4), match(matcher, dictionary.encode("EMEA"), store, maxElement));
+        assertEquals(store.of(2, 3, 4), match(matcher, dictionary.encode("APAC"), store, maxElement));
+        assertEquals(store.of(2), match(matcher, dictionary.encode("AMER"), store, maxElement));
+        assertEquals(store.of(2, 4), match(matcher, dictionary.encode("LATAM"), store, maxElement));
+    }
+
+    @Test
+    public void testDuplicateValuesRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Dictionary.of(List.of("EMEA", "APAC", "EMEA")));
+    }
+
+    private static WordMask match(Matcher<Integer, WordMask> matcher,
+                                  int code, MaskStore<WordMask> store, int maxElement) {
+        var mask = store.contiguous(maxElement);
+        matcher.match(code, mask, store.newMask());
+        return mask;
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.github.richardstartin.multimatcher.core.Constraint.equalTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.in;
+import static io.github.richardstartin.multimatcher.core.Constraint.notEqualTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.notIn;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class EnumMatcherTest {
+
+    enum Colour {
+        RED, GREEN, BLUE, YELLOW
+    }
+
+    public static Stream<Arguments> stores() {
+        return IntStream.of(32, 64)
+                .mapToObj(i -> Arguments.of(i - 1, WordMask.store(i)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testEqualityAndInequality(int maxElement, MaskStore<WordMask> store) {
+        var accumulator = new EnumConstraintAccumulator<Colour, Colour, WordMask>(Colour.class,
+                Function.identity(), store, 4);
+        accumulator.addConstraint(equalTo(Colour.RED), 0);
+        accumulator.addConstraint(notEqualTo(Colour.GREEN), 1);
+        accumulator.addConstraint(in(List.of(Colour.RED, Colour.BLUE)), 2);
+        accumulator.addConstraint(notIn(List.of(Colour.RED, Colour.BLUE)), 3);
+        var matcher = accumulator.toMatcher();
+        assertEquals(store.of(0, 1, 2), match(matcher, Colour.RED, store, maxElement));
+        assertEquals(store.of(3), match(matcher, Colour.GREEN, store, maxElement));
+        assertEquals(store.of(1, 2), match(matcher, Colour.BLUE, store, maxElement));
+        assertEquals(store.of(1, 3), match(matcher, Colour.YELLOW, store, maxElement));
+        assertEquals(store.of(1, 3), match(matcher, null, store, maxElement));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testResolveAndMatchWordAgree(int maxElement, MaskStore<WordMask> store) {
+        var accumulator = new EnumConstraintAccumulator<Colour, Colour, WordMask>(Colour.class,
+                Function.identity(), store, 3);
+        accumulator.addConstraint(equalTo(Colour.BLUE), 0);
+        accumulator.addConstraint(notEqualTo(Colour.YELLOW), 1);
+        var matcher = accumulator.toMatcher();
+        int[] ids = new int[matcher.maxResolvedIds()];
+        for (Colour colour : Colour.values()) {
+            assertEquals(1, matcher.resolve(colour, ids, 0));
+            var expected = match(matcher, colour, store, maxElement);
+            var resolved = store.contiguous(maxElement);
+            store.andInto(resolved, ids[0]);
+            assertEquals(expected, resolved);
+        }
+    }
+
+    private static WordMask match(Matcher<Colour, WordMask> matcher,
+                                  Colour colour, MaskStore<WordMask> store, int maxElement) {
+        var mask = store.contiguous(maxElement);
+        matcher.match(colour, mask, store.newMask());
+        return mask;
+    }
+}
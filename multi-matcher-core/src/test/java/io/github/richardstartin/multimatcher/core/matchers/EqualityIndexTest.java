@@ -0,0 +1,104 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.matchers.nodes.EqualityLayout;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.IntEqualityIndex;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.LongEqualityIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class EqualityIndexTest {
+
+    public static Stream<Arguments> thresholds() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (EqualityLayout layout : new EqualityLayout[]{EqualityLayout.TABLE, EqualityLayout.HASH}) {
+            for (int count : new int[]{0, 1, 2, 5, 64, 1000}) {
+                for (int spacing : new int[]{1, 3, 100}) {
+                    arguments.add(Arguments.of(layout, count, spacing));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("thresholds")
+    public void testIntIndexConsistentWithSearch(EqualityLayout layout, int count, int spacing) {
+        int[] thresholds = IntStream.range(0, count).map(i -> i * spacing - count).toArray();
+        int[] ids = IntStream.range(1, count + 1).toArray();
+        var index = IntEqualityIndex.of(thresholds, ids, count, layout);
+        assertEquals(layout, index.layout());
+        for (int value = -2 * count - 2; value <= count * spacing + 2; ++value) {
+            int position = Arrays.binarySearch(thresholds, value);
+            assertEquals(position >= 0 ? ids[position] : 0, index.get(value), "value " + value);
+        }
+        assertEquals(0, index.get(Integer.MIN_VALUE));
+        assertEquals(0, index.get(Integer.MAX_VALUE));
+    }
+
+    @ParameterizedTest(name = "{0}/{1}/{2}")
+    @MethodSource("thresholds")
+    public void testLongIndexConsistentWithSearch(EqualityLayout layout, int count, int spacing) {
+        long[] thresholds = IntStream.range(0, count).mapToLong(i -> i * spacing - count).toArray();
+        int[] ids = IntStream.range(1, count + 1).toArray();
+        var index = LongEqualityIndex.of(thresholds, ids, count, layout);
+        assertEquals(layout, index.layout());
+        for (long value = -2 * count - 2; value <= (long) count * spacing + 2; ++value) {
+            int position = Arrays.binarySearch(thresholds, value);
+            assertEquals(position >= 0 ? ids[position] : 0, index.get(value), "value " + value);
+        }
+        assertEquals(0, index.get(Long.MIN_VALUE));
+        assertEquals(0, index.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testHashWithSparseLongs() {
+        var random = new SplittableRandom(0);
+        long[] thresholds = random.longs(10_000).sorted().distinct().toArray();
+        int[] ids = IntStream.range(1, thresholds.length + 1).toArray();
+        var index = LongEqualityIndex.of(thresholds, ids, thresholds.length, EqualityLayout.HASH);
+        for (int i = 0; i < thresholds.length; ++i) {
+            assertEquals(ids[i], index.get(thresholds[i]));
+        }
+        for (int i = 0; i < 10_000; ++i) {
+            long value = random.nextLong();
+            int position = Arrays.binarySearch(thresholds, value);
+            assertEquals(position >= 0 ? ids[position] : 0, index.get(value));
+        }
+    }
+
+    @Test
+    public void testLayoutSelection() {
+        assertEquals(EqualityLayout.SEARCH, EqualityLayout.forThresholds(0, 0));
+        assertEquals(EqualityLayout.TABLE, EqualityLayout.forThresholds(2, 100));
+        assertEquals(EqualityLayout.TABLE, EqualityLayout.forThresholds(100_000, 500_000));
+        assertEquals(EqualityLayout.TABLE, EqualityLayout.forThresholds(600, 4000));
+        // sparse thresholds don't get a table, however small the range
+        assertEquals(EqualityLayout.SEARCH, EqualityLayout.forThresholds(2, 4000));
+        assertEquals(EqualityLayout.HASH, EqualityLayout.forThresholds(8, 4000));
+        assertEquals(EqualityLayout.SEARCH, EqualityLayout.forThresholds(2, 1L << 40));
+        assertEquals(EqualityLayout.HASH, EqualityLayout.forThresholds(1000, 1L << 40));
+        assertEquals(EqualityLayout.HASH, EqualityLayout.forThresholds(1000, -1));
+        assertEquals(EqualityLayout.HASH, EqualityLayout.forThresholds(1 << 20, 1 << 20));
+    }
+
+    @Test
+    public void testSearchLayoutNotIndexable() {
+        assertThrows(IllegalArgumentException.class,
+                () -> IntEqualityIndex.of(new int[0], new int[0], 0, EqualityLayout.SEARCH));
+    }
+}
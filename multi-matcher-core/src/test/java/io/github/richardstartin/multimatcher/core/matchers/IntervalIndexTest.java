@@ -0,0 +1,162 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Constraint;
+import io.github.richardstartin.multimatcher.core.Mask;
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
+import io.github.richardstartin.multimatcher.core.Operation;
+import io.github.richardstartin.multimatcher.core.masks.BitsetMask;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.RoaringMask;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.github.richardstartin.multimatcher.core.Operation.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class IntervalIndexTest {
+
+    private static final Operation[] OPERATIONS = {GT, GE, LT, LE, EQ};
+    private static final MatcherOptions UNLIMITED = MatcherOptions.DEFAULT.withIntervalIndexBudget(Long.MAX_VALUE);
+
+    public static Stream<Arguments> stores() {
+        return Stream.of(
+                Arguments.of(30, (Supplier<MaskStore<?>>) () -> WordMask.store(30)),
+                Arguments.of(63, (Supplier<MaskStore<?>>) () -> WordMask.store(63)),
+                Arguments.of(1000, (Supplier<MaskStore<?>>) () -> BitsetMask.store(1000)),
+                Arguments.of(1000, (Supplier<MaskStore<?>>) () -> RoaringMask.store(0, false)),
+                Arguments.of(1000, (Supplier<MaskStore<?>>) () -> RoaringMask.store(1 << 20, false))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public <MaskType extends Mask<MaskType>> void testIntIntervalIndex(int max, Supplier<MaskStore<MaskType>> stores) {
+        var store = stores.get();
+        var indexedStore = stores.get();
+        var matcher = new IntMatcher<Integer, MaskType>(Integer::intValue, store, max);
+        var indexed = new IntMatcher<Integer, MaskType>(Integer::intValue, indexedStore, max);
+        var random = new SplittableRandom(max);
+        for (int i = 0; i < max; ++i) {
+            if (random.nextInt(10) > 0) {
+                var constraint = constraint(OPERATIONS[random.nextInt(OPERATIONS.length)], random.nextInt(-20, 20));
+                matcher.addConstraint(constraint, i);
+                indexed.addConstraint(constraint, i);
+            }
+        }
+        var expected = matcher.toMatcher();
+        var actual = indexed.toMatcher(UNLIMITED);
+        assertEquals(1, actual.maxResolvedIds());
+        for (int value : new int[]{Integer.MIN_VALUE, -21, -20, -19, -1, 0, 1, 19, 20, 21, Integer.MAX_VALUE}) {
+            assertMatches(store, expected, indexedStore, actual, value, max);
+        }
+        for (int value = -25; value <= 25; ++value) {
+            assertMatches(store, expected, indexedStore, actual, value, max);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public <MaskType extends Mask<MaskType>> void testLongIntervalIndex(int max, Supplier<MaskStore<MaskType>> stores) {
+        var store = stores.get();
+        var indexedStore = stores.get();
+        var matcher = new LongMatcher<Long, MaskType>(Long::longValue, store, max);
+        var indexed = new LongMatcher<Long, MaskType>(Long::longValue, indexedStore, max);
+        var random = new SplittableRandom(max);
+        for (int i = 0; i < max; ++i) {
+            var constraint = constraint(OPERATIONS[random.nextInt(OPERATIONS.length)],
+                    random.nextInt(10) == 0 ? Long.MAX_VALUE : (long) random.nextInt(-20, 20));
+            matcher.addConstraint(constraint, i);
+            indexed.addConstraint(constraint, i);
+        }
+        var expected = matcher.toMatcher();
+        var actual = indexed.toMatcher(UNLIMITED);
+        assertEquals(1, actual.maxResolvedIds());
+        for (long value = -25; value <= 25; ++value) {
+            assertMatches(store, expected, indexedStore, actual, value, max);
+        }
+        assertMatches(store, expected, indexedStore, actual, Long.MIN_VALUE, max);
+        assertMatches(store, expected, indexedStore, actual, Long.MAX_VALUE, max);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public <MaskType extends Mask<MaskType>> void testDoubleIntervalIndex(int max, Supplier<MaskStore<MaskType>> stores) {
+        var store = stores.get();
+        var indexedStore = stores.get();
+        var matcher = new DoubleMatcher<Double, MaskType>(Double::doubleValue, store, max);
+        var indexed = new DoubleMatcher<Double, MaskType>(Double::doubleValue, indexedStore, max);
+        var random = new SplittableRandom(max);
+        for (int i = 0; i < max; ++i) {
+            var constraint = constraint(OPERATIONS[random.nextInt(OPERATIONS.length)],
+                    random.nextInt(-20, 20) / 2D);
+            matcher.addConstraint(constraint, i);
+            indexed.addConstraint(constraint, i);
+        }
+        var expected = matcher.toMatcher();
+        var actual = indexed.toMatcher(UNLIMITED);
+        assertEquals(1, actual.maxResolvedIds());
+        DoubleStream.concat(DoubleStream.iterate(-12, d -> d <= 12, d -> d + 0.25),
+                DoubleStream.of(Double.NEGATIVE_INFINITY, -0D, 0D, Double.MIN_VALUE, Double.POSITIVE_INFINITY))
+                .forEach(value -> assertMatches(store, expected, indexedStore, actual, value, max));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public <MaskType extends Mask<MaskType>> void testBudgetExceeded(int max, Supplier<MaskStore<MaskType>> stores) {
+        var store = stores.get();
+        var matcher = new IntMatcher<Integer, MaskType>(Integer::intValue, store, max);
+        for (int i = 0; i < max; ++i) {
+            matcher.addConstraint(constraint(i % 2 == 0 ? GE : LT, i), i);
+        }
+        var frozen = matcher.toMatcher(MatcherOptions.DEFAULT.withIntervalIndexBudget(64));
+        assertTrue(frozen.maxResolvedIds() > 1);
+        var context = store.contiguous(max);
+        int value = max / 2;
+        frozen.match(value, context, store.newMask());
+        assertEquals(IntStream.range(0, max).filter(i -> i % 2 == 0 ? value >= i : value < i).count(),
+                context.stream().count());
+    }
+
+    private static Constraint constraint(Operation operation, Comparable<?> value) {
+        switch (operation) {
+            case GT:
+                return Constraint.greaterThan(value);
+            case GE:
+                return Constraint.greaterThanOrEqualTo(value);
+            case LT:
+                return Constraint.lessThan(value);
+            case LE:
+                return Constraint.lessThanOrEqualTo(value);
+            default:
+                return Constraint.equalTo(value);
+        }
+    }
+
+    private static <T, MaskType extends Mask<MaskType>>
+    void assertMatches(MaskStore<MaskType> store,
+                       Matcher<T, MaskType> expected,
+                       MaskStore<MaskType> indexedStore,
+                       Matcher<T, MaskType> actual,
+                       T value,
+                       int max) {
+        var expectedMask = store.contiguous(max);
+        expected.match(value, expectedMask, store.newMask());
+        var actualMask = indexedStore.contiguous(max);
+        actual.match(value, actualMask, indexedStore.newMask());
+        assertArrayEquals(expectedMask.stream().toArray(), actualMask.stream().toArray(), "value " + value);
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.MatcherOptions;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.PerfectHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import static io.github.richardstartin.multimatcher.core.Constraint.equalTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.notEqualTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class PerfectHashMapTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 100, 1023, 100_000})
+    public void testLookupsAgreeWithMap(int count) {
+        var random = new SplittableRandom(count);
+        var map = new Object2IntOpenHashMap<String>();
+        map.defaultReturnValue(-1);
+        while (map.size() < count) {
+            map.put(Long.toHexString(random.nextLong()), random.nextInt(1, Integer.MAX_VALUE));
+        }
+        var perfectHash = PerfectHashMap.build(map);
+        assertNotNull(perfectHash);
+        assertEquals(count, perfectHash.size());
+        for (var entry : map.object2IntEntrySet()) {
+            assertEquals(entry.getIntValue(), perfectHash.getInt(entry.getKey()));
+            assertTrue(perfectHash.containsKey(entry.getKey()));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            String missing = Long.toHexString(random.nextLong()) + "!";
+            assertEquals(-1, perfectHash.getInt(missing));
+            assertEquals(0, perfectHash.getOrDefault(missing, 0));
+            assertFalse(perfectHash.containsKey(missing));
+        }
+        assertEquals(0, perfectHash.getOrDefault(null, 0));
+        assertEquals(count, perfectHash.object2IntEntrySet().size());
+        assertEquals(map, perfectHash);
+    }
+
+    @Test
+    public void testCollidingHashCodes() {
+        var map = new Object2IntOpenHashMap<String>();
+        map.defaultReturnValue(-1);
+        // "Aa" and "BB" have the same hash code, and so do all their concatenations of the same length
+        String[] keys = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB", "foo"};
+        for (int i = 0; i < keys.length; ++i) {
+            map.put(keys[i], i);
+        }
+        var perfectHash = PerfectHashMap.build(map);
+        assertNotNull(perfectHash);
+        assertEquals(keys.length, perfectHash.size());
+        for (int i = 0; i < keys.length; ++i) {
+            assertEquals(i, perfectHash.getInt(keys[i]));
+        }
+        assertEquals(-1, perfectHash.getInt("BBBBBB"));
+        assertEquals(-1, perfectHash.getInt("bar"));
+    }
+
+    @Test
+    public void testStringMatcherWithPerfectHash() {
+        MaskStore<WordMask> store = WordMask.store(4);
+        var accumulator = new StringConstraintAccumulator<String, WordMask>(Function.identity(), store, 4);
+        accumulator.addConstraint(equalTo("foo"), 0);
+        accumulator.addConstraint(equalTo("bar"), 1);
+        accumulator.addConstraint(notEqualTo("foo"), 2);
+        accumulator.addConstraint(startsWith("fo"), 3);
+        var matcher = accumulator.toMatcher(
+                MatcherOptions.DEFAULT.withPerfectHashThreshold(1));
+        assertEquals(store.of(0, 3), match(matcher, "foo", store));
+        assertEquals(store.of(1, 2), match(matcher, "bar", store));
+        assertEquals(store.of(2, 3), match(matcher, "fob", store));
+        assertEquals(store.of(2), match(matcher, "baz", store));
+    }
+
+    private static WordMask match(Matcher<String, WordMask> matcher,
+                                  String value, MaskStore<WordMask> store) {
+        var mask = store.contiguous(4);
+        matcher.match(value, mask, store.newMask());
+        return mask;
+    }
+}
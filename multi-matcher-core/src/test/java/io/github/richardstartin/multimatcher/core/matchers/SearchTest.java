@@ -0,0 +1,74 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.matchers.nodes.Search;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class SearchTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 7, 8, 15, 16, 17, 100, 1023, 1024, 4097, 10000})
+    public void testIntLowerBound(int count) {
+        var random = new SplittableRandom(count);
+        int[] sorted = random.ints(count, -count - 1, count + 1).sorted().distinct().toArray();
+        int[] eytzinger = Search.eytzinger(sorted, sorted.length);
+        int[] ranks = Search.ranks(sorted.length);
+        for (int value = -count - 2; value <= count + 2; ++value) {
+            int expected = lowerBound(Arrays.binarySearch(sorted, value));
+            assertEquals(expected, Search.lowerBound(sorted, sorted.length, value), "branchless " + value);
+            assertEquals(expected, Search.lowerBound(eytzinger, ranks, value), "eytzinger " + value);
+        }
+        for (int value : new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            int expected = lowerBound(Arrays.binarySearch(sorted, value));
+            assertEquals(expected, Search.lowerBound(sorted, sorted.length, value));
+            assertEquals(expected, Search.lowerBound(eytzinger, ranks, value));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 7, 8, 15, 16, 17, 100, 1023, 1024, 4097, 10000})
+    public void testLongLowerBound(int count) {
+        var random = new SplittableRandom(count);
+        long[] sorted = random.longs(count, -count - 1, count + 1).map(x -> x << 33).sorted().distinct().toArray();
+        long[] eytzinger = Search.eytzinger(sorted, sorted.length);
+        int[] ranks = Search.ranks(sorted.length);
+        for (long value = -count - 2; value <= count + 2; ++value) {
+            long shifted = value << 33;
+            int expected = lowerBound(Arrays.binarySearch(sorted, shifted));
+            assertEquals(expected, Search.lowerBound(sorted, sorted.length, shifted), "branchless " + shifted);
+            assertEquals(expected, Search.lowerBound(eytzinger, ranks, shifted), "eytzinger " + shifted);
+        }
+        for (long value : new long[]{Long.MIN_VALUE, Long.MAX_VALUE}) {
+            int expected = lowerBound(Arrays.binarySearch(sorted, value));
+            assertEquals(expected, Search.lowerBound(sorted, sorted.length, value));
+            assertEquals(expected, Search.lowerBound(eytzinger, ranks, value));
+        }
+    }
+
+    @Test
+    public void testSortableDoubles() {
+        double[] values = {Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1D, -Double.MIN_VALUE, -0D,
+                0D, Double.MIN_VALUE, 1D, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN};
+        for (int i = 0; i < values.length; ++i) {
+            for (int j = 0; j < values.length; ++j) {
+                assertEquals(Integer.signum(Double.compare(values[i], values[j])),
+                        Long.signum(Long.compare(Search.sortable(values[i]), Search.sortable(values[j]))));
+            }
+        }
+        assertTrue(Search.sortable(Double.NaN) == Search.sortable(Double.longBitsToDouble(0x7ff8000000000001L)));
+    }
+
+    private static int lowerBound(int position) {
+        return position >= 0 ? position : -(position + 1);
+    }
+}
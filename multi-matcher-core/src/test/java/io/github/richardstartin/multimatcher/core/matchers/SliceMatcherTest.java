@@ -0,0 +1,144 @@
+package io.github.richardstartin.multimatcher.core.matchers;
+
+import io.github.richardstartin.multimatcher.core.Matcher;
+import io.github.richardstartin.multimatcher.core.masks.MaskStore;
+import io.github.richardstartin.multimatcher.core.masks.WordMask;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.CharSequenceLiteralIndex;
+import io.github.richardstartin.multimatcher.core.matchers.nodes.Utf8LiteralIndex;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.github.richardstartin.multimatcher.core.Constraint.equalTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.in;
+import static io.github.richardstartin.multimatcher.core.Constraint.notEqualTo;
+import static io.github.richardstartin.multimatcher.core.Constraint.notIn;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class SliceMatcherTest {
+
+    public static Stream<Arguments> stores() {
+        return IntStream.of(32, 64)
+                .mapToObj(i -> Arguments.of(i - 1, WordMask.store(i)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testUtf8Slices(int maxElement, MaskStore<WordMask> store) {
+        var accumulator = new SliceConstraintAccumulator<ByteBuffer, ByteBuffer, WordMask>(Function.identity(),
+                Utf8LiteralIndex::build, store, 4);
+        addConstraints(accumulator);
+        var matcher = accumulator.toMatcher();
+        for (var buffer : List.of(ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64))) {
+            assertEquals(store.of(0, 1, 2), match(matcher, slice(buffer, "grün"), store, maxElement));
+            assertEquals(store.of(3), match(matcher, slice(buffer, "green"), store, maxElement));
+            assertEquals(store.of(1, 2), match(matcher, slice(buffer, "blue"), store, maxElement));
+            assertEquals(store.of(1, 3), match(matcher, slice(buffer, "yellow"), store, maxElement));
+            assertEquals(store.of(1, 3), match(matcher, slice(buffer, ""), store, maxElement));
+            assertEquals(store.of(1, 3), match(matcher, slice(buffer, "gr"), store, maxElement));
+        }
+        assertEquals(store.of(1, 3), match(matcher, null, store, maxElement));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testCharSequences(int maxElement, MaskStore<WordMask> store) {
+        var accumulator = new SliceConstraintAccumulator<CharSequence, CharSequence, WordMask>(Function.identity(),
+                CharSequenceLiteralIndex::build, store, 4);
+        addConstraints(accumulator);
+        var matcher = accumulator.toMatcher();
+        var text = new StringBuilder("grüngreenblue");
+        assertEquals(store.of(0, 1, 2), match(matcher, text.subSequence(0, 4), store, maxElement));
+        assertEquals(store.of(0, 1, 2), match(matcher, "grün", store, maxElement));
+        assertEquals(store.of(3), match(matcher, text.subSequence(4, 9), store, maxElement));
+        assertEquals(store.of(1, 2), match(matcher, new StringBuilder("blue"), store, maxElement));
+        assertEquals(store.of(1, 3), match(matcher, text, store, maxElement));
+        assertEquals(store.of(1, 3), match(matcher, null, store, maxElement));
+    }
+
+    @Test
+    public void testSliceIsNotModified() {
+        var literals = new Object2IntOpenHashMap<String>();
+        literals.put("foo", 1);
+        var index = Utf8LiteralIndex.build(literals);
+        var buffer = ByteBuffer.wrap("xfooy".getBytes(UTF_8), 1, 3).slice();
+        assertEquals(1, index.get(buffer, 0));
+        assertEquals(0, buffer.position());
+        assertEquals(3, buffer.limit());
+        assertEquals(1, index.get("xfooy".getBytes(UTF_8), 1, 3, 0));
+        assertEquals(0, index.get("xfooy".getBytes(UTF_8), 0, 3, 0));
+    }
+
+    @Test
+    public void testManyLiterals() {
+        var literals = new Object2IntOpenHashMap<String>();
+        for (int i = 0; i < 10_000; ++i) {
+            literals.put("literal" + i, i + 1);
+        }
+        // share a hash code with a literal
+        literals.put("Aa", 20_000);
+        literals.put("BB", 20_001);
+        var utf8 = Utf8LiteralIndex.build(literals);
+        var chars = CharSequenceLiteralIndex.build(literals);
+        var buffer = ByteBuffer.allocateDirect(32);
+        for (var literal : literals.object2IntEntrySet()) {
+            assertEquals(literal.getIntValue(), utf8.get(slice(buffer, literal.getKey()), -1));
+            assertEquals(literal.getIntValue(), chars.get(new StringBuilder(literal.getKey()), -1));
+        }
+        for (int i = 10_000; i < 20_000; ++i) {
+            assertEquals(-1, utf8.get(slice(buffer, "literal" + i), -1));
+            assertEquals(-1, chars.get(new StringBuilder("literal" + i), -1));
+        }
+        assertEquals(literals.size(), utf8.ids().length);
+        assertEquals(literals.size(), chars.ids().length);
+    }
+
+    @Test
+    public void testNonStringLiteralsRejected() {
+        var store = WordMask.store(4);
+        var accumulator = new SliceConstraintAccumulator<CharSequence, CharSequence, WordMask>(Function.identity(),
+                CharSequenceLiteralIndex::build, store, 4);
+        assertThrows(IllegalArgumentException.class, () -> accumulator.addConstraint(equalTo(5), 0));
+        assertThrows(IllegalArgumentException.class, () -> accumulator.addConstraint(notEqualTo(5L), 1));
+        assertThrows(IllegalArgumentException.class, () -> accumulator.addConstraint(in(List.of("five", 5)), 2));
+        assertThrows(IllegalArgumentException.class, () -> accumulator.addConstraint(notIn(List.of(5)), 3));
+    }
+
+    private static void addConstraints(SliceConstraintAccumulator<?, ?, WordMask> accumulator) {
+        accumulator.addConstraint(equalTo("grün"), 0);
+        accumulator.addConstraint(notEqualTo("green"), 1);
+        accumulator.addConstraint(in(List.of("grün", "blue")), 2);
+        accumulator.addConstraint(notIn(List.of("grün", "blue")), 3);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, String value) {
+        // leave some garbage either side of the value
+        buffer.clear();
+        buffer.put((byte) 'x');
+        int position = buffer.position();
+        buffer.put(value.getBytes(UTF_8));
+        int limit = buffer.position();
+        buffer.put((byte) 'y');
+        return buffer.limit(limit).position(position);
+    }
+
+    private static <T> WordMask match(Matcher<T, WordMask> matcher,
+                                      T value, MaskStore<WordMask> store, int maxElement) {
+        var mask = store.contiguous(maxElement);
+        matcher.match(value, mask, store.newMask());
+        return mask;
+    }
+}
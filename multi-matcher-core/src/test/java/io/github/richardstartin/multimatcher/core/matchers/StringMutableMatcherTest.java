@@ -13,6 +13,8 @@ import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static io.github.richardstartin.multimatcher.core.Constraint.contains;
+import static io.github.richardstartin.multimatcher.core.Constraint.endsWith;
 import static io.github.richardstartin.multimatcher.core.Constraint.equalTo;
 import static io.github.richardstartin.multimatcher.core.Constraint.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -35,7 +37,49 @@ public class StringMutableMatcherTest {
         matcher.addConstraint(startsWith("foo"), 2);
         matcher.addConstraint(startsWith("f"), 3);
         var mask = store.contiguous(maxElement);
-        matcher.toMatcher().match("foo", mask);
+        matcher.toMatcher().match("foo", mask, store.newMask());
         assertEquals(store.of(0, 2, 3), mask);
     }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testPrefixesExcludedFromWildcard(int maxElement, MaskStore<WordMask> store) {
+        StringConstraintAccumulator<String, WordMask> matcher = new StringConstraintAccumulator<>(Function.identity(), store, 4);
+        matcher.addConstraint(equalTo("foo"), 0);
+        matcher.addConstraint(equalTo("bar"), 1);
+        matcher.addConstraint(startsWith("foo"), 2);
+        matcher.addConstraint(startsWith("f"), 3);
+        var frozen = matcher.toMatcher();
+        var mask = store.contiguous(maxElement);
+        frozen.match("fob", mask, store.newMask());
+        assertEquals(store.of(3), mask);
+        mask = store.contiguous(maxElement);
+        frozen.match("bar", mask, store.newMask());
+        assertEquals(store.of(1), mask);
+        mask = store.contiguous(maxElement);
+        frozen.match("food", mask, store.newMask());
+        assertEquals(store.of(2, 3), mask);
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    public void testSubstringsAndSuffixes(int maxElement, MaskStore<WordMask> store) {
+        StringConstraintAccumulator<String, WordMask> matcher = new StringConstraintAccumulator<>(Function.identity(), store, 6);
+        matcher.addConstraint(contains("he"), 0);
+        matcher.addConstraint(contains("she"), 1);
+        matcher.addConstraint(contains("his"), 2);
+        matcher.addConstraint(contains("hers"), 3);
+        matcher.addConstraint(contains("café"), 4);
+        matcher.addConstraint(endsWith("rs"), 5);
+        var frozen = matcher.toMatcher();
+        var mask = store.contiguous(maxElement);
+        frozen.match("ushers", mask, store.newMask());
+        assertEquals(store.of(0, 1, 3, 5), mask);
+        mask = store.contiguous(maxElement);
+        frozen.match("this café", mask, store.newMask());
+        assertEquals(store.of(2, 4), mask);
+        mask = store.contiguous(maxElement);
+        frozen.match("rs?", mask, store.newMask());
+        assertEquals(store.newMask(), mask);
+    }
 }
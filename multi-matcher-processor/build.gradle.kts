@@ -0,0 +1,13 @@
+val deps: Map<String, String> by extra
+
+// the processor only writes source which refers to the core, so the core is only needed to test it
+dependencies {
+    testImplementation(project(":multi-matcher-core"))
+    testImplementation("org.junit.jupiter:junit-jupiter-api:${deps["jupiter"]}")
+    testImplementation("org.junit.jupiter:junit-jupiter-engine:${deps["jupiter"]}")
+}
+
+tasks.test {
+    useJUnitPlatform()
+    failFast = true
+}
@@ -0,0 +1,47 @@
+package io.github.richardstartin.multimatcher.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field or a getter of a class as an attribute which rules can
+ * refer to. For each class with attributes, {@link SchemaProcessor} generates
+ * a class named after it with the suffix <code>Schema</code>, in the same
+ * package, whose <code>create()</code> method returns a
+ * <code>Schema&lt;String, T&gt;</code> with every attribute registered.
+ * <p>
+ * The type of the attribute chooses how it is registered:
+ * <ul>
+ *     <li><code>int</code>, <code>short</code>, <code>byte</code> and <code>char</code>
+ *     as an int attribute</li>
+ *     <li><code>long</code> as a long attribute</li>
+ *     <li><code>double</code> and <code>float</code> as a double attribute</li>
+ *     <li><code>String</code> as a string attribute</li>
+ *     <li>enums as enum attributes</li>
+ *     <li><code>Instant</code>, <code>LocalDate</code> and <code>Duration</code>
+ *     as temporal attributes</li>
+ *     <li>anything else as a generic attribute, with the natural order if
+ *     {@link #ordered()} is set</li>
+ * </ul>
+ * The annotated member must not be private, and a getter must not take
+ * parameters.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Attribute {
+
+    /**
+     * @return the key rules refer to the attribute by, which defaults to the
+     * name of the field, or the name of the getter without <code>get</code> or
+     * <code>is</code>, starting with a lower case letter.
+     */
+    String value() default "";
+
+    /**
+     * @return whether to register an attribute of a type other than a primitive,
+     * a string or an enum with its natural order, which must be comparable.
+     */
+    boolean ordered() default false;
+}
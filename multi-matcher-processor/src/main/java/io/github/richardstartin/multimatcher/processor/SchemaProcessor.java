@@ -0,0 +1,304 @@
+package io.github.richardstartin.multimatcher.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Generates a schema for each class with members annotated with {@link Attribute}.
+ * Each attribute gets an accessor class of its own, which implements the most
+ * specific functional interface for its type and reads the member directly, so
+ * registering the attributes neither reflects nor spins up lambdas, and the
+ * primitive accessors are used without boxing.
+ */
+@SupportedAnnotationTypes("io.github.richardstartin.multimatcher.processor.Attribute")
+public class SchemaProcessor extends AbstractProcessor {
+
+    private static final String SCHEMA = "io.github.richardstartin.multimatcher.core.Schema";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        var attributesByType = new LinkedHashMap<TypeElement, List<Element>>();
+        for (var element : roundEnv.getElementsAnnotatedWith(Attribute.class)) {
+            attributesByType.computeIfAbsent((TypeElement) element.getEnclosingElement(), t -> new ArrayList<>())
+                    .add(element);
+        }
+        for (var entry : attributesByType.entrySet()) {
+            var attributes = new ArrayList<AttributeSpec>();
+            boolean valid = checkType(entry.getKey());
+            for (var element : entry.getValue()) {
+                var attribute = toAttribute(element);
+                if (null == attribute) {
+                    valid = false;
+                } else {
+                    attributes.add(attribute);
+                }
+            }
+            if (valid && uniqueKeys(attributes)) {
+                write(entry.getKey(), attributes);
+            }
+        }
+        return true;
+    }
+
+    private boolean checkType(TypeElement type) {
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "Can't generate a schema for generic type " + type);
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "Can't generate a schema for private type " + type);
+            return false;
+        }
+        return true;
+    }
+
+    private AttributeSpec toAttribute(Element element) {
+        var annotation = element.getAnnotation(Attribute.class);
+        if (element.getModifiers().contains(Modifier.PRIVATE) || element.getModifiers().contains(Modifier.STATIC)) {
+            error(element, "Attribute " + element.getSimpleName() + " must be neither private nor static");
+            return null;
+        }
+        TypeMirror type;
+        String access;
+        String name;
+        if (element.getKind() == ElementKind.METHOD) {
+            var method = (ExecutableElement) element;
+            if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) {
+                error(element, "Attribute " + element.getSimpleName() + " must take no parameters and return a value");
+                return null;
+            }
+            type = method.getReturnType();
+            access = method.getSimpleName() + "()";
+            name = propertyName(method.getSimpleName().toString());
+        } else {
+            type = element.asType();
+            access = element.getSimpleName().toString();
+            name = access;
+        }
+        String key = annotation.value().isEmpty() ? name : annotation.value();
+        return new AttributeSpec(element, key, access, kind(type, annotation.ordered()), boxed(type));
+    }
+
+    private Kind kind(TypeMirror type, boolean ordered) {
+        switch (type.getKind()) {
+            case INT:
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case DOUBLE:
+            case FLOAT:
+                return Kind.DOUBLE;
+            case BOOLEAN:
+                return Kind.GENERIC;
+            default:
+                if (type.getKind() == TypeKind.DECLARED) {
+                    var element = ((DeclaredType) type).asElement();
+                    if (element.getKind() == ElementKind.ENUM) {
+                        return Kind.ENUM;
+                    }
+                    var name = ((TypeElement) element).getQualifiedName();
+                    if (name.contentEquals("java.lang.String")) {
+                        return Kind.STRING;
+                    }
+                    if (name.contentEquals("java.time.Instant")) {
+                        return Kind.INSTANT;
+                    }
+                    if (name.contentEquals("java.time.LocalDate")) {
+                        return Kind.LOCAL_DATE;
+                    }
+                    if (name.contentEquals("java.time.Duration")) {
+                        return Kind.DURATION;
+                    }
+                }
+                return ordered ? Kind.ORDERED : Kind.GENERIC;
+        }
+    }
+
+    private boolean uniqueKeys(List<AttributeSpec> attributes) {
+        var keys = new HashSet<String>();
+        boolean unique = true;
+        for (var attribute : attributes) {
+            if (!keys.add(attribute.key)) {
+                error(attribute.element, "Duplicate attribute " + attribute.key);
+                unique = false;
+            }
+        }
+        return unique;
+    }
+
+    private void write(TypeElement type, List<AttributeSpec> attributes) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String schemaName = binaryName(type) + "Schema";
+        String input = type.getQualifiedName().toString();
+        try (var out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName.isEmpty() ? schemaName : packageName + "." + schemaName, type)
+                .openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * The schema of {@link " + input + "}, generated from its attributes.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + SchemaProcessor.class.getName() + "\")");
+            out.println("public final class " + schemaName + " {");
+            out.println();
+            out.println("    private " + schemaName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    public static " + SCHEMA + "<String, " + input + "> create() {");
+            out.print("        return " + SCHEMA + ".<String, " + input + ">create()");
+            var names = new HashSet<String>();
+            for (var attribute : attributes) {
+                attribute.className = uniqueClassName(attribute, names);
+                out.println();
+                out.print("                ." + attribute.kind.register(attribute));
+            }
+            out.println(";");
+            out.println("    }");
+            for (var attribute : attributes) {
+                out.println();
+                out.println("    private static final class " + attribute.className + " implements "
+                        + attribute.kind.accessorType(input, attribute.erasure) + " {");
+                out.println("        @Override");
+                out.println("        public " + attribute.kind.returnType(attribute.erasure) + " "
+                        + attribute.kind.method() + "(" + input + " input) {");
+                out.println("            return input." + attribute.access + ";");
+                out.println("        }");
+                out.println("    }");
+            }
+            out.println("}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String boxed(TypeMirror type) {
+        return type.getKind().isPrimitive()
+                ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString()
+                : processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String uniqueClassName(AttributeSpec attribute, Set<String> names) {
+        String name = attribute.element.getSimpleName().toString();
+        String className = Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Accessor";
+        for (int i = 1; !names.add(className); ++i) {
+            className = Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Accessor" + i;
+        }
+        return className;
+    }
+
+    private static String binaryName(TypeElement type) {
+        var enclosing = type.getEnclosingElement();
+        return enclosing instanceof TypeElement
+                ? binaryName((TypeElement) enclosing) + "_" + type.getSimpleName()
+                : type.getSimpleName().toString();
+    }
+
+    private static String propertyName(String method) {
+        for (String prefix : new String[]{"get", "is"}) {
+            if (method.length() > prefix.length() && method.startsWith(prefix)
+                    && Character.isUpperCase(method.charAt(prefix.length()))) {
+                return Character.toLowerCase(method.charAt(prefix.length())) + method.substring(prefix.length() + 1);
+            }
+        }
+        return method;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private enum Kind {
+        INT("withAttribute", "java.util.function.ToIntFunction", "applyAsInt", "int"),
+        LONG("withAttribute", "java.util.function.ToLongFunction", "applyAsLong", "long"),
+        DOUBLE("withAttribute", "java.util.function.ToDoubleFunction", "applyAsDouble", "double"),
+        STRING("withStringAttribute", "java.util.function.Function", "apply", null),
+        ENUM("withEnumAttribute", "java.util.function.Function", "apply", null),
+        INSTANT("withInstantAttribute", "java.util.function.Function", "apply", null),
+        LOCAL_DATE("withLocalDateAttribute", "java.util.function.Function", "apply", null),
+        DURATION("withDurationAttribute", "java.util.function.Function", "apply", null),
+        ORDERED("withAttribute", "java.util.function.Function", "apply", null),
+        GENERIC("withAttribute", "java.util.function.Function", "apply", null);
+
+        private final String registration;
+        private final String accessor;
+        private final String method;
+        private final String primitive;
+
+        Kind(String registration, String accessor, String method, String primitive) {
+            this.registration = registration;
+            this.accessor = accessor;
+            this.method = method;
+            this.primitive = primitive;
+        }
+
+        String register(AttributeSpec attribute) {
+            String args = "\"" + escape(attribute.key) + "\", new " + attribute.className + "()";
+            switch (this) {
+                case ENUM:
+                    args += ", " + attribute.erasure + ".class";
+                    break;
+                case ORDERED:
+                    args += ", java.util.Comparator.naturalOrder()";
+                    break;
+                default:
+            }
+            return registration + "(" + args + ")";
+        }
+
+        String accessorType(String input, String value) {
+            return null == primitive ? accessor + "<" + input + ", " + value + ">" : accessor + "<" + input + ">";
+        }
+
+        String returnType(String value) {
+            return null == primitive ? value : primitive;
+        }
+
+        String method() {
+            return method;
+        }
+
+        private static String escape(String key) {
+            return key.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+    }
+
+    private static final class AttributeSpec {
+        private final Element element;
+        private final String key;
+        private final String access;
+        private final Kind kind;
+        // the boxed type for primitives
+        private final String erasure;
+        private String className;
+
+        private AttributeSpec(Element element, String key, String access, Kind kind, String erasure) {
+            this.element = element;
+            this.key = key;
+            this.access = access;
+            this.kind = kind;
+            this.erasure = erasure;
+        }
+    }
+}
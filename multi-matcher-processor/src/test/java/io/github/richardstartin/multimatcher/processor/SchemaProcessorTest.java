@@ -0,0 +1,161 @@
+package io.github.richardstartin.multimatcher.processor;
+
+import io.github.richardstartin.multimatcher.core.Classifier;
+import io.github.richardstartin.multimatcher.core.MatchingConstraint;
+import io.github.richardstartin.multimatcher.core.Schema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaProcessorTest {
+
+    private static final String TRADE = "package sample;\n" +
+            "\n" +
+            "import io.github.richardstartin.multimatcher.processor.Attribute;\n" +
+            "import java.math.BigDecimal;\n" +
+            "\n" +
+            "public class Trade {\n" +
+            "    public enum Side { BUY, SELL }\n" +
+            "\n" +
+            "    @Attribute int quantity;\n" +
+            "    @Attribute(\"px\") double price;\n" +
+            "    @Attribute String venue;\n" +
+            "    @Attribute Side side;\n" +
+            "    @Attribute(ordered = true) BigDecimal notional;\n" +
+            "    @Attribute java.time.LocalDate settlementDate = java.time.LocalDate.of(2020, 1, 1);\n" +
+            "    private final long timestamp;\n" +
+            "\n" +
+            "    public Trade(int quantity, double price, String venue, Side side, BigDecimal notional, long timestamp) {\n" +
+            "        this.quantity = quantity;\n" +
+            "        this.price = price;\n" +
+            "        this.venue = venue;\n" +
+            "        this.side = side;\n" +
+            "        this.notional = notional;\n" +
+            "        this.timestamp = timestamp;\n" +
+            "    }\n" +
+            "\n" +
+            "    @Attribute\n" +
+            "    public long getTimestamp() {\n" +
+            "        return timestamp;\n" +
+            "    }\n" +
+            "}\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testGeneratedSchemaClassifies() throws Exception {
+        var loader = compile("sample/Trade.java", TRADE);
+        String generated = Files.readString(dir.resolve("generated/sample/TradeSchema.java"));
+        assertTrue(generated.contains("implements java.util.function.ToIntFunction<sample.Trade>"));
+        assertTrue(generated.contains("implements java.util.function.ToLongFunction<sample.Trade>"));
+        assertTrue(generated.contains("implements java.util.function.ToDoubleFunction<sample.Trade>"));
+        assertTrue(generated.contains(".withStringAttribute(\"venue\""));
+        assertTrue(generated.contains(".withEnumAttribute(\"side\""));
+        assertTrue(generated.contains(".withLocalDateAttribute(\"settlementDate\""));
+
+        var trade = loader.loadClass("sample.Trade");
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        var side = (Class<Enum>) loader.loadClass("sample.Trade$Side");
+        @SuppressWarnings("unchecked")
+        var schema = (Schema<String, Object>) loader.loadClass("sample.TradeSchema").getMethod("create").invoke(null);
+        @SuppressWarnings("unchecked")
+        Object buy = Enum.valueOf(side, "BUY");
+        @SuppressWarnings("unchecked")
+        Object sell = Enum.valueOf(side, "SELL");
+        var classifier = Classifier.<String, Object, String>builder(schema)
+                .build(Arrays.asList(
+                        MatchingConstraint.<String, String>anonymous()
+                                .eq("quantity", 10)
+                                .gt("px", 1.5)
+                                .startsWith("venue", "LS")
+                                .eq("side", buy)
+                                .priority(1)
+                                .classification("big buy")
+                                .build(),
+                        MatchingConstraint.<String, String>anonymous()
+                                .gt("notional", new BigDecimal("1000"))
+                                .ge("timestamp", 100L)
+                                .lt("settlementDate", LocalDate.of(2021, 1, 1))
+                                .priority(0)
+                                .classification("late notional")
+                                .build()));
+        var constructor = trade.getConstructor(int.class, double.class, String.class, side,
+                BigDecimal.class, long.class);
+        assertEquals("big buy", classifier.classificationOrNull(
+                constructor.newInstance(10, 2.0, "LSE", buy, BigDecimal.ONE, 0L)));
+        assertNull(classifier.classificationOrNull(
+                constructor.newInstance(10, 2.0, "LSE", sell, BigDecimal.ONE, 0L)));
+        assertEquals("late notional", classifier.classificationOrNull(
+                constructor.newInstance(1, 1.0, "NYSE", sell, new BigDecimal("2000"), 200L)));
+        assertNull(classifier.classificationOrNull(
+                constructor.newInstance(1, 1.0, "NYSE", sell, new BigDecimal("2000"), 50L)));
+    }
+
+    @Test
+    public void testRejectPrivateAttribute() throws IOException {
+        var diagnostics = compileWithErrors("sample/Private.java", "package sample;\n" +
+                "public class Private {\n" +
+                "    @io.github.richardstartin.multimatcher.processor.Attribute private int value;\n" +
+                "}\n");
+        assertTrue(diagnostics.stream().anyMatch(message -> message.contains("must be neither private nor static")),
+                diagnostics::toString);
+    }
+
+    @Test
+    public void testRejectDuplicateKeys() throws IOException {
+        var diagnostics = compileWithErrors("sample/Duplicate.java", "package sample;\n" +
+                "public class Duplicate {\n" +
+                "    @io.github.richardstartin.multimatcher.processor.Attribute(\"key\") int first;\n" +
+                "    @io.github.richardstartin.multimatcher.processor.Attribute(\"key\") int second;\n" +
+                "}\n");
+        assertTrue(diagnostics.stream().anyMatch(message -> message.contains("Duplicate attribute key")),
+                diagnostics::toString);
+    }
+
+    private URLClassLoader compile(String path, String source) throws IOException {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertTrue(run(path, source, diagnostics), diagnostics.getDiagnostics()::toString);
+        return new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private List<String> compileWithErrors(String path, String source) throws IOException {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        assertFalse(run(path, source, diagnostics));
+        var messages = new ArrayList<String>();
+        diagnostics.getDiagnostics().forEach(diagnostic -> messages.add(diagnostic.getMessage(null)));
+        return messages;
+    }
+
+    private boolean run(String path, String source, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        var file = dir.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+        Files.createDirectories(dir.resolve("classes"));
+        Files.createDirectories(dir.resolve("generated"));
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        try (var files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            return compiler.getTask(null, files, diagnostics,
+                    List.of("-classpath", System.getProperty("java.class.path"),
+                            "-processor", SchemaProcessor.class.getName(),
+                            "-d", dir.resolve("classes").toString(),
+                            "-s", dir.resolve("generated").toString()),
+                    null, files.getJavaFileObjects(file)).call();
+        }
+    }
+}
@@ -1,4 +1,5 @@
 include(
         "multi-matcher-core",
+        "multi-matcher-processor",
         "benchmarks"
         )